@@ -0,0 +1,69 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * BenchPositions class holds the positions the benchmarks run on, from the
+ * empty board to a nearly full one, so that costs which grow with the number
+ * of pieces show up.
+ * 
+ * @author Ke Chen
+ * @see Benchmark
+ *
+ */
+final class BenchPositions {
+
+  /** The names of the positions, in order of game progress. */
+  static final String[] NAMES = { "empty", "opening", "middlegame",
+      "endgame" };
+
+  /**
+   * The columns played from the empty board to reach each position, first
+   * player first. None of them ends the game.
+   */
+  private static final String[] MOVES = { "", "3323", "3323532515312161",
+      "33232501662060423032213601051156" };
+
+  static final Player PLAYER1 = new HumanPlayer.Builder(PlayerType.PLAYER1)
+      .name("Player1").build();
+  static final Player PLAYER2 = new HumanPlayer.Builder(PlayerType.PLAYER2)
+      .name("Player2").build();
+
+  private BenchPositions() {
+  }
+
+  /**
+   * Create a new GameBoard with the named position on it.
+   * 
+   * @param name
+   *          One of <code>NAMES</code>.
+   * @return The GameBoard.
+   */
+  static GameBoard create(String name) {
+    for (int i = 0; i < NAMES.length; i++) {
+      if (NAMES[i].equals(name)) {
+        GameBoard gameBoard = new GameBoard();
+        String moves = MOVES[i];
+        for (int ply = 0; ply < moves.length(); ply++) {
+          Player player = ply % 2 == 0 ? PLAYER1 : PLAYER2;
+          int col = moves.charAt(ply) - '0';
+          int row = gameBoard.setBoard(col, player);
+          if (row < 0 || gameBoard.isWin(new Coordinate(row, col), player)) {
+            throw new IllegalStateException("bad position " + name);
+          }
+        }
+        return gameBoard;
+      }
+    }
+    throw new IllegalArgumentException("no position " + name);
+  }
+
+  /**
+   * Get the player to move in a position.
+   * 
+   * @param gameBoard
+   *          The position.
+   * @return PLAYER1 or PLAYER2.
+   */
+  static Player toMove(GameBoard gameBoard) {
+    return gameBoard.getMoveCount() % 2 == 0 ? PLAYER1 : PLAYER2;
+  }
+}
@@ -0,0 +1,56 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * Benchmark class is one measured operation of the benchmark suite, run with
+ * one value of its parameter. BenchmarkRunner calls <code>setup()</code> once
+ * and then <code>run()</code> with growing operation counts, timing every
+ * call and the bytes it allocates.
+ * <p>
+ * <code>run()</code> must fold whatever its operations compute into the
+ * value it returns, so the JIT compiler cannot drop them as dead code.
+ * 
+ * @author Ke Chen
+ * @see BenchmarkRunner
+ *
+ */
+abstract class Benchmark {
+  private final String name;
+  private final String param;
+
+  /**
+   * Create a benchmark.
+   * 
+   * @param name
+   *          The name of the measured operation, such as
+   *          <code>board.isWin</code>.
+   * @param param
+   *          The parameter value of this run, such as the position name.
+   */
+  Benchmark(String name, String param) {
+    this.name = name;
+    this.param = param;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  String getParam() {
+    return param;
+  }
+
+  /**
+   * Prepare the state of the benchmark. It is not timed.
+   */
+  void setup() {
+  }
+
+  /**
+   * Run the operation <code>ops</code> times.
+   * 
+   * @param ops
+   *          The number of operations.
+   * @return A value that depends on every operation.
+   */
+  abstract long run(int ops);
+}
@@ -0,0 +1,145 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * BenchmarkRunner class runs the benchmark suite of the project and prints,
+ * for every benchmark and parameter, the average time of one operation with
+ * its 99.9% confidence error and the bytes it allocates. A rise in either
+ * number between two builds points at a regression in the measured code.
+ * <p>
+ * Every benchmark first runs warm-up iterations, so the JIT compiler has
+ * compiled the measured code, and then measured iterations of a fixed length
+ * each. The operation count of an iteration is calibrated once, before the
+ * warm-up, so that one iteration takes about the requested time. Allocation
+ * is read from the per-thread allocation counter of the HotSpot JVM, which
+ * counts every byte allocated by the benchmark thread, like the
+ * <code>gc.alloc.rate.norm</code> figure of a GC profiler.
+ * <p>
+ * Usage: <code>BenchmarkRunner [filter] [iterations] [millis]</code>, where
+ * the filter is a regular expression that the benchmark name must contain.
+ * 
+ * @author Ke Chen
+ * @see Benchmark
+ *
+ */
+public class BenchmarkRunner {
+
+  /** The two-sided 99.9% quantile of the normal distribution. */
+  private static final double Z_999 = 3.29;
+
+  /** Keeps the results of the benchmarks alive. */
+  static volatile long sink;
+
+  private final int iterations;
+  private final long iterationNanos;
+  private final com.sun.management.ThreadMXBean threads;
+
+  /**
+   * Create a runner.
+   * 
+   * @param iterations
+   *          The number of warm-up iterations, and of measured ones.
+   * @param iterationMillis
+   *          The length of one iteration.
+   */
+  BenchmarkRunner(int iterations, long iterationMillis) {
+    this.iterations = iterations;
+    this.iterationNanos = iterationMillis * 1000000L;
+    java.lang.management.ThreadMXBean bean =
+        ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean)
+            .isThreadAllocatedMemorySupported()) {
+      this.threads = (com.sun.management.ThreadMXBean) bean;
+      this.threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    else {
+      this.threads = null;
+    }
+  }
+
+  public static void main(String[] args) {
+    Pattern filter = Pattern.compile(args.length > 0 ? args[0] : "");
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    long millis = args.length > 2 ? Long.parseLong(args[2]) : 200;
+    BenchmarkRunner runner = new BenchmarkRunner(iterations, millis);
+    List<Benchmark> benchmarks = HotPathBenchmarks.all();
+    PrintStream out = System.out;
+    out.printf("%-32s %-14s %12s %10s %12s%n", "Benchmark", "Param",
+        "ns/op", "error", "B/op");
+    for (Benchmark benchmark : benchmarks) {
+      if (filter.matcher(benchmark.getName()).find()) {
+        runner.measure(benchmark, out);
+      }
+    }
+  }
+
+  /**
+   * Run one benchmark and print its line of the report.
+   * 
+   * @param benchmark
+   *          The Benchmark to run.
+   * @param out
+   *          The stream to print to.
+   */
+  void measure(Benchmark benchmark, PrintStream out) {
+    benchmark.setup();
+    int ops = calibrate(benchmark);
+    for (int i = 0; i < iterations; i++) {
+      sink += benchmark.run(ops);
+    }
+    double[] nanosPerOp = new double[iterations];
+    long allocated = 0;
+    for (int i = 0; i < iterations; i++) {
+      long bytes = allocatedBytes();
+      long start = System.nanoTime();
+      sink += benchmark.run(ops);
+      nanosPerOp[i] = (double) (System.nanoTime() - start) / ops;
+      allocated += allocatedBytes() - bytes;
+    }
+    double mean = 0;
+    for (double value : nanosPerOp) {
+      mean += value;
+    }
+    mean /= iterations;
+    double squares = 0;
+    for (double value : nanosPerOp) {
+      squares += (value - mean) * (value - mean);
+    }
+    double error = iterations < 2 ? Double.NaN
+        : Z_999 * Math.sqrt(squares / (iterations - 1) / iterations);
+    double bytesPerOp = threads == null ? Double.NaN
+        : (double) allocated / ((long) ops * iterations);
+    out.printf("%-32s %-14s %12.1f %10.1f %12.1f%n", benchmark.getName(),
+        benchmark.getParam(), mean, error, bytesPerOp);
+  }
+
+  /**
+   * Find the number of operations that takes about one iteration, doubling
+   * it from 1 until a run takes a tenth of the iteration.
+   */
+  private int calibrate(Benchmark benchmark) {
+    int ops = 1;
+    while (true) {
+      long start = System.nanoTime();
+      sink += benchmark.run(ops);
+      long elapsed = System.nanoTime() - start;
+      if (elapsed >= iterationNanos / 10 || ops >= 1 << 28) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+            (long) ops * iterationNanos / Math.max(1, elapsed)));
+      }
+      ops *= 2;
+    }
+  }
+
+  private long allocatedBytes() {
+    if (threads == null) {
+      return 0;
+    }
+    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,354 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * HotPathBenchmarks class defines the benchmarks of the code that runs on
+ * every move: the GameBoard methods the model and the views call, the move of
+ * a ComputerPlayer, and the fan-out of a model event to its listeners. Every
+ * board benchmark runs on each position of BenchPositions.
+ * 
+ * @author Ke Chen
+ * @see BenchmarkRunner
+ *
+ */
+final class HotPathBenchmarks {
+
+  /** The search depth of the ComputerPlayer benchmark, that of MEDIUM. */
+  private static final int SEARCH_DEPTH = Difficulty.MEDIUM.getDepth();
+
+  /** The listener counts of the model benchmark. */
+  private static final int[] LISTENERS = { 1, 8, 64 };
+
+  private HotPathBenchmarks() {
+  }
+
+  /**
+   * Get all benchmarks of this class.
+   * 
+   * @return A new list of Benchmark.
+   */
+  static List<Benchmark> all() {
+    List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+    for (String position : BenchPositions.NAMES) {
+      benchmarks.add(setUnsetBoard(position));
+      if (!position.equals("empty")) {
+        benchmarks.add(isWin(position));
+      }
+      benchmarks.add(isTie(position));
+      benchmarks.add(getBoard(position));
+      benchmarks.add(getRowTracker(position));
+    }
+    for (String position : BenchPositions.NAMES) {
+      benchmarks.add(makeMove(position));
+    }
+    for (int listeners : LISTENERS) {
+      benchmarks.add(listenerFanOut(listeners));
+    }
+    return benchmarks;
+  }
+
+  /**
+   * Drop a piece in each open column in turn and take it back.
+   */
+  private static Benchmark setUnsetBoard(final String position) {
+    return new Benchmark("board.setBoard+unsetBoard", position) {
+      private GameBoard gameBoard;
+      private Player player;
+      private int[] columns;
+
+      @Override
+      void setup() {
+        gameBoard = BenchPositions.create(position);
+        player = BenchPositions.toMove(gameBoard);
+        columns = openColumns(gameBoard);
+      }
+
+      @Override
+      long run(int ops) {
+        long sink = 0;
+        for (int i = 0; i < ops; i++) {
+          int col = columns[i % columns.length];
+          sink += gameBoard.setBoard(col, player);
+          gameBoard.unsetBoard(col);
+        }
+        return sink;
+      }
+    };
+  }
+
+  /**
+   * Check every piece of the position for four in a row.
+   */
+  private static Benchmark isWin(final String position) {
+    return new Benchmark("board.isWin", position) {
+      private GameBoard gameBoard;
+      private Coordinate[] cells;
+      private Player[] owners;
+
+      @Override
+      void setup() {
+        gameBoard = BenchPositions.create(position);
+        int[][] board = gameBoard.getBoard();
+        List<Coordinate> occupied = new ArrayList<Coordinate>();
+        List<Player> players = new ArrayList<Player>();
+        for (int i = 0; i < GameBoard.ROWNUM; i++) {
+          for (int j = 0; j < GameBoard.COLNUM; j++) {
+            if (board[i][j] != 0) {
+              occupied.add(new Coordinate(i, j));
+              players.add(board[i][j] == 1 ? BenchPositions.PLAYER1
+                  : BenchPositions.PLAYER2);
+            }
+          }
+        }
+        cells = occupied.toArray(new Coordinate[0]);
+        owners = players.toArray(new Player[0]);
+      }
+
+      @Override
+      long run(int ops) {
+        long sink = 0;
+        for (int i = 0; i < ops; i++) {
+          int k = i % cells.length;
+          if (gameBoard.isWin(cells[k], owners[k])) {
+            sink++;
+          }
+        }
+        return sink;
+      }
+    };
+  }
+
+  /**
+   * Check for a draw on the position and on each position one move after it
+   * in turn. Cycling through several boards keeps the JIT compiler from
+   * hoisting the check, whose result never changes on a single board, out of
+   * the loop.
+   */
+  private static Benchmark isTie(final String position) {
+    return new Benchmark("board.isTie", position) {
+      private GameBoard[] boards;
+
+      @Override
+      void setup() {
+        boards = successors(position);
+      }
+
+      @Override
+      long run(int ops) {
+        long sink = 0;
+        for (int i = 0; i < ops; i++) {
+          if (boards[i % boards.length].isTie()) {
+            sink++;
+          }
+        }
+        return sink;
+      }
+    };
+  }
+
+  /**
+   * Copy the board array of the position and of each position one move after
+   * it in turn, and read every cell of the copy as a view repainting the
+   * board does, so the whole copy is measured.
+   */
+  private static Benchmark getBoard(final String position) {
+    return new Benchmark("board.getBoard", position) {
+      private GameBoard[] boards;
+
+      @Override
+      void setup() {
+        boards = successors(position);
+      }
+
+      @Override
+      long run(int ops) {
+        long sink = 0;
+        for (int i = 0; i < ops; i++) {
+          int[][] board = boards[i % boards.length].getBoard();
+          for (int[] row : board) {
+            for (int cell : row) {
+              sink += cell;
+            }
+          }
+        }
+        return sink;
+      }
+    };
+  }
+
+  /**
+   * Copy the free row of every column of the position and of each position
+   * one move after it in turn, and read every entry of the copy.
+   */
+  private static Benchmark getRowTracker(final String position) {
+    return new Benchmark("board.getRowTracker", position) {
+      private GameBoard[] boards;
+
+      @Override
+      void setup() {
+        boards = successors(position);
+      }
+
+      @Override
+      long run(int ops) {
+        long sink = 0;
+        for (int i = 0; i < ops; i++) {
+          for (int row : boards[i % boards.length].getRowTracker()) {
+            sink += row;
+          }
+        }
+        return sink;
+      }
+    };
+  }
+
+  /**
+   * Let a ComputerPlayer choose its move and take the move back. The
+   * transposition table is cleared before every move, so each one is a full
+   * search as after a fresh start; the time includes that clearing.
+   */
+  private static Benchmark makeMove(final String position) {
+    return new Benchmark("player.makeMove", position) {
+      private GameBoard gameBoard;
+      private ComputerPlayer player;
+
+      @Override
+      void setup() {
+        gameBoard = BenchPositions.create(position);
+        player = new ComputerPlayer.Builder(BenchPositions.toMove(gameBoard)
+            .getType()).gameBoard(gameBoard).depth(SEARCH_DEPTH)
+            .timeBudget(0).build();
+      }
+
+      @Override
+      long run(int ops) {
+        long sink = 0;
+        for (int i = 0; i < ops; i++) {
+          player.getTranspositionTable().clear();
+          Coordinate pos = player.makeMove(-1);
+          gameBoard.unsetBoard(pos.getY());
+          sink += pos.getY();
+        }
+        return sink;
+      }
+    };
+  }
+
+  /**
+   * Move the mouse into a column and out of it again, which the model
+   * broadcasts to every listener.
+   */
+  private static Benchmark listenerFanOut(final int listeners) {
+    return new Benchmark("model.mouseEntered+mouseExited",
+        listeners + " listeners") {
+      private ConnectFourModel model;
+      private long events;
+
+      @Override
+      void setup() {
+        Executor direct = new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            command.run();
+          }
+        };
+        model = new ConnectFourModel(GameMode.TWOPLAYER, new GameBoard(),
+            BenchPositions.PLAYER1, BenchPositions.PLAYER2, direct, direct);
+        for (int i = 0; i < listeners; i++) {
+          model.addListener(new CountingListener());
+        }
+      }
+
+      @Override
+      long run(int ops) {
+        for (int i = 0; i < ops; i++) {
+          model.mouseEntered(BenchPositions.PLAYER1, i % GameBoard.COLNUM);
+          model.mouseExited(BenchPositions.PLAYER1, i % GameBoard.COLNUM);
+        }
+        return events;
+      }
+
+      /**
+       * CountingListener class counts the hover events it gets and ignores
+       * all others.
+       */
+      class CountingListener implements ConnectFourListener {
+        @Override
+        public void gameStart() {
+        }
+
+        @Override
+        public void mouseInEachColume(Player whichPlayer, int col) {
+          events += col;
+        }
+
+        @Override
+        public void mouseOutEachColume(Player whichPlayer, int col) {
+          events++;
+        }
+
+        @Override
+        public void mouseClickEachColume(Player whichPlayer, Coordinate pos) {
+        }
+
+        @Override
+        public void takeBackMove(Player whichPlayer, Coordinate pos) {
+        }
+
+        @Override
+        public void switchTurnTo(Player whichPlayer) {
+        }
+
+        @Override
+        public void gameOverWithWinner(Player whichPlayer) {
+        }
+
+        @Override
+        public void gameTie() {
+        }
+
+        @Override
+        public void columeFull(Player whichPlayer) {
+        }
+
+        @Override
+        public void closeWindow() {
+        }
+      }
+    };
+  }
+
+  /**
+   * Return the columns of <code>gameBoard</code> that are not full.
+   */
+  /**
+   * Create the named position and every position one move after it, each on
+   * a GameBoard of its own.
+   */
+  private static GameBoard[] successors(String position) {
+    int[] columns = openColumns(BenchPositions.create(position));
+    GameBoard[] boards = new GameBoard[columns.length + 1];
+    boards[0] = BenchPositions.create(position);
+    for (int k = 0; k < columns.length; k++) {
+      boards[k + 1] = BenchPositions.create(position);
+      boards[k + 1].setBoard(columns[k], BenchPositions.toMove(boards[k + 1]));
+    }
+    return boards;
+  }
+
+  private static int[] openColumns(GameBoard gameBoard) {
+    int count = 0;
+    int[] columns = new int[GameBoard.COLNUM];
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      if (gameBoard.canPlay(j)) {
+        columns[count++] = j;
+      }
+    }
+    int[] open = new int[count];
+    System.arraycopy(columns, 0, open, 0, count);
+    return open;
+  }
+}
@@ -0,0 +1,463 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncListener class wraps a ConnectFourListener so that the model never
+ * waits for it. Every event is put in a queue of the listener's own and
+ * returns at once; the listener gets its events later, one at a time and
+ * in order, from its own executor. A slow or failing listener therefore only
+ * falls behind itself and never holds up the game or the other listeners.
+ * <p>
+ * Hover events that have not been delivered yet are coalesced: a mouse
+ * entering a column followed by the mouse leaving it, or the other way round,
+ * cancel each other, so a listener that falls behind skips the mouse moves it
+ * would have drawn and erased anyway. When the queue is full, the oldest
+ * queued hover event is dropped to make room. If there is none, a new hover
+ * event is dropped, but any other event is queued past the capacity: the
+ * moves, takebacks, turns and results are what keep the view in step with
+ * the game, so they are never dropped, and a listener that is stuck for good
+ * holds on to them alone. Exceptions thrown by the listener are caught and
+ * counted; an error is counted and thrown on, and the events after it are
+ * still delivered. An executor that refuses a delivery is counted as well,
+ * and the events wait for the next one.
+ * <p>
+ * The wrapper counts what it delivers, coalesces, drops and catches, and
+ * measures the lag of every event, the time from being fired to being
+ * delivered, so a slow observer is easy to find.
+ * 
+ * @author Ke Chen
+ * @see ConnectFourModel
+ *
+ */
+public class AsyncListener implements ConnectFourListener {
+
+  /** The queue capacity of the wrappers created by the model. */
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private static final int GAME_START = 0;
+  private static final int MOUSE_IN = 1;
+  private static final int MOUSE_OUT = 2;
+  private static final int MOVE = 3;
+  private static final int SWITCH_TURN = 4;
+  private static final int WIN = 5;
+  private static final int TIE = 6;
+  private static final int COLUMN_FULL = 7;
+  private static final int CLOSE_WINDOW = 8;
+  private static final int TAKE_BACK = 9;
+
+  /**
+   * Event class is one queued call of the listener.
+   */
+  private static class Event {
+    private final int kind;
+    private final Player player;
+    private final int col;
+    private final Coordinate pos;
+    private final long firedNanos;
+
+    private Event(int kind, Player player, int col, Coordinate pos) {
+      this.kind = kind;
+      this.player = player;
+      this.col = col;
+      this.pos = pos;
+      this.firedNanos = System.nanoTime();
+    }
+
+    private boolean isHover() {
+      return kind == MOUSE_IN || kind == MOUSE_OUT;
+    }
+
+    /**
+     * Check if this hover event and <code>next</code> undo each other.
+     */
+    private boolean cancels(Event next) {
+      return isHover() && next.isHover() && kind != next.kind
+          && col == next.col && player == next.player;
+    }
+  }
+
+  private final ConnectFourListener delegate;
+  private final int capacity;
+  private final Executor executor;
+  private final ArrayDeque<Event> queue;
+  private int hovers = 0;
+  private boolean draining = false;
+  private long delivered = 0;
+  private long coalesced = 0;
+  private long dropped = 0;
+  private long failures = 0;
+  private long rejections = 0;
+  private long totalLagNanos = 0;
+  private long maxLagNanos = 0;
+  private int maxQueued = 0;
+
+  /**
+   * Wrap <code>delegate</code> with a queue of <code>capacity</code> events
+   * and a daemon thread of its own, which ends after a minute without events.
+   * 
+   * @param delegate
+   *          The listener to deliver the events to.
+   * @param capacity
+   *          The most events that may wait for delivery before hover events
+   *          are dropped, at least 1.
+   */
+  public AsyncListener(ConnectFourListener delegate, int capacity) {
+    this(delegate, capacity, newListenerExecutor());
+  }
+
+  /**
+   * Wrap <code>delegate</code> with a queue of <code>capacity</code> events
+   * delivered from <code>executor</code>. The executor may be shared with
+   * other listeners; this wrapper never runs two deliveries at once.
+   * 
+   * @param delegate
+   *          The listener to deliver the events to.
+   * @param capacity
+   *          The most events that may wait for delivery before hover events
+   *          are dropped, at least 1.
+   * @param executor
+   *          Where the events are delivered, such as an executor that hands
+   *          them to the Swing event dispatch thread for a view.
+   */
+  public AsyncListener(ConnectFourListener delegate, int capacity,
+      Executor executor) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1");
+    }
+    this.delegate = delegate;
+    this.capacity = capacity;
+    this.executor = executor;
+    this.queue = new ArrayDeque<Event>(capacity);
+  }
+
+  /**
+   * Get the listener this wrapper delivers to.
+   * 
+   * @return The wrapped ConnectFourListener.
+   */
+  public ConnectFourListener getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public void gameStart() {
+    enqueue(new Event(GAME_START, null, -1, null));
+  }
+
+  @Override
+  public void mouseInEachColume(Player whichPlayer, int col) {
+    enqueue(new Event(MOUSE_IN, whichPlayer, col, null));
+  }
+
+  @Override
+  public void mouseOutEachColume(Player whichPlayer, int col) {
+    enqueue(new Event(MOUSE_OUT, whichPlayer, col, null));
+  }
+
+  @Override
+  public void mouseClickEachColume(Player whichPlayer, Coordinate pos) {
+    enqueue(new Event(MOVE, whichPlayer, -1, pos));
+  }
+
+  @Override
+  public void takeBackMove(Player whichPlayer, Coordinate pos) {
+    enqueue(new Event(TAKE_BACK, whichPlayer, -1, pos));
+  }
+
+  @Override
+  public void switchTurnTo(Player whichPlayer) {
+    enqueue(new Event(SWITCH_TURN, whichPlayer, -1, null));
+  }
+
+  @Override
+  public void gameOverWithWinner(Player whichPlayer) {
+    enqueue(new Event(WIN, whichPlayer, -1, null));
+  }
+
+  @Override
+  public void gameTie() {
+    enqueue(new Event(TIE, null, -1, null));
+  }
+
+  @Override
+  public void columeFull(Player whichPlayer) {
+    enqueue(new Event(COLUMN_FULL, whichPlayer, -1, null));
+  }
+
+  @Override
+  public void closeWindow() {
+    enqueue(new Event(CLOSE_WINDOW, null, -1, null));
+  }
+
+  /**
+   * Get the number of events waiting for delivery.
+   * 
+   * @return The queue length.
+   */
+  public synchronized int getQueued() {
+    return queue.size();
+  }
+
+  /**
+   * Get the longest the queue has been.
+   * 
+   * @return The maximum queue length.
+   */
+  public synchronized int getMaxQueued() {
+    return maxQueued;
+  }
+
+  /**
+   * Get the number of events delivered to the listener, including those it
+   * failed on.
+   * 
+   * @return The delivery count.
+   */
+  public synchronized long getDelivered() {
+    return delivered;
+  }
+
+  /**
+   * Get the number of hover events that were never delivered because they
+   * cancelled each other out.
+   * 
+   * @return The coalesced event count.
+   */
+  public synchronized long getCoalesced() {
+    return coalesced;
+  }
+
+  /**
+   * Get the number of hover events dropped because the queue was full.
+   * 
+   * @return The dropped event count.
+   */
+  public synchronized long getDropped() {
+    return dropped;
+  }
+
+  /**
+   * Get the number of events the listener threw an exception or an error
+   * on.
+   * 
+   * @return The failure count.
+   */
+  public synchronized long getFailures() {
+    return failures;
+  }
+
+  /**
+   * Get the number of times the executor refused to deliver the queued
+   * events. They are delivered with the next event instead.
+   * 
+   * @return The rejection count.
+   */
+  public synchronized long getRejections() {
+    return rejections;
+  }
+
+  /**
+   * Get the average time from the firing of an event to its delivery.
+   * 
+   * @return The average lag in nanoseconds, or 0 before the first delivery.
+   */
+  public synchronized long getAverageLagNanos() {
+    return delivered == 0 ? 0 : totalLagNanos / delivered;
+  }
+
+  /**
+   * Get the longest time from the firing of an event to its delivery.
+   * 
+   * @return The maximum lag in nanoseconds.
+   */
+  public synchronized long getMaxLagNanos() {
+    return maxLagNanos;
+  }
+
+  @Override
+  public String toString() {
+    synchronized (this) {
+      return "AsyncListener [delegate = " + delegate + ", queued = "
+          + queue.size() + ", delivered = " + delivered + ", coalesced = "
+          + coalesced + ", dropped = " + dropped + ", failures = " + failures
+          + ", rejections = " + rejections + ", max lag = "
+          + maxLagNanos / 1000000 + " ms]";
+    }
+  }
+
+  private void enqueue(Event event) {
+    synchronized (this) {
+      if (event.isHover() && !queue.isEmpty()
+          && queue.peekLast().cancels(event)) {
+        queue.pollLast();
+        hovers--;
+        coalesced += 2;
+        return;
+      }
+      if (queue.size() >= capacity && !dropHover() && event.isHover()) {
+        dropped++;
+        return;
+      }
+      queue.addLast(event);
+      if (event.isHover()) {
+        hovers++;
+      }
+      maxQueued = Math.max(maxQueued, queue.size());
+      if (draining) {
+        return;
+      }
+      draining = true;
+    }
+    schedule();
+  }
+
+  /**
+   * Hand a drain of the queue to the executor. If the executor rejects it,
+   * the rejection is counted and the events stay queued for the drain the
+   * next event schedules.
+   */
+  private void schedule() {
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          drain();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      synchronized (this) {
+        draining = false;
+        rejections++;
+      }
+    }
+  }
+
+  /**
+   * Drop the oldest queued hover event to make room for a new event.
+   * 
+   * @return False if there was no hover event to drop.
+   */
+  private boolean dropHover() {
+    if (hovers == 0) {
+      return false;
+    }
+    Iterator<Event> it = queue.iterator();
+    while (it.hasNext()) {
+      if (it.next().isHover()) {
+        it.remove();
+        hovers--;
+        dropped++;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Deliver queued events until the queue is empty. An exception of the
+   * listener is counted and the delivery goes on. An error is counted too,
+   * but it is thrown on to the executor; before that a new drain is
+   * scheduled for the events still queued, so they are not stuck behind a
+   * drain that will never finish.
+   */
+  private void drain() {
+    boolean emptied = false;
+    try {
+      while (true) {
+        Event event;
+        synchronized (this) {
+          event = queue.pollFirst();
+          if (event == null) {
+            draining = false;
+            emptied = true;
+            return;
+          }
+          if (event.isHover()) {
+            hovers--;
+          }
+        }
+        boolean failed = true;
+        try {
+          deliver(event);
+          failed = false;
+        } catch (RuntimeException e) {
+          // counted below; the listener gets the next event anyway
+        } finally {
+          record(event, failed);
+        }
+      }
+    } finally {
+      if (!emptied) {
+        schedule();
+      }
+    }
+  }
+
+  private synchronized void record(Event event, boolean failed) {
+    long lag = System.nanoTime() - event.firedNanos;
+    delivered++;
+    if (failed) {
+      failures++;
+    }
+    totalLagNanos += lag;
+    maxLagNanos = Math.max(maxLagNanos, lag);
+  }
+
+  private void deliver(Event event) {
+    switch (event.kind) {
+    case GAME_START:
+      delegate.gameStart();
+      break;
+    case MOUSE_IN:
+      delegate.mouseInEachColume(event.player, event.col);
+      break;
+    case MOUSE_OUT:
+      delegate.mouseOutEachColume(event.player, event.col);
+      break;
+    case MOVE:
+      delegate.mouseClickEachColume(event.player, event.pos);
+      break;
+    case SWITCH_TURN:
+      delegate.switchTurnTo(event.player);
+      break;
+    case WIN:
+      delegate.gameOverWithWinner(event.player);
+      break;
+    case TIE:
+      delegate.gameTie();
+      break;
+    case COLUMN_FULL:
+      delegate.columeFull(event.player);
+      break;
+    case TAKE_BACK:
+      delegate.takeBackMove(event.player, event.pos);
+      break;
+    default:
+      delegate.closeWindow();
+      break;
+    }
+  }
+
+  private static Executor newListenerExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "listener");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
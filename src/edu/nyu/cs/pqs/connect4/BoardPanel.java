@@ -0,0 +1,227 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+
+/**
+ * BoardPanel class is the board of a ConnectFourView: one component that
+ * paints the header row, where the piece about to be dropped is shown, and
+ * the cells of the board below it. It replaces a grid of one label per cell,
+ * which laid out and repainted many components on every move.
+ * <p>
+ * The white background with every header slot and every cell empty is drawn
+ * once, into an image shared by all panels. A paint copies the part of that
+ * image inside the clip and draws the sprites of the filled cells and header
+ * slots the clip touches. Every change asks to repaint only the rectangle of
+ * the cell or header slot it changed, so a move or a mouse move repaints one
+ * or a few small rectangles rather than the whole window.
+ * <p>
+ * The panel only draws what it is told to; it must be changed on the event
+ * dispatch thread, like any Swing component.
+ * 
+ * @author Ke Chen
+ * @see ConnectFourView
+ * @see ImageCache
+ *
+ */
+public class BoardPanel extends JComponent {
+
+  private static final long serialVersionUID = 1L;
+
+  /** The width and height of a cell, that of the cell images. */
+  static final int CELL_SIZE = 70;
+  /** The height of the header row above the board. */
+  static final int HEADER_HEIGHT = 75;
+
+  private static volatile BufferedImage background = null;
+
+  private final Image[] header;
+  private final Image[][] cells;
+
+  /**
+   * Create a board with every cell empty and every header slot showing the
+   * red piece, as at the start of a game.
+   * 
+   * @throws IOException
+   *           If an image of the board cannot be read.
+   */
+  public BoardPanel() throws IOException {
+    this.header = new Image[GameBoard.COLNUM];
+    this.cells = new Image[GameBoard.ROWNUM][GameBoard.COLNUM];
+    Image redPiece = ImageCache.getIcon(ImageCache.RED_PIECE).getImage();
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      header[j] = redPiece;
+    }
+    getBackgroundImage();
+    setOpaque(true);
+    Dimension size = new Dimension(GameBoard.COLNUM * CELL_SIZE,
+        HEADER_HEIGHT + GameBoard.ROWNUM * CELL_SIZE);
+    setPreferredSize(size);
+    setMinimumSize(size);
+  }
+
+  /**
+   * Show <code>icon</code> in the header slot of column <code>col</code>, or
+   * leave it empty if <code>icon</code> is null. Nothing is repainted if the
+   * slot already shows it.
+   * 
+   * @param col
+   *          The column index.
+   * @param icon
+   *          The piece image, or null.
+   */
+  public void setHeader(int col, ImageIcon icon) {
+    Image image = icon == null ? null : icon.getImage();
+    if (header[col] != image) {
+      header[col] = image;
+      repaint(getHeaderBounds(col));
+    }
+  }
+
+  /**
+   * Show <code>icon</code> in the cell at <code>row</code> and
+   * <code>col</code> of the game board, or empty the cell if
+   * <code>icon</code> is null. Nothing is repainted if the cell already shows
+   * it.
+   * 
+   * @param row
+   *          The row index of the GameBoard, 0 being the top row.
+   * @param col
+   *          The column index.
+   * @param icon
+   *          The filled cell image, or null.
+   */
+  public void setCell(int row, int col, ImageIcon icon) {
+    Image image = icon == null ? null : icon.getImage();
+    if (cells[row][col] != image) {
+      cells[row][col] = image;
+      repaint(getCellBounds(row, col));
+    }
+  }
+
+  /**
+   * Check if the cell at <code>row</code> and <code>col</code> is filled.
+   * 
+   * @param row
+   *          The row index of the GameBoard.
+   * @param col
+   *          The column index.
+   * @return True if a piece is drawn in the cell.
+   */
+  public boolean isFilled(int row, int col) {
+    return cells[row][col] != null;
+  }
+
+  /**
+   * Get the column under the horizontal position <code>x</code>.
+   * 
+   * @param x
+   *          The x coordinate in this component.
+   * @return The column index, or -1 if <code>x</code> is outside the board.
+   */
+  public int columnAt(int x) {
+    if (x < 0 || x >= GameBoard.COLNUM * CELL_SIZE) {
+      return -1;
+    }
+    return x / CELL_SIZE;
+  }
+
+  /**
+   * Get the rectangle of the header slot of column <code>col</code>.
+   * 
+   * @param col
+   *          The column index.
+   * @return A new Rectangle in the coordinates of this component.
+   */
+  public Rectangle getHeaderBounds(int col) {
+    return new Rectangle(col * CELL_SIZE, 0, CELL_SIZE, HEADER_HEIGHT);
+  }
+
+  /**
+   * Get the rectangle of the cell at <code>row</code> and <code>col</code>.
+   * 
+   * @param row
+   *          The row index of the GameBoard.
+   * @param col
+   *          The column index.
+   * @return A new Rectangle in the coordinates of this component.
+   */
+  public Rectangle getCellBounds(int row, int col) {
+    return new Rectangle(col * CELL_SIZE, HEADER_HEIGHT + row * CELL_SIZE,
+        CELL_SIZE, CELL_SIZE);
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(0, 0, getWidth(), getHeight());
+    }
+    g.setColor(Color.WHITE);
+    g.fillRect(clip.x, clip.y, clip.width, clip.height);
+    g.drawImage(background, 0, 0, null);
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      Rectangle bounds = getHeaderBounds(j);
+      if (header[j] != null && bounds.intersects(clip)) {
+        clear(g, bounds);
+        drawCentered(g, header[j], bounds);
+      }
+      for (int i = 0; i < GameBoard.ROWNUM; i++) {
+        bounds = getCellBounds(i, j);
+        if (cells[i][j] != null && bounds.intersects(clip)) {
+          clear(g, bounds);
+          drawCentered(g, cells[i][j], bounds);
+        }
+      }
+    }
+  }
+
+  private static void clear(Graphics g, Rectangle bounds) {
+    g.setColor(Color.WHITE);
+    g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+  }
+
+  private static void drawCentered(Graphics g, Image image, Rectangle bounds) {
+    int x = bounds.x + (bounds.width - image.getWidth(null)) / 2;
+    int y = bounds.y + (bounds.height - image.getHeight(null)) / 2;
+    g.drawImage(image, x, y, null);
+  }
+
+  /**
+   * Get the image of the empty board, drawing it on first use.
+   */
+  private static synchronized BufferedImage getBackgroundImage()
+      throws IOException {
+    if (background == null) {
+      Image empty = ImageCache.getIcon(ImageCache.EMPTY_PIECE).getImage();
+      Image cell = ImageCache.getIcon(ImageCache.CELL).getImage();
+      BufferedImage image = new BufferedImage(GameBoard.COLNUM * CELL_SIZE,
+          HEADER_HEIGHT + GameBoard.ROWNUM * CELL_SIZE,
+          BufferedImage.TYPE_INT_RGB);
+      Graphics g = image.createGraphics();
+      try {
+        clear(g, new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        for (int j = 0; j < GameBoard.COLNUM; j++) {
+          drawCentered(g, empty, new Rectangle(j * CELL_SIZE, 0, CELL_SIZE,
+              HEADER_HEIGHT));
+          for (int i = 0; i < GameBoard.ROWNUM; i++) {
+            drawCentered(g, cell, new Rectangle(j * CELL_SIZE,
+                HEADER_HEIGHT + i * CELL_SIZE, CELL_SIZE, CELL_SIZE));
+          }
+        }
+      } finally {
+        g.dispose();
+      }
+      background = image;
+    }
+    return background;
+  }
+}
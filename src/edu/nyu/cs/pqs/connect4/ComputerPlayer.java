@@ -1,27 +1,171 @@
 package edu.nyu.cs.pqs.connect4;
 
-import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
- * ComputerPlayer.class is an Immutable class that implements Player Interface
- * to provide Computer Player's behavior in the ConnectFour Game. The computer
- * style makeMove() method in this class is implemented by looking one step
- * ahead and makes that move if it results a win. Or, pick a random available
- * column in the game board to drop the piece. The availability of each column
- * means the column is not full.
+ * ComputerPlayer.class implements Player Interface to provide Computer
+ * Player's behavior in the ConnectFour Game. With a search depth above 0 the
+ * makeMove() method searches the game tree with a SearchEngine, deepening one
+ * ply at a time until it reaches that depth or runs out of its time budget,
+ * and plays the best column of the last completed depth. The search may use
+ * several threads (see ParallelSearch). Positions found in the player's
+ * OpeningBook, if it has one, are played straight from the book. With depth 0
+ * (Difficulty.EASY) it keeps the simple style: look one step ahead and make
+ * that move if it results a win, or pick a random available column in the game
+ * board to drop the piece. The availability of each column means the column is
+ * not full.
+ * <p>
+ * A player built with pondering on keeps searching during the opponent's
+ * turn. After its own move it takes the reply its search expects, the best
+ * move stored in the TranspositionTable for the opponent, and searches the
+ * position after that reply on a background thread. If the opponent played
+ * the predicted reply (a ponder hit), the background search simply becomes
+ * the search of the move: makeMove() waits for it to reach the player's depth,
+ * or stops it once the time budget of the move runs out, and plays its
+ * column. Otherwise the background search is stopped and a new search starts,
+ * with the table still warm from pondering. The share of predicted replies the
+ * opponent actually played is reported as the ponder hit rate.
+ * <p>
+ * Every move made with a search depth above 0 is reported to the
+ * SearchMonitor of the process, with the counters of the search behind it and
+ * the time from the call of makeMove() to the decision, and emitted as a
+ * SearchEvent for JDK Flight Recorder.
+ * <p>
+ * Name, type, depth, time budget and thread count never change, but the
+ * player keeps its search engines and the result of its last search, so an
+ * instance belongs to one game.
  * 
  * @author Ke Chen
  * @see Player
+ * @see SearchEngine
  *
  */
 public class ComputerPlayer implements Player {
 
   private final String name;
   private final PlayerType type;
+  private final GameBoard gameBoard;
+  private final int depth;
+  private final long timeBudgetMillis;
+  private final ParallelSearch search;
+  private final OpeningBook openingBook;
+  private volatile SearchResult lastSearchResult = null;
+  private volatile long lastDecisionNanos = 0;
+  private final boolean ponder;
+  private final GameBoard ponderBoard;
+  private ThreadPoolExecutor ponderThread = null;
+  private Future<SearchResult> ponderFuture = null;
+  private volatile int ponderMove = -1;
+  private volatile int ponderSearches = 0;
+  private volatile int ponderHits = 0;
+
+  /**
+   * Builder class is to generate instances of ComputerPlayer class. Player
+   * type is the required parameter. The name defaults to "Computer", the game
+   * board to an empty board of the player's own and the search depth and time
+   * budget to the ones of Difficulty.MEDIUM. A time budget of 0 means no
+   * limit. The search runs on one thread unless told otherwise, with a
+   * transposition table of <code>SearchEngine.DEFAULT_TABLE_SIZE</code>
+   * entries, no opening book is used unless one is given and the player does
+   * not ponder unless asked to. A negative depth or time budget is rejected
+   * when the player is built.
+   * 
+   * @author Ke Chen
+   *
+   */
+  public static class Builder {
+    private PlayerType type;
+    private String name = "Computer";
+    private GameBoard gameBoard = null;
+    private int depth = Difficulty.MEDIUM.getDepth();
+    private long timeBudgetMillis = Difficulty.MEDIUM.getTimeBudgetMillis();
+    private int threads = 1;
+    private OpeningBook openingBook = null;
+    private boolean ponder = false;
+    private int tableSize = SearchEngine.DEFAULT_TABLE_SIZE;
+
+    public Builder(PlayerType type) {
+      this.type = type;
+    }
+
+    /**
+     * Change the player type given to the constructor, for a factory that is
+     * only told the type when it builds the player.
+     */
+    Builder type(PlayerType type) {
+      this.type = type;
+      return this;
+    }
+
+    public Builder name(String name) {
+      this.name = name;
+      return this;
+    }
+
+    public Builder gameBoard(GameBoard gameBoard) {
+      this.gameBoard = gameBoard;
+      return this;
+    }
+
+    public Builder depth(int depth) {
+      this.depth = depth;
+      return this;
+    }
+
+    public Builder timeBudget(long timeBudgetMillis) {
+      this.timeBudgetMillis = timeBudgetMillis;
+      return this;
+    }
+
+    public Builder threads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    public Builder openingBook(OpeningBook openingBook) {
+      this.openingBook = openingBook;
+      return this;
+    }
+
+    public Builder ponder(boolean ponder) {
+      this.ponder = ponder;
+      return this;
+    }
+
+    public Builder tableSize(int tableSize) {
+      this.tableSize = tableSize;
+      return this;
+    }
+
+    public Builder difficulty(Difficulty difficulty) {
+      this.depth = difficulty.getDepth();
+      this.timeBudgetMillis = difficulty.getTimeBudgetMillis();
+      return this;
+    }
+
+    public ComputerPlayer build() {
+      if (depth < 0) {
+        throw new IllegalArgumentException("depth must not be negative");
+      }
+      if (timeBudgetMillis < 0) {
+        throw new IllegalArgumentException(
+            "time budget must not be negative");
+      }
+      return new ComputerPlayer(this);
+    }
+  }
 
   /**
    * The constructor of ComputerPlayer class takes two parameters to represent
-   * the name and type of this Computer Player.
+   * the name and type of this Computer Player. The player gets an empty game
+   * board of its own.
    * 
    * @param name
    *          A String variable represents Player's name.
@@ -29,8 +173,35 @@ public class ComputerPlayer implements Player {
    *          A PlayerType enum variable represents Player's type.
    */
   public ComputerPlayer(String name, PlayerType type) {
-    this.name = name;
-    this.type = type;
+    this(new Builder(type).name(name));
+  }
+
+  /**
+   * Create a Computer Player that makes its moves on the given game board.
+   * 
+   * @param name
+   *          A String variable represents Player's name.
+   * @param type
+   *          A PlayerType enum variable represents Player's type.
+   * @param gameBoard
+   *          The GameBoard of the game this player takes part in.
+   */
+  public ComputerPlayer(String name, PlayerType type, GameBoard gameBoard) {
+    this(new Builder(type).name(name).gameBoard(gameBoard));
+  }
+
+  private ComputerPlayer(Builder builder) {
+    this.name = builder.name;
+    this.type = builder.type;
+    this.gameBoard = builder.gameBoard == null ? new GameBoard()
+        : builder.gameBoard;
+    this.depth = builder.depth;
+    this.timeBudgetMillis = builder.timeBudgetMillis;
+    this.search = new ParallelSearch(builder.threads,
+        new TranspositionTable(builder.tableSize));
+    this.openingBook = builder.openingBook;
+    this.ponder = builder.ponder;
+    this.ponderBoard = new GameBoard();
   }
 
   @Override
@@ -43,35 +214,335 @@ public class ComputerPlayer implements Player {
     return this.type;
   }
 
+  @Override
+  public GameBoard getGameBoard() {
+    return this.gameBoard;
+  }
+
+  /**
+   * Get the search depth of this player.
+   * 
+   * @return The number of plies searched, 0 for the random player.
+   */
+  public int getDepth() {
+    return this.depth;
+  }
+
+  /**
+   * Get the time budget of one move of this player.
+   * 
+   * @return The budget in milliseconds, 0 for no limit.
+   */
+  public long getTimeBudgetMillis() {
+    return this.timeBudgetMillis;
+  }
+
+  /**
+   * Get the number of threads the search of this player uses.
+   * 
+   * @return The thread count, at least 1.
+   */
+  public int getThreads() {
+    return this.search.getThreads();
+  }
+
+  /**
+   * Get the result of the last search, including the number of nodes it
+   * visited, the depth it reached and the time it took.
+   * 
+   * @return A SearchResult, or null if the player has not searched yet.
+   */
+  public SearchResult getLastSearchResult() {
+    return this.lastSearchResult;
+  }
+
+  /**
+   * Get the time the last move took from the call of makeMove() to the
+   * decision, whether it came from a search, pondering or the opening book.
+   * 
+   * @return The time to decision in nanoseconds, or 0 before the first move.
+   */
+  public long getLastDecisionNanos() {
+    return this.lastDecisionNanos;
+  }
+
+  /**
+   * Get the TranspositionTable the search of this player fills.
+   * 
+   * @return The shared TranspositionTable of the search threads.
+   */
+  TranspositionTable getTranspositionTable() {
+    return this.search.getTranspositionTable();
+  }
+
+  /**
+   * Check if this player searches during the opponent's turn.
+   * 
+   * @return true if pondering is on.
+   */
+  public boolean isPondering() {
+    return this.ponder;
+  }
+
+  /**
+   * Get the reply of the opponent this player is pondering on.
+   * 
+   * @return The predicted column, or -1 if the player is not pondering.
+   */
+  public int getPonderMove() {
+    return this.ponderMove;
+  }
+
+  /**
+   * Get the number of opponent moves that were pondered on, that is the number
+   * of moves for which the player had predicted a reply.
+   * 
+   * @return The number of pondered opponent moves.
+   */
+  public int getPonderSearches() {
+    return this.ponderSearches;
+  }
+
+  /**
+   * Get the number of opponent moves that matched the predicted reply.
+   * 
+   * @return The number of ponder hits.
+   */
+  public int getPonderHits() {
+    return this.ponderHits;
+  }
+
+  /**
+   * Get the share of pondered opponent moves that matched the predicted
+   * reply.
+   * 
+   * @return The ponder hit rate between 0 and 1, or 0 if nothing was
+   *         pondered yet.
+   */
+  public double getPonderHitRate() {
+    int searches = ponderSearches;
+    return searches == 0 ? 0.0 : (double) ponderHits / searches;
+  }
+
   @Override
   public Coordinate makeMove(int col) {
-    GameBoard gameBoard = GameBoard.getInstance();
-    int[] rowTracker = gameBoard.getRowTracker();
+    if (depth <= 0) {
+      return makeRandomMove();
+    }
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    long start = System.nanoTime();
+    String source = "ponder";
+    Coordinate pos = makePonderMove();
+    if (pos == null) {
+      source = "book";
+      pos = makeBookMove();
+    }
+    if (pos == null) {
+      source = "search";
+      SearchResult result = search.searchIterative(gameBoard,
+          GameBoard.side(this), depth, timeBudgetMillis);
+      lastSearchResult = result;
+      int y = result.getColumn();
+      int x = gameBoard.setBoard(y, this);
+      pos = new Coordinate(x, y);
+    }
+    report(source, System.nanoTime() - start, event);
+    startPondering(pos);
+    return pos;
+  }
 
-    for (int j = 0; j < GameBoard.COLNUM; j++) {
-      if (rowTracker[j] != 0) {
-        int x = gameBoard.setBoard(j, this);
-        Coordinate pos = new Coordinate(x, j);
-        if (gameBoard.isWin(pos, this)) {
-          return pos;
-        }
-        gameBoard.unsetBoard(j);
+  /**
+   * Report the move just made to the SearchMonitor and, if a recording wants
+   * it, to JDK Flight Recorder.
+   */
+  private void report(String source, long decisionNanos, SearchEvent event) {
+    SearchResult result = lastSearchResult;
+    lastDecisionNanos = decisionNanos;
+    SearchMonitor.getInstance().record(name, source, result, decisionNanos);
+    event.end();
+    if (event.shouldCommit()) {
+      event.player = name;
+      event.source = source;
+      event.column = result.getColumn();
+      event.depth = result.getDepth();
+      event.nodes = result.getNodes();
+      event.nodesPerSecond = result.getNodesPerSecond();
+      event.tableHitRate = result.getTableHitRate();
+      event.cutoffRate = result.getCutoffRate();
+      event.firstMoveCutoffRate = result.getFirstMoveCutoffRate();
+      event.commit();
+    }
+  }
+
+  /**
+   * Ask a makeMove() running on another thread to finish early with the best
+   * column of its last completed depth. This method may be called from any
+   * thread; it has no effect on a move that has not started yet.
+   */
+  public void stopSearch() {
+    search.stop();
+  }
+
+  /**
+   * Stop the background search of this player, if there is one, and wait for
+   * it to end. Call this when the game is over or abandoned; makeMove() does
+   * it by itself.
+   */
+  public void stopPondering() {
+    finishPondering();
+    ponderMove = -1;
+  }
+
+  /**
+   * Predict the reply of the opponent to the move just played and start
+   * searching the position after it in the background.
+   */
+  private void startPondering(Coordinate pos) {
+    if (!ponder || pos.getX() < 0 || gameBoard.isWin(pos, this)
+        || gameBoard.isTie()) {
+      return;
+    }
+    final int side = GameBoard.side(this);
+    int opponent = 1 - side;
+    ponderBoard.copyFrom(gameBoard);
+    long entry = search.getTranspositionTable()
+        .probe(ponderBoard.getCanonicalKey(opponent));
+    int reply = ponderBoard.canonicalColumn(TranspositionTable.move(entry));
+    if (reply == -1 || !ponderBoard.canPlay(reply)
+        || ponderBoard.isWinningMove(reply, opponent)) {
+      return;
+    }
+    ponderBoard.play(reply, opponent);
+    ponderMove = reply;
+    ponderFuture = ponderPool().submit(new Callable<SearchResult>() {
+      @Override
+      public SearchResult call() {
+        return search.searchIterative(ponderBoard, side, depth, 0);
+      }
+    });
+  }
+
+  /**
+   * On a ponder hit, let the background search finish within the time budget
+   * of the move and play its column. On a miss, stop it.
+   */
+  private Coordinate makePonderMove() {
+    if (ponderMove == -1) {
+      return null;
+    }
+    ponderMove = -1;
+    ponderSearches++;
+    if (ponderBoard.getHash() != gameBoard.getHash()) {
+      finishPondering();
+      return null;
+    }
+    ponderHits++;
+    SearchResult result = awaitPondering();
+    if (result == null || result.getColumn() == -1) {
+      return null;
+    }
+    int y = result.getColumn();
+    int x = gameBoard.setBoard(y, this);
+    lastSearchResult = result;
+    return new Coordinate(x, y);
+  }
+
+  /**
+   * Wait for the background search to end by itself, for no longer than the
+   * time budget of a move, then stop it and return its result.
+   */
+  private SearchResult awaitPondering() {
+    Future<SearchResult> future = ponderFuture;
+    try {
+      SearchResult result = timeBudgetMillis > 0
+          ? future.get(timeBudgetMillis, TimeUnit.MILLISECONDS)
+          : future.get();
+      ponderFuture = null;
+      return result;
+    } catch (TimeoutException e) {
+      return finishPondering();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return finishPondering();
+    } catch (ExecutionException e) {
+      ponderFuture = null;
+      throw new IllegalStateException("ponder search failed", e.getCause());
+    }
+  }
+
+  /**
+   * Stop the background search and return its result. A stop request may
+   * reach the search before it has started and be cleared by it, so the
+   * request is repeated until the search is over.
+   */
+  private SearchResult finishPondering() {
+    Future<SearchResult> future = ponderFuture;
+    if (future == null) {
+      return null;
+    }
+    ponderFuture = null;
+    while (true) {
+      search.stop();
+      try {
+        return future.get(10, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        continue;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("ponder search failed", e.getCause());
       }
     }
+  }
 
-    Random rand = new Random();
-    int j = rand.nextInt(GameBoard.COLNUM);
-    int y = j;
-    while (y < GameBoard.COLNUM && rowTracker[y] == 0) {
-      y++;
+  private synchronized ThreadPoolExecutor ponderPool() {
+    if (ponderThread == null) {
+      ponderThread = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+              Thread thread = new Thread(r, "ponder");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      ponderThread.allowCoreThreadTimeOut(true);
     }
-    if (y == GameBoard.COLNUM) {
-      y = j;
-      while (y >= 0 && rowTracker[y] == 0) {
-        y--;
+    return ponderThread;
+  }
+
+  private Coordinate makeBookMove() {
+    if (openingBook == null) {
+      return null;
+    }
+    long start = System.nanoTime();
+    int index = openingBook
+        .find(gameBoard.getCanonicalKey(GameBoard.side(this)));
+    if (index == -1) {
+      return null;
+    }
+    int y = gameBoard.canonicalColumn(openingBook.getMove(index));
+    int x = gameBoard.setBoard(y, this);
+    if (x == -1) {
+      return null;
+    }
+    lastSearchResult = new SearchResult(y, openingBook.getScore(index),
+        openingBook.getDepth(index), 0, System.nanoTime() - start);
+    return new Coordinate(x, y);
+  }
+
+  private Coordinate makeRandomMove() {
+    int side = GameBoard.side(this);
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      if (gameBoard.canPlay(j) && gameBoard.isWinningMove(j, side)) {
+        int x = gameBoard.setBoard(j, this);
+        return new Coordinate(x, j);
       }
     }
 
+    int y = PlayoutEngine.current().randomColumn(gameBoard);
     int x = gameBoard.setBoard(y, this);
     return new Coordinate(x, y);
   }
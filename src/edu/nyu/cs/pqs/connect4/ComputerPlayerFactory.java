@@ -6,7 +6,10 @@ package edu.nyu.cs.pqs.connect4;
  * ConnectFour is a two player game, only one computer opponent is allowed to
  * exist, so the factory should produce no more than one instance of Computer
  * Player. While this class is a singleton factory, the ComputerPlayer itself is
- * not a singleton.
+ * not a singleton. Use one factory per game. How strong the produced player
+ * is, how many threads its search uses, which OpeningBook it plays its first
+ * moves from and whether it ponders during the opponent's turn are set on the
+ * ComputerPlayer.Builder the factory is given.
  * 
  * @author Ke Chen
  * @see PlayerFactory
@@ -14,11 +17,53 @@ package edu.nyu.cs.pqs.connect4;
  */
 public class ComputerPlayerFactory implements PlayerFactory {
   private ComputerPlayer instance = null;
+  private final ComputerPlayer.Builder builder;
+
+  /**
+   * Create a factory that produces players with the defaults of
+   * ComputerPlayer.Builder, which play at Difficulty.MEDIUM.
+   */
+  public ComputerPlayerFactory() {
+    this(new ComputerPlayer.Builder(PlayerType.COMPUTER));
+  }
+
+  /**
+   * Create a factory that produces its player with <code>builder</code>. The
+   * factory keeps the builder and sets the name, type and game board given to
+   * <code>createPlayer</code> on it when it builds the player, so everything
+   * else set on it beforehand applies to the player.
+   * 
+   * @param builder
+   *          A ComputerPlayer.Builder set up for the player to produce.
+   */
+  public ComputerPlayerFactory(ComputerPlayer.Builder builder) {
+    this.builder = builder;
+  }
 
   @Override
   public Player createPlayer(String name, PlayerType type) {
     if (instance == null) {
-      instance = new ComputerPlayer(name, type);
+      instance = builder.type(type).name(name).build();
+    }
+    return instance;
+  }
+
+  /**
+   * Create the ComputerPlayer of this factory on <code>gameBoard</code>, or
+   * return the one already created if it plays on that same board.
+   * 
+   * @throws IllegalStateException
+   *           If the factory already produced a player for another board.
+   */
+  @Override
+  public Player createPlayer(String name, PlayerType type,
+      GameBoard gameBoard) {
+    if (instance != null && instance.getGameBoard() != gameBoard) {
+      throw new IllegalStateException("the computer player of this factory "
+          + "plays on another game board");
+    }
+    if (instance == null) {
+      instance = builder.type(type).name(name).gameBoard(gameBoard).build();
     }
     return instance;
   }
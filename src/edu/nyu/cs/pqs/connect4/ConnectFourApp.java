@@ -1,9 +1,51 @@
 package edu.nyu.cs.pqs.connect4;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * ConnectFourApp class is the launcher of this ConnectFour game. The only
  * main() method of this project sits in this class to launch the game and show
- * the start menu.
+ * the start menu. Given a mode as the first argument it runs one of the
+ * command-line tools instead:
+ * <ul>
+ * <li><code>smp [threads] [millis]</code> compares the nodes per second of
+ * the parallel search with the single-threaded one.</li>
+ * <li><code>book [file] [plies] [depth] [millis]</code> builds an opening book
+ * of every position up to the given ply.</li>
+ * <li><code>sim [games] [threads] [playerA] [playerB] [openingPlies]
+ * [archive]</code> plays computer players against each other without a window
+ * and reports games per second, win and draw rates and the mean game length.
+ * A player is one of <code>easy</code>, <code>medium</code>,
+ * <code>hard</code>, <code>depth:N</code> or <code>mcts:N</code>. Given an
+ * archive file, every game is appended to it.</li>
+ * <li><code>tournament [gamesPerPair] [concurrency] [sprt:elo0:elo1]
+ * player...</code> plays a round robin between the players and reports their
+ * Elo ratings. With the <code>sprt</code> option every pair stops once a
+ * sequential probability ratio test at 5% error rates decides between the two
+ * Elo differences.</li>
+ * <li><code>perft [depth] [divide]</code> counts the move sequences of the
+ * empty board up to the given depth, checks them against the known counts
+ * and reports nodes per second; with <code>divide</code> it also prints the
+ * count of every first move.</li>
+ * <li><code>records file</code> reads every game of an archive and reports
+ * the number of games, the share of each result and the scan speed.</li>
+ * <li><code>analyze input output [depth] [threads]</code> scores every
+ * position of the input file, one move string such as <code>4453</code> per
+ * line, and writes the best column and score of each to the output file in
+ * the same order, reporting progress and positions per second.</li>
+ * <li><code>server [port] [searchThreads]</code> hosts games over TCP for
+ * many clients at once until the process is killed; see GameServer for the
+ * protocol.</li>
+ * </ul>
  * 
  * @author Ke Chen
  *
@@ -14,7 +56,132 @@ public class ConnectFourApp {
     ConnectFourStartMenu.getInstance();// singleton
   }
 
-  public static void main(String[] args) {
-    new ConnectFourApp().startGame();
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      new ConnectFourApp().startGame();
+      return;
+    }
+    if (args[0].equals("smp")) {
+      int threads = args.length > 1 ? Integer.parseInt(args[1])
+          : Runtime.getRuntime().availableProcessors();
+      long millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+      ParallelSearch.measureSpeedup(threads, millis, System.out);
+    }
+    else if (args[0].equals("book")) {
+      File file = new File(args.length > 1 ? args[1]
+          : OpeningBook.DEFAULT_FILE);
+      int plies = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+      int depth = args.length > 3 ? Integer.parseInt(args[3])
+          : GameBoard.ROWNUM * GameBoard.COLNUM;
+      long millis = args.length > 4 ? Long.parseLong(args[4]) : 1000;
+      int size = OpeningBook.build(file, plies, depth, millis, System.out);
+      System.out.println("Wrote " + size + " positions to " + file);
+    }
+    else if (args[0].equals("sim")) {
+      int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+      int threads = args.length > 2 ? Integer.parseInt(args[2])
+          : Runtime.getRuntime().availableProcessors();
+      GameSimulator.Entrant playerA = GameSimulator.entrant(
+          args.length > 3 ? args[3] : "medium");
+      GameSimulator.Entrant playerB = GameSimulator.entrant(
+          args.length > 4 ? args[4] : "easy");
+      int openingPlies = args.length > 5 ? Integer.parseInt(args[5]) : 2;
+      GameRecordWriter recorder = args.length > 6
+          ? new GameRecordWriter(new File(args[6])) : null;
+      try {
+        System.out.println(new GameSimulator(playerA, playerB, threads,
+            openingPlies, recorder).run(games));
+      } finally {
+        if (recorder != null) {
+          recorder.close();
+        }
+      }
+    }
+    else if (args[0].equals("tournament")) {
+      Tournament.Builder builder = new Tournament.Builder();
+      if (args.length > 1) {
+        builder.gamesPerPair(Integer.parseInt(args[1]));
+      }
+      if (args.length > 2) {
+        builder.concurrency(Integer.parseInt(args[2]));
+      }
+      int first = 3;
+      if (args.length > 3 && args[3].startsWith("sprt:")) {
+        String[] bounds = args[3].split(":");
+        builder.sprt(Double.parseDouble(bounds[1]),
+            Double.parseDouble(bounds[2]), 0.05, 0.05);
+        first = 4;
+      }
+      if (args.length <= first) {
+        builder.entrant("medium").entrant("depth:4").entrant("easy");
+      }
+      for (int i = first; i < args.length; i++) {
+        builder.entrant(args[i]);
+      }
+      Tournament tournament = builder.build();
+      tournament.run();
+      tournament.report(System.out);
+    }
+    else if (args[0].equals("perft")) {
+      int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+      boolean divide = args.length > 2 && args[2].equals("divide");
+      if (!Perft.run(depth, divide, System.out)) {
+        System.exit(1);
+      }
+    }
+    else if (args[0].equals("records")) {
+      if (args.length < 2) {
+        System.err.println("Usage: records file");
+        System.exit(1);
+      }
+      GameRecordReader.scan(new File(args[1]), System.out);
+    }
+    else if (args[0].equals("analyze")) {
+      if (args.length < 3) {
+        System.err.println("Usage: analyze input output [depth] [threads]");
+        System.exit(1);
+      }
+      PositionAnalyzer.Builder builder = new PositionAnalyzer.Builder();
+      if (args.length > 3) {
+        builder.depth(Integer.parseInt(args[3]));
+      }
+      if (args.length > 4) {
+        builder.threads(Integer.parseInt(args[4]));
+      }
+      Reader in = new InputStreamReader(new FileInputStream(args[1]),
+          StandardCharsets.US_ASCII);
+      try {
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(args[2]), StandardCharsets.US_ASCII), 1 << 16);
+        try {
+          builder.build().analyze(in, out, System.err);
+        } finally {
+          out.close();
+        }
+      } finally {
+        in.close();
+      }
+    }
+    else if (args[0].equals("server")) {
+      GameServer.Builder builder = new GameServer.Builder();
+      if (args.length > 1) {
+        builder.port(Integer.parseInt(args[1]));
+      }
+      if (args.length > 2) {
+        builder.searchThreads(Integer.parseInt(args[2]));
+      }
+      GameServer server = builder.build();
+      server.start();
+      System.out.println("Serving games on port " + server.getPort());
+      try {
+        server.join();
+      } catch (InterruptedException e) {
+        server.close();
+      }
+    }
+    else {
+      System.err.println("Unknown mode: " + args[0]);
+      System.exit(1);
+    }
   }
 }
@@ -57,6 +57,19 @@ public interface ConnectFourListener {
    */
   public void mouseClickEachColume(Player whichPlayer, Coordinate pos);
 
+  /**
+   * Empty the cell in the specified position: <code>pos</code> in the game
+   * board, because the move the given player made there was taken back. If
+   * the game was over, it goes on: the events that follow a takeback tell
+   * whose turn it is, or that the game is over again.
+   * 
+   * @param whichPlayer
+   *          A Player reference, the player whose move was taken back.
+   * @param pos
+   *          A Coordinate reference represents the position on the game board.
+   */
+  public void takeBackMove(Player whichPlayer, Coordinate pos);
+
   /**
    * Switch turn to specified <code>player</code>. Before getting its own turn,
    * any behavior of the <code>player</code> has no effect to the game board.
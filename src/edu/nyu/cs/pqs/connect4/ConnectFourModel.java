@@ -2,11 +2,50 @@ package edu.nyu.cs.pqs.connect4;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
 
 /**
  * ConnectFourModel class serves as the Observable part in this game and
  * broadcast information to all Views that is observing this model. So that all
  * Views will properly perform what Model tells them to do.
+ * <p>
+ * The model lives on the event thread: its methods are called from there and
+ * its events are fired there. The move of a computer player is the exception.
+ * It is handed to a move executor as a FutureTask, so a long search never
+ * freezes the window, and when the task is done its result is passed back to
+ * the event executor, which fires the events of the move. Clicks are ignored
+ * while the computer is thinking. A computer move that fails is reported and
+ * replaced by a fallback move, so the turns never get out of step. Every game
+ * started from this model has a generation number; <code>resetGame()</code>
+ * and <code>returnToMenu()</code> move to the next one, and a computer move of
+ * an older generation is dropped when it arrives. By default moves run on a
+ * daemon thread of the model and events on the Swing event dispatch thread;
+ * other executors can be given for headless or server use.
+ * <p>
+ * Listeners are kept in a copy-on-write list, so they may be added or removed
+ * at any time, even by a listener while an event is being fired. A listener
+ * added with <code>addListener</code> is called right away on the firing
+ * thread. One added with <code>addAsyncListener</code> gets its events through
+ * an AsyncListener instead, from a bounded queue and a thread of its own, so
+ * a slow or failing listener cannot hold up the game.
+ * <p>
+ * Every move of the game is recorded in a MoveHistory. <code>undo()</code>,
+ * <code>redo()</code> and <code>jumpToPly()</code> move through it, taking
+ * back or replaying moves one at a time on the game board, and fire a
+ * takeback event for every move taken back and a move event for every move
+ * played again. In a SINGLEPLAYER game undo and redo step over the moves of
+ * the computer, so the human player is to move afterwards.
  * 
  * @author Ke Chen
  * @see ConnectFourView
@@ -17,24 +56,70 @@ public class ConnectFourModel {
   private GameMode mode;
   private Player player1;
   private Player player2;
+  private final Executor moveExecutor;
+  private final Executor eventExecutor;
+  private FutureTask<Coordinate> computerMove = null;
+  private FutureTask<Void> boardReset = null;
+  private int generation = 0;
+  private long failures = 0;
+  private final MoveHistory history = new MoveHistory();
 
   /**
-   * The constructor takes three parameters to represent the GameMode and both
-   * players. The GameMode is either <code>SINGLEPLAYER</code> or
+   * The constructor takes four parameters to represent the GameMode, the game
+   * board and both players. The GameMode is either <code>SINGLEPLAYER</code> or
    * <code>TWOPLAYER</code>. <code>player1</code> is always HumanPlayer and
    * <code>player2</code> is either HumanPlayer (TWOPLAYER MODE) or
-   * ComputerPlayer (SINGLEPLAYER MODE).
+   * ComputerPlayer (SINGLEPLAYER MODE). Both players must make their moves on
+   * the same <code>gameBoard</code>, which belongs to this game only.
    * 
    * @param mode
    *          A GameMode enum variable to represent the mode of the game.
+   * @param gameBoard
+   *          The GameBoard of this game.
    * @param player1
    *          A Player reference.
    * @param player2
    *          A Player reference.
    */
-  public ConnectFourModel(GameMode mode, Player player1, Player player2) {
-    this.gameBoard = GameBoard.getInstance();
-    this.listeners = new ArrayList<ConnectFourListener>();
+  public ConnectFourModel(GameMode mode, GameBoard gameBoard, Player player1,
+      Player player2) {
+    this(mode, gameBoard, player1, player2, newMoveExecutor(),
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            SwingUtilities.invokeLater(command);
+          }
+        });
+  }
+
+  /**
+   * Create a model whose computer moves run on <code>moveExecutor</code> and
+   * whose events are fired through <code>eventExecutor</code>. The event
+   * executor must run its tasks one at a time, in order, on the thread that
+   * calls the model, like the Swing event dispatch thread does. Passing an
+   * executor that runs tasks right away in the calling thread for both makes
+   * the model synchronous.
+   * 
+   * @param mode
+   *          A GameMode enum variable to represent the mode of the game.
+   * @param gameBoard
+   *          The GameBoard of this game.
+   * @param player1
+   *          A Player reference.
+   * @param player2
+   *          A Player reference.
+   * @param moveExecutor
+   *          Where the moves of the computer player are computed. It must run
+   *          its tasks one at a time, in order.
+   * @param eventExecutor
+   *          Where the events of a computer move are fired.
+   */
+  public ConnectFourModel(GameMode mode, GameBoard gameBoard, Player player1,
+      Player player2, Executor moveExecutor, Executor eventExecutor) {
+    this.moveExecutor = moveExecutor;
+    this.eventExecutor = eventExecutor;
+    this.gameBoard = gameBoard;
+    this.listeners = new CopyOnWriteArrayList<ConnectFourListener>();
     this.mode = mode;
     this.player1 = player1;
     this.player2 = player2;
@@ -51,12 +136,38 @@ public class ConnectFourModel {
   }
 
   /**
-   * Unregistered the specified <code>listener</code> from this model.
+   * Register the given <code>listener</code> to this model behind an
+   * AsyncListener with a queue of <code>AsyncListener.DEFAULT_CAPACITY</code>
+   * events and a delivery thread of its own.
+   * 
+   * @param listener
+   *          A ConnectFourListener reference.
+   * @return The AsyncListener wrapper, whose counters show how far the
+   *         listener lags behind.
+   */
+  public AsyncListener addAsyncListener(ConnectFourListener listener) {
+    AsyncListener async = new AsyncListener(listener,
+        AsyncListener.DEFAULT_CAPACITY);
+    listeners.add(async);
+    return async;
+  }
+
+  /**
+   * Unregistered the specified <code>listener</code> from this model. A
+   * listener added with <code>addAsyncListener</code> may be given either
+   * itself or its wrapper.
    * 
    * @param listener
    *          A ConnectFourListener reference.
    */
   public void removeListener(ConnectFourListener listener) {
+    for (ConnectFourListener registered : listeners) {
+      if (registered instanceof AsyncListener
+          && ((AsyncListener) registered).getDelegate() == listener) {
+        listeners.remove(registered);
+        return;
+      }
+    }
     listeners.remove(listener);
   }
 
@@ -80,6 +191,15 @@ public class ConnectFourModel {
     return result;
   }
 
+  /**
+   * Get the game board of this game.
+   * 
+   * @return A reference to the GameBoard object.
+   */
+  public GameBoard getGameBoard() {
+    return this.gameBoard;
+  }
+
   /**
    * Get the reference to player1.
    * 
@@ -140,8 +260,9 @@ public class ConnectFourModel {
    * method to set board and do winning or tie checking. If either condition is
    * satisfied, broadcast to all registered Views that the game is over with the
    * final status. Otherwise, switch turn to another player. If it's a
-   * SINGLEPLAYER mode game, the computer player would also make next step and
-   * do win and tie checking again.
+   * SINGLEPLAYER mode game, the computer player would also make next step on
+   * the move executor, and its move is broadcast, with win and tie checking
+   * again, once it is ready. Clicks made before that are ignored.
    * 
    * @param whichPlayer
    *          A Player reference.
@@ -149,16 +270,22 @@ public class ConnectFourModel {
    *          An integer to represents the column on the game board.
    */
   public void mouseClicked(Player whichPlayer, int col) {
+    if (computerMove != null || boardReset != null) {
+      return;
+    }
     Coordinate humanPos = whichPlayer.makeMove(col);
 
     if (humanPos.getX() >= 0 && humanPos.getX() < GameBoard.ROWNUM) {
+      history.push(col);
       fireMakeMoveEvent(whichPlayer, humanPos);
 
       if (isWin(humanPos, whichPlayer)) {
+        stopPondering();
         fireWinEvent(whichPlayer);
         return;
       }
       else if (isTie()) {
+        stopPondering();
         fireTieEvent();
         return;
       }
@@ -166,17 +293,7 @@ public class ConnectFourModel {
       switchTurn(whichPlayer);
 
       if (mode == GameMode.SINGLEPLAYER) {
-        Coordinate computerPos = player2.makeMove(-1);
-        fireMakeMoveEvent(player2, computerPos);
-        if (isWin(computerPos, player2)) {
-          fireWinEvent(player2);
-          return;
-        }
-        else if (isTie()) {
-          fireTieEvent();
-          return;
-        }
-        switchTurn(player2);
+        requestComputerMove();
       }
     }
     else if (humanPos.getX() == -1) {
@@ -185,14 +302,304 @@ public class ConnectFourModel {
   }
 
   /**
-   * Close the game window and go back to start menu. Also reset the game board.
+   * Check if a computer move is being computed.
+   * 
+   * @return true if the model waits for the computer player.
+   */
+  public boolean isComputerThinking() {
+    return computerMove != null;
+  }
+
+  /**
+   * Get the number of computer moves that failed and were replaced by a
+   * fallback move.
+   * 
+   * @return The failure count.
+   */
+  public long getFailureCount() {
+    return failures;
+  }
+
+  /**
+   * Close the game window and go back to start menu. The game itself is
+   * abandoned as by <code>resetGame()</code>.
    */
   public void returnToMenu() {
+    resetGame();
     fireCloseWindowEvent();
-    gameBoard.resetBoard();
     ConnectFourStartMenu.getInstance().getFrame().setVisible(true);
   }
 
+  /**
+   * Abandon the current game without touching any window. A computer move
+   * still being computed is cancelled and its result will be ignored, any
+   * computer player that is still searching is stopped, and the game board is
+   * reset once the computer has let go of it. The reset runs on the move
+   * executor, after any move still being computed, and clicks are ignored
+   * until it is done, so no move of the new game is wiped by it.
+   */
+  public void resetGame() {
+    generation++;
+    history.clear();
+    if (computerMove != null) {
+      computerMove.cancel(false);
+      computerMove = null;
+      if (player2 instanceof ComputerPlayer) {
+        ((ComputerPlayer) player2).stopSearch();
+      }
+    }
+    stopPondering();
+    boardReset = new FutureTask<Void>(new Runnable() {
+      @Override
+      public void run() {
+        gameBoard.resetBoard();
+      }
+    }, null) {
+      @Override
+      protected void done() {
+        final FutureTask<Void> task = this;
+        eventExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (boardReset == task) {
+              boardReset = null;
+            }
+          }
+        });
+      }
+    };
+    moveExecutor.execute(boardReset);
+  }
+
+  /**
+   * Get the moves of the current game.
+   * 
+   * @return The MoveHistory of this model, which only the model changes.
+   */
+  public MoveHistory getHistory() {
+    return this.history;
+  }
+
+  /**
+   * Take back the last move. In a SINGLEPLAYER game the move before it is
+   * taken back as well if the computer would be to move, so that it is the
+   * human player's turn again.
+   * 
+   * @return false if there is nothing to take back or the computer is
+   *         thinking.
+   */
+  public boolean undo() {
+    int target = history.getPly() - 1;
+    if (mode == GameMode.SINGLEPLAYER && target > 0
+        && playerAt(target) == player2) {
+      target--;
+    }
+    return jumpToPly(target);
+  }
+
+  /**
+   * Play the last move taken back again. In a SINGLEPLAYER game the
+   * computer's reply is replayed with it, if it was recorded.
+   * 
+   * @return false if there is nothing to play again or the computer is
+   *         thinking.
+   */
+  public boolean redo() {
+    int target = history.getPly() + 1;
+    if (mode == GameMode.SINGLEPLAYER && target < history.getLength()
+        && playerAt(target) == player2) {
+      target++;
+    }
+    return jumpToPly(target);
+  }
+
+  /**
+   * Go to the position after the first <code>ply</code> moves of the game,
+   * taking back or replaying the moves in between. The moves after it are
+   * kept until a new move is made. If the game is over in that position the
+   * win or tie is broadcast again; otherwise the turn goes to the player to
+   * move, and in a SINGLEPLAYER game the computer starts thinking if that is
+   * its turn.
+   * 
+   * @param ply
+   *          The number of moves to keep on the board, between 0 and the
+   *          length of the history.
+   * @return false if the ply is out of range or the current one, or the
+   *         computer is thinking.
+   */
+  public boolean jumpToPly(int ply) {
+    if (computerMove != null || boardReset != null || ply < 0
+        || ply > history.getLength()
+        || ply == history.getPly()) {
+      return false;
+    }
+    stopPondering();
+    while (history.getPly() > ply) {
+      Player whichPlayer = playerAt(history.getPly() - 1);
+      int col = history.undo();
+      Coordinate pos = new Coordinate(gameBoard.topRow(col), col);
+      gameBoard.unsetBoard(col);
+      fireTakeBackEvent(whichPlayer, pos);
+    }
+    while (history.getPly() < ply) {
+      Player whichPlayer = playerAt(history.getPly());
+      int col = history.redo();
+      int row = gameBoard.setBoard(col, whichPlayer);
+      fireMakeMoveEvent(whichPlayer, new Coordinate(row, col));
+    }
+    if (ply > 0) {
+      Player last = playerAt(ply - 1);
+      int col = history.getMove(ply - 1);
+      if (isWin(new Coordinate(gameBoard.topRow(col), col), last)) {
+        fireWinEvent(last);
+        return true;
+      }
+    }
+    if (isTie()) {
+      fireTieEvent();
+      return true;
+    }
+    Player next = playerAt(ply);
+    switchTurnTo(next);
+    if (mode == GameMode.SINGLEPLAYER && next == player2) {
+      requestComputerMove();
+    }
+    return true;
+  }
+
+  /**
+   * Get the player who makes move number <code>ply</code>, counting from 0.
+   */
+  private Player playerAt(int ply) {
+    return ply % 2 == 0 ? player1 : player2;
+  }
+
+  /**
+   * Hand the move of <code>player2</code> to the move executor. When it is
+   * done, the result goes back to the event executor, tagged with the current
+   * generation.
+   */
+  private void requestComputerMove() {
+    final int moveGeneration = generation;
+    computerMove = new FutureTask<Coordinate>(new Callable<Coordinate>() {
+      @Override
+      public Coordinate call() {
+        return player2.makeMove(-1);
+      }
+    }) {
+      @Override
+      protected void done() {
+        final FutureTask<Coordinate> task = this;
+        eventExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            computerMoveDone(task, moveGeneration);
+          }
+        });
+      }
+    };
+    moveExecutor.execute(computerMove);
+  }
+
+  /**
+   * Broadcast a finished computer move, unless the game it belongs to is
+   * over. If the computer player failed to move, a fallback move is played
+   * for it instead.
+   */
+  private void computerMoveDone(FutureTask<Coordinate> task,
+      int moveGeneration) {
+    if (moveGeneration != generation || task != computerMove) {
+      return;
+    }
+    computerMove = null;
+    Coordinate computerPos;
+    try {
+      computerPos = task.get();
+    } catch (CancellationException e) {
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    } catch (ExecutionException e) {
+      computerPos = fallbackMove(e.getCause());
+    }
+
+    history.push(computerPos.getY());
+    fireMakeMoveEvent(player2, computerPos);
+    if (isWin(computerPos, player2)) {
+      stopPondering();
+      fireWinEvent(player2);
+      return;
+    }
+    else if (isTie()) {
+      stopPondering();
+      fireTieEvent();
+      return;
+    }
+    switchTurn(player2);
+  }
+
+  /**
+   * Make a move for <code>player2</code> after its own move failed with
+   * <code>cause</code>. The failure is counted and handed to the uncaught
+   * exception handler of the current thread, which goes on; the board, which
+   * a search that failed half way may have left with pieces of its own, is
+   * rebuilt from the history, and the free column nearest the centre is
+   * played, so the game goes on with the human to move.
+   */
+  private Coordinate fallbackMove(Throwable cause) {
+    failures++;
+    Thread thread = Thread.currentThread();
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, cause);
+    gameBoard.resetBoard();
+    for (int i = 0; i < history.getPly(); i++) {
+      gameBoard.setBoard(history.getMove(i), playerAt(i));
+    }
+    int centre = GameBoard.COLNUM / 2;
+    for (int d = 0; d <= centre; d++) {
+      for (int col : new int[] { centre - d, centre + d }) {
+        if (col < GameBoard.COLNUM && gameBoard.canPlay(col)) {
+          return new Coordinate(gameBoard.setBoard(col, player2), col);
+        }
+      }
+    }
+    throw new IllegalStateException("no move left", cause);
+  }
+
+  /**
+   * Stop the background search of every computer player of this game, so that
+   * nothing keeps running once the game is over. This runs on the move
+   * executor, after any move still being computed, since the players are
+   * confined to it.
+   */
+  private void stopPondering() {
+    moveExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        for (Player player : new Player[] { player1, player2 }) {
+          if (player instanceof ComputerPlayer) {
+            ((ComputerPlayer) player).stopPondering();
+          }
+        }
+      }
+    });
+  }
+
+  private static Executor newMoveExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "computer-move");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   private boolean isWin(Coordinate pos, Player whichPlayer) {
     return gameBoard.isWin(pos, whichPlayer);
   }
@@ -244,6 +651,12 @@ public class ConnectFourModel {
     }
   }
 
+  private void fireTakeBackEvent(Player whichPlayer, Coordinate pos) {
+    for (ConnectFourListener listener : listeners) {
+      listener.takeBackMove(whichPlayer, pos);
+    }
+  }
+
   private void fireWinEvent(Player whichPlayer) {
     for (ConnectFourListener listener : listeners) {
       listener.gameOverWithWinner(whichPlayer);
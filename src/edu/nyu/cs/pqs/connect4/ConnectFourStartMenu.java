@@ -4,12 +4,8 @@ import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 
-import javax.imageio.ImageIO;
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -35,11 +31,10 @@ public class ConnectFourStartMenu {
 
   private ConnectFourStartMenu() {
     JPanel bottomPanel = new JPanel();
-    BufferedImage mainImage;
     JLabel label = null;
     try {
-      mainImage = ImageIO.read(new File("image/main.jpg"));
-      label = new JLabel(new ImageIcon(mainImage));
+      ImageCache.preload();
+      label = new JLabel(ImageCache.getIcon(ImageCache.MAIN));
     } catch (IOException e) {
       int result = JOptionPane.showConfirmDialog(null,
           "ERROR: Image files not found", "ERROR", JOptionPane.CLOSED_OPTION);
@@ -86,11 +81,16 @@ public class ConnectFourStartMenu {
   private void singleModeButtonPressed() {
     mode = GameMode.SINGLEPLAYER;
     PlayerFactory humanFactory = new HumanPlayerFactory();
-    PlayerFactory computerFactory = new ComputerPlayerFactory();
-    this.player1 = humanFactory.createPlayer("Player1", PlayerType.PLAYER1);
+    PlayerFactory computerFactory = new ComputerPlayerFactory(
+        new ComputerPlayer.Builder(PlayerType.COMPUTER)
+            .difficulty(Difficulty.MEDIUM)
+            .openingBook(OpeningBook.loadDefault()).ponder(true));
+    GameBoard gameBoard = new GameBoard();
+    this.player1 = humanFactory.createPlayer("Player1", PlayerType.PLAYER1,
+        gameBoard);
     this.player2 = computerFactory.createPlayer("Computer",
-        PlayerType.COMPUTER);
-    model = new ConnectFourModel(mode, this.player1, this.player2);
+        PlayerType.COMPUTER, gameBoard);
+    model = new ConnectFourModel(mode, gameBoard, this.player1, this.player2);
     new ConnectFourView(model, player1);
     model.startGame();
   }
@@ -98,9 +98,12 @@ public class ConnectFourStartMenu {
   private void twoPlayerModeButtonPressed() {
     mode = GameMode.TWOPLAYER;
     PlayerFactory humanFactory = new HumanPlayerFactory();
-    this.player1 = humanFactory.createPlayer("Player1", PlayerType.PLAYER1);
-    this.player2 = humanFactory.createPlayer("Player2", PlayerType.PLAYER2);
-    model = new ConnectFourModel(mode, this.player1, this.player2);
+    GameBoard gameBoard = new GameBoard();
+    this.player1 = humanFactory.createPlayer("Player1", PlayerType.PLAYER1,
+        gameBoard);
+    this.player2 = humanFactory.createPlayer("Player2", PlayerType.PLAYER2,
+        gameBoard);
+    model = new ConnectFourModel(mode, gameBoard, this.player1, this.player2);
     new ConnectFourView(model, this.player1);
     new ConnectFourView(model, this.player2);
     model.startGame();
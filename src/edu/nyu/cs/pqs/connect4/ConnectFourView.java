@@ -6,13 +6,10 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 
-import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -36,9 +33,8 @@ public class ConnectFourView implements ConnectFourListener {
   private ConnectFourModel model;
   private JFrame frame;
   private JPanel mainPanel;
-  private JPanel boardPanel;
-  private JPanel[] columePanel;
-  private JLabel[][] viewBoard;
+  private BoardPanel boardPanel;
+  private int hoverColumn = -1;
   private JLabel playerIcon;
   private JLabel playerName;
   private JButton finalStatusButton;
@@ -64,20 +60,26 @@ public class ConnectFourView implements ConnectFourListener {
     this.gameState = GameState.STOP;
     this.frame = new JFrame();
     this.mainPanel = new JPanel(new GridBagLayout());
-    this.boardPanel = new JPanel(new GridBagLayout());
-    this.columePanel = new JPanel[GameBoard.COLNUM];
     this.constraint = new GridBagConstraints();
-    this.viewBoard = new JLabel[GameBoard.ROWNUM + 1][GameBoard.COLNUM];
   }
 
-  private MouseListener createMouseListener(int col) {
-    return new MouseListener() {
+  /**
+   * Create the listener of the board, which turns the mouse position into
+   * the column it is over and tells the model when the mouse clicks a column,
+   * enters one or leaves one.
+   */
+  private MouseAdapter createMouseListener() {
+    return new MouseAdapter() {
 
       @Override
       public void mouseClicked(MouseEvent e) {
         if (gameState != GameState.RUNNING) {
           return;
         }
+        int col = boardPanel.columnAt(e.getX());
+        if (col < 0) {
+          return;
+        }
         if (isMyTurn) {
           model.mouseClicked(player, col);
         }
@@ -87,101 +89,68 @@ public class ConnectFourView implements ConnectFourListener {
       }
 
       @Override
-      public void mousePressed(MouseEvent e) {
-        // Do nothing
+      public void mouseEntered(MouseEvent e) {
+        hover(boardPanel.columnAt(e.getX()));
       }
 
       @Override
-      public void mouseReleased(MouseEvent e) {
-        // Do nothing
-      }
-
-      @Override
-      public void mouseEntered(MouseEvent e) {
-        if (gameState != GameState.RUNNING) {
-          return;
-        }
-        if (isMyTurn) {
-          model.mouseEntered(player, col);
-        }
+      public void mouseMoved(MouseEvent e) {
+        hover(boardPanel.columnAt(e.getX()));
       }
 
       @Override
       public void mouseExited(MouseEvent e) {
-        if (gameState != GameState.RUNNING) {
-          return;
-        }
-        if (isMyTurn) {
-          model.mouseExited(player, col);
-        }
+        hover(-1);
       }
     };// end of Inner Anonymous class
   }
 
+  /**
+   * Move the hover column to <code>col</code>, leaving the previous one.
+   */
+  private void hover(int col) {
+    if (col == hoverColumn) {
+      return;
+    }
+    int previous = hoverColumn;
+    hoverColumn = col;
+    if (gameState != GameState.RUNNING || !isMyTurn) {
+      return;
+    }
+    if (previous >= 0) {
+      model.mouseExited(player, previous);
+    }
+    if (col >= 0) {
+      model.mouseEntered(player, col);
+    }
+  }
+
   private void initBoard() {
     // create board
-    for (int i = 0; i < GameBoard.ROWNUM + 1; i++) {
-      for (int j = 0; j < GameBoard.COLNUM; j++) {
-        if (i == 0) {
-          columePanel[j] = new JPanel(new GridBagLayout());
-          columePanel[j].setBackground(Color.WHITE);
-          columePanel[j].addMouseListener(createMouseListener(j));
-
-          try {
-            BufferedImage redPiece = ImageIO
-                .read(new File("image/redpiece.jpg"));
-            JLabel pieceLabel = new JLabel(new ImageIcon(redPiece));
-            viewBoard[i][j] = pieceLabel;
-            constraint.gridx = j;
-            constraint.gridy = i;
-            constraint.ipady = 25;
-            columePanel[j].add(viewBoard[i][j], constraint);
-          } catch (IOException e) {
-            int result = JOptionPane.showConfirmDialog(null,
-                "ERROR: Image files not found", "ERROR",
-                JOptionPane.CLOSED_OPTION);
-            if (result == JOptionPane.YES_OPTION) {
-              System.exit(0);
-            }
-          }
-        }
-        else {
-          try {
-            BufferedImage cellImage = ImageIO.read(new File("image/cell.png"));
-            JLabel imageLabel = new JLabel(new ImageIcon(cellImage));
-            viewBoard[i][j] = imageLabel;
-            constraint.gridx = j;
-            constraint.gridy = i;
-            constraint.ipady = 0;
-            columePanel[j].add(viewBoard[i][j], constraint);
-          } catch (IOException e) {
-            int result = JOptionPane.showConfirmDialog(null,
-                "ERROR: Image files not found", "ERROR",
-                JOptionPane.CLOSED_OPTION);
-            if (result == JOptionPane.YES_OPTION) {
-              System.exit(0);
-            }
-          }
-        }
+    try {
+      boardPanel = new BoardPanel();
+    } catch (IOException e) {
+      int result = JOptionPane.showConfirmDialog(null,
+          "ERROR: Image files not found", "ERROR", JOptionPane.CLOSED_OPTION);
+      if (result == JOptionPane.YES_OPTION) {
+        System.exit(0);
       }
     }
-
-    for (int j = 0; j < GameBoard.COLNUM; j++) {
-      constraint.gridx = j;
-      boardPanel.add(columePanel[j], constraint);
-    }
+    MouseAdapter mouseListener = createMouseListener();
+    boardPanel.addMouseListener(mouseListener);
+    boardPanel.addMouseMotionListener(mouseListener);
 
     // Add playerIcon component
-    BufferedImage playerImage;
+    ImageIcon playerImage;
     playerIcon = null;
     try {
       if (player.getType() == PlayerType.PLAYER1) {
-        playerImage = ImageIO.read(new File("image/redpiece.jpg"));
+        playerImage = ImageCache.getIcon(ImageCache.RED_PIECE);
       }
       else {
-        playerImage = ImageIO.read(new File("image/yellowpiece.jpg"));
+        playerImage = ImageCache.getIcon(ImageCache.YELLOW_PIECE);
       }
-      playerIcon = new JLabel(new ImageIcon(playerImage));
+      playerIcon = new JLabel(playerImage);
     } catch (IOException e) {
       int result = JOptionPane.showConfirmDialog(null,
           "ERROR: Image files not found", "ERROR", JOptionPane.CLOSED_OPTION);
@@ -226,14 +195,38 @@ public class ConnectFourView implements ConnectFourListener {
     constraint.gridx = 0;
     constraint.gridy = 1;
     constraint.gridwidth = 3;
+    constraint.anchor = GridBagConstraints.CENTER;
+    constraint.ipadx = 0;
+    constraint.ipady = 0;
     mainPanel.add(boardPanel, constraint);
 
+    // Add takeback buttons
+    JPanel historyPanel = new JPanel();
+    historyPanel.setBackground(Color.WHITE);
+    JButton undoButton = new JButton("Undo");
+    undoButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        model.undo();
+      }
+    });
+    JButton redoButton = new JButton("Redo");
+    redoButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        model.redo();
+      }
+    });
+    historyPanel.add(undoButton);
+    historyPanel.add(redoButton);
+    constraint.gridy = 2;
+    mainPanel.add(historyPanel, constraint);
+
     // Setup Frame
     mainPanel.setBackground(Color.WHITE);
-    boardPanel.setBackground(Color.WHITE);
     frame.getContentPane().add(mainPanel);
     frame.setTitle("Connect Four Game");
-    frame.setSize(550, 700);
+    frame.setSize(550, 750);
     if (player.getType() == PlayerType.PLAYER1) {
       frame.setLocation(0, 0);
     }
@@ -258,59 +251,46 @@ public class ConnectFourView implements ConnectFourListener {
 
   @Override
   public void mouseInEachColume(Player whichPlayer, int col) {
-    for (int j = 0; j < viewBoard[0].length; j++) {
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
       if (j != col) {
-        BufferedImage emptyImage;
-        try {
-          emptyImage = ImageIO.read(new File("image/emptypiece.png"));
-          viewBoard[0][j].setIcon(new ImageIcon(emptyImage));
-        } catch (IOException e) {
-          int result = JOptionPane.showConfirmDialog(null,
-              "ERROR: Image files not found", "ERROR",
-              JOptionPane.CLOSED_OPTION);
-          if (result == JOptionPane.YES_OPTION) {
-            System.exit(0);
-          }
-        }
+        boardPanel.setHeader(j, null);
       }
     }
   }
 
   @Override
   public void mouseOutEachColume(Player whichPlayer, int col) {
-    for (int j = 0; j < viewBoard[0].length; j++) {
-      BufferedImage emptyImage;
-      try {
-        if (whichPlayer.getType() == PlayerType.PLAYER1) {
-          emptyImage = ImageIO.read(new File("image/redpiece.jpg"));
-        }
-        else {
-          emptyImage = ImageIO.read(new File("image/yellowpiece.jpg"));
-        }
-        viewBoard[0][j].setIcon(new ImageIcon(emptyImage));
-      } catch (IOException e) {
-        int result = JOptionPane.showConfirmDialog(null,
-            "ERROR: Image files not found", "ERROR", JOptionPane.CLOSED_OPTION);
-        if (result == JOptionPane.YES_OPTION) {
-          System.exit(0);
-        }
+    ImageIcon pieceImage;
+    try {
+      if (whichPlayer.getType() == PlayerType.PLAYER1) {
+        pieceImage = ImageCache.getIcon(ImageCache.RED_PIECE);
+      }
+      else {
+        pieceImage = ImageCache.getIcon(ImageCache.YELLOW_PIECE);
+      }
+      for (int j = 0; j < GameBoard.COLNUM; j++) {
+        boardPanel.setHeader(j, pieceImage);
+      }
+    } catch (IOException e) {
+      int result = JOptionPane.showConfirmDialog(null,
+          "ERROR: Image files not found", "ERROR", JOptionPane.CLOSED_OPTION);
+      if (result == JOptionPane.YES_OPTION) {
+        System.exit(0);
       }
     }
   }
 
   @Override
   public void mouseClickEachColume(Player whichPlayer, Coordinate pos) {
-    int row = pos.getX() + 1;
+    int row = pos.getX();
     int col = pos.getY();
-    BufferedImage filledCellImage;
     try {
       if (whichPlayer.getType() == PlayerType.PLAYER1) {
-        filledCellImage = ImageIO.read(new File("image/redcell.png"));
-        viewBoard[row][col].setIcon(new ImageIcon(filledCellImage));
+        boardPanel.setCell(row, col, ImageCache.getIcon(ImageCache.RED_CELL));
       }
       else {
-        filledCellImage = ImageIO.read(new File("image/yellowcell.png"));
-        viewBoard[row][col].setIcon(new ImageIcon(filledCellImage));
+        boardPanel.setCell(row, col,
+            ImageCache.getIcon(ImageCache.YELLOW_CELL));
       }
       finalStatusButton.setText("");
     } catch (IOException e) {
@@ -322,6 +302,14 @@ public class ConnectFourView implements ConnectFourListener {
     }
   }
 
+  @Override
+  public void takeBackMove(Player whichPlayer, Coordinate pos) {
+    boardPanel.setCell(pos.getX(), pos.getY(), null);
+    gameState = GameState.RUNNING;
+    finalStatusButton.setBorderPainted(false);
+    finalStatusButton.setText("");
+  }
+
   @Override
   public void switchTurnTo(Player whichPlayer) {
     if (!whichPlayer.equals(this.player)) {
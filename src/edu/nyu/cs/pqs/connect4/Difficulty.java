@@ -0,0 +1,42 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * Difficulty represents how strong a ComputerPlayer plays. EASY keeps the
+ * original behavior of looking one step ahead for a win and otherwise dropping
+ * a random piece. MEDIUM searches the game tree six plies deep, which takes a
+ * few milliseconds. HARD deepens iteratively as far as it can, up to the end
+ * of the game, and stops after one second.
+ * 
+ * @author Ke Chen
+ * @see ComputerPlayer
+ *
+ */
+enum Difficulty {
+  EASY(0, 0), MEDIUM(6, 0), HARD(GameBoard.ROWNUM * GameBoard.COLNUM, 1000);
+
+  private final int depth;
+  private final long timeBudgetMillis;
+
+  private Difficulty(int depth, long timeBudgetMillis) {
+    this.depth = depth;
+    this.timeBudgetMillis = timeBudgetMillis;
+  }
+
+  /**
+   * Get the search depth of this difficulty.
+   * 
+   * @return The number of plies searched, 0 for the random player.
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Get the time budget of one move at this difficulty.
+   * 
+   * @return The budget in milliseconds, 0 for no limit.
+   */
+  public long getTimeBudgetMillis() {
+    return timeBudgetMillis;
+  }
+}
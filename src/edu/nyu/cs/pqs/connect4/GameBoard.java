@@ -1,44 +1,92 @@
 package edu.nyu.cs.pqs.connect4;
 
 import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
- * GameBoard class is a singleton class that stores the game board information.
+ * GameBoard class stores the board information of one game. Every game owns
+ * its own instance, which is shared by the ConnectFourModel and both players of
+ * that game, so one process can host any number of games side by side.
  * Since this is a two-player game, three values would be used to represent
  * occupied cells by each player and the empty one. To clarify, '1' represents
- * player1, '2' represents player2 and '0' means empty. These values are stored
- * in a two-dimensional array. And an one-dimensional array
- * <code>rowTracker[]</code> is maintained to store the available row number of
- * each column on the game board, which is initialized to the value of total row
- * number.
+ * player1, '2' represents player2 and '0' means empty. These are the values
+ * returned by <code>getBoard()</code>.
+ * <p>
+ * Internally the position is kept as a bitboard: one <code>long</code> per
+ * player plus a mask of all occupied cells. Each column takes
+ * <code>ROWNUM + 1</code> bits, from the bottom cell upwards, and the extra
+ * bit on top of each column is always empty so that shifting a whole line of
+ * pieces never wraps into the next column. With this layout dropping a piece,
+ * taking it back and checking for four in a row are all constant-time bit
+ * operations.
+ * <p>
+ * The board also keeps a Zobrist hash of the position, updated incrementally
+ * by every move and take-back, which the search engines use to key their
+ * transposition tables. Since a position and its left-right mirror image are
+ * worth the same, the hash of the mirror image is kept alongside, and the
+ * smaller of the two gives a canonical key shared by both forms. Caches keyed
+ * by it store one entry for the pair, with columns translated into the
+ * canonical form by <code>canonicalColumn()</code>.
+ * <p>
+ * Finally the board counts, for each of the 69 windows of four cells in a row
+ * (horizontal, vertical or diagonal), how many pieces each player has in it.
+ * A window holding pieces of only one player is still open for that player,
+ * and the more pieces it holds the bigger the threat. A table built once maps
+ * every cell to the windows going through it, at most 13, so a move or a
+ * take-back updates the counts and the threat score of each player in
+ * constant time, and <code>evaluate()</code> only has to subtract two numbers.
+ * <p>
+ * A GameBoard is not thread-safe. Each instance must be confined to one thread
+ * at a time, for example the event dispatch thread or the single executor task
+ * that runs its game; handing it over through an executor or a future gives
+ * the necessary happens-before ordering without any locking.
  * 
  * @author Ke Chen
  *
  */
 public class GameBoard {
-  private static GameBoard instance = null;
-  private int[][] board;
   public final static int ROWNUM = 6;
   public final static int COLNUM = 7;
-  private int[] rowTracker;
 
-  private GameBoard() {
-    board = new int[ROWNUM][COLNUM];
-    rowTracker = new int[COLNUM];
-    Arrays.fill(rowTracker, ROWNUM);
-  }
+  /** Number of bits used by one column, including the empty sentinel bit. */
+  static final int COLUMN_HEIGHT = ROWNUM + 1;
+  /** One bit set at the bottom cell of every column. */
+  static final long BOTTOM_MASK = bottomMask();
+  /** Every playable cell of the board. */
+  static final long BOARD_MASK = BOTTOM_MASK * ((1L << ROWNUM) - 1);
+
+  /** Random keys of the Zobrist hash, one per side and bit of the board. */
+  private static final long[][] ZOBRIST = zobristKeys();
+  /** The bit each bit of the board lands on in the mirror image. */
+  private static final int[] MIRROR_BIT = mirrorBits();
+  /** Mixed into the key of a position when side 1 is to move. */
+  private static final long SIDE_KEY = 0x9E3779B97F4A7C15L;
+
+  /** Number of windows of four cells in a row on the board. */
+  static final int WINDOWS = (COLNUM - 3) * ROWNUM + COLNUM * (ROWNUM - 3)
+      + 2 * (COLNUM - 3) * (ROWNUM - 3);
+  /** The windows going through each bit of the board. */
+  private static final int[][] CELL_WINDOWS = cellWindows();
+  /** Threat value of an open window holding 0 to 4 pieces. */
+  private static final int[] WINDOW_WEIGHT = { 0, 1, 4, 16, 64 };
+
+  private final long[] pieces;
+  private long mask;
+  private long hash;
+  private long mirrorHash;
+  private final byte[][] windowCounts;
+  private final int[] threats;
 
   /**
-   * Use this static method to generate the only instance of GameBoard class.
-   * The instance would be instantiate only if it's equal to null.
-   * 
-   * @return The singleton instance of GameBoard class.
+   * Create an empty game board.
    */
-  public static GameBoard getInstance() {
-    if (instance == null) {
-      instance = new GameBoard();
-    }
-    return instance;
+  public GameBoard() {
+    pieces = new long[2];
+    mask = 0L;
+    hash = 0L;
+    mirrorHash = 0L;
+    windowCounts = new byte[2][WINDOWS];
+    threats = new int[2];
   }
 
   /**
@@ -50,7 +98,13 @@ public class GameBoard {
     int[][] copyBoard = new int[ROWNUM][COLNUM];
     for (int i = 0; i < ROWNUM; i++) {
       for (int j = 0; j < COLNUM; j++) {
-        copyBoard[i][j] = board[i][j];
+        long cell = cellMask(i, j);
+        if ((pieces[0] & cell) != 0) {
+          copyBoard[i][j] = 1;
+        }
+        else if ((pieces[1] & cell) != 0) {
+          copyBoard[i][j] = 2;
+        }
       }
     }
     return copyBoard;
@@ -63,7 +117,11 @@ public class GameBoard {
    * @return A one-dimensional array.
    */
   public int[] getRowTracker() {
-    return Arrays.copyOf(rowTracker, rowTracker.length);
+    int[] rowTracker = new int[COLNUM];
+    for (int j = 0; j < COLNUM; j++) {
+      rowTracker[j] = ROWNUM - Long.bitCount(mask & columnMask(j));
+    }
+    return rowTracker;
   }
 
   /**
@@ -81,13 +139,43 @@ public class GameBoard {
     if (j < 0 || j >= COLNUM) {
       return -1;
     }
-    if (rowTracker[j] == 0) {
+    if (!canPlay(j)) {
       return -1;
     }
-    rowTracker[j]--;
-    int i = rowTracker[j];
-    board[i][j] = player.getType() == PlayerType.PLAYER1 ? 1 : 2;
-    return i;
+    return play(j, side(player));
+  }
+
+  /**
+   * Drop a piece of the given <code>side</code> in column <code>j</code>
+   * without any bounds checking. This is the fast path used by the search
+   * engines, which only call it for columns where <code>canPlay(j)</code>
+   * holds.
+   * 
+   * @param j
+   *          represents the column in which the piece is placed.
+   * @param side
+   *          0 for PLAYER1, 1 for the other player.
+   * @return The row number of the placed piece.
+   */
+  int play(int j, int side) {
+    long move = (mask + bottomMask(j)) & columnMask(j);
+    mask |= move;
+    pieces[side] |= move;
+    int bit = Long.numberOfTrailingZeros(move);
+    hash ^= ZOBRIST[side][bit];
+    mirrorHash ^= ZOBRIST[side][MIRROR_BIT[bit]];
+    byte[] own = windowCounts[side];
+    byte[] other = windowCounts[1 - side];
+    for (int w : CELL_WINDOWS[bit]) {
+      int count = own[w]++;
+      if (other[w] == 0) {
+        threats[side] += WINDOW_WEIGHT[count + 1] - WINDOW_WEIGHT[count];
+      }
+      else if (count == 0) {
+        threats[1 - side] -= WINDOW_WEIGHT[other[w]];
+      }
+    }
+    return ROWNUM - 1 - (bit - j * COLUMN_HEIGHT);
   }
 
   /**
@@ -101,32 +189,90 @@ public class GameBoard {
     if (j < 0 || j >= COLNUM) {
       return;
     }
-    if (rowTracker[j] == GameBoard.ROWNUM) {
+    if ((mask & columnMask(j)) == 0) {
       return;
     }
-    int i = rowTracker[j];
-    board[i][j] = 0;
-    rowTracker[j]++;
+    undo(j);
   }
 
   /**
-   * Reset the board array to 0.
+   * Take back the top piece of column <code>j</code> without any bounds
+   * checking. The caller must make sure the column is not empty.
+   * 
+   * @param j
+   *          represents the column to unset.
    */
-  public void resetBoard() {
-    for (int i = 0; i < ROWNUM; i++) {
-      for (int j = 0; j < COLNUM; j++) {
-        board[i][j] = 0;
+  void undo(int j) {
+    long top = Long.highestOneBit(mask & columnMask(j));
+    int side = (pieces[1] & top) != 0 ? 1 : 0;
+    int bit = Long.numberOfTrailingZeros(top);
+    hash ^= ZOBRIST[side][bit];
+    mirrorHash ^= ZOBRIST[side][MIRROR_BIT[bit]];
+    mask &= ~top;
+    pieces[0] &= ~top;
+    pieces[1] &= ~top;
+    byte[] own = windowCounts[side];
+    byte[] other = windowCounts[1 - side];
+    for (int w : CELL_WINDOWS[bit]) {
+      int count = --own[w];
+      if (other[w] == 0) {
+        threats[side] -= WINDOW_WEIGHT[count + 1] - WINDOW_WEIGHT[count];
+      }
+      else if (count == 0) {
+        threats[1 - side] += WINDOW_WEIGHT[other[w]];
       }
     }
+  }
 
-    for (int j = 0; j < COLNUM; j++) {
-      rowTracker[j] = ROWNUM;
-    }
+  /**
+   * Reset the board array to 0.
+   */
+  public void resetBoard() {
+    pieces[0] = 0L;
+    pieces[1] = 0L;
+    mask = 0L;
+    hash = 0L;
+    mirrorHash = 0L;
+    Arrays.fill(windowCounts[0], (byte) 0);
+    Arrays.fill(windowCounts[1], (byte) 0);
+    threats[0] = 0;
+    threats[1] = 0;
+  }
+
+  /**
+   * Score the position for <code>player</code> from the open windows of both
+   * players: the threats of the player minus the threats of the opponent. It
+   * costs the same whatever the size of the board, since the counts behind it
+   * are kept up to date by every move. A won position is not scored any
+   * differently; use <code>isWin()</code> for that.
+   * 
+   * @param player
+   *          The player to score the position for.
+   * @return A positive score if the position favors <code>player</code>, a
+   *         negative one if it favors the opponent. Its absolute value is at
+   *         most <code>64 * WINDOWS</code>.
+   */
+  public int evaluate(Player player) {
+    return evaluate(side(player));
+  }
+
+  /**
+   * Score the position for <code>side</code>, the fast path of
+   * <code>evaluate(Player)</code> used by the search engines.
+   * 
+   * @param side
+   *          0 for PLAYER1, 1 for the other player.
+   * @return The threats of <code>side</code> minus those of the opponent.
+   */
+  int evaluate(int side) {
+    return threats[side] - threats[1 - side];
   }
 
   /**
    * Check if place the piece by <code>player</code> in the cell
-   * <code>pos</code> would result a win.
+   * <code>pos</code> would result a win. The cell itself is counted as the
+   * player's piece whether or not it has already been filled, and only lines
+   * going through <code>pos</code> are considered.
    * 
    * @param pos
    *          A Coordinate reference to present the position in the game board.
@@ -135,104 +281,311 @@ public class GameBoard {
    * @return If it results a win, return true. Otherwise return false.
    */
   public boolean isWin(Coordinate pos, Player player) {
-    int val = player.getType() == PlayerType.PLAYER1 ? 1 : 2;
-    boolean result = false;
-    result |= checkHorizontal(pos, val);
-    result |= checkVertical(pos, val);
-    result |= checkDiagnose(pos, val);
-    return result;
-  }
-
-  private boolean checkHorizontal(Coordinate pos, int val) {
-    int l = pos.getY();
-    int r = pos.getY();
     int x = pos.getX();
-    while (l - 1 >= 0 && board[x][l - 1] == val) {
-      l--;
-    }
-    while (r + 1 < COLNUM && board[x][r + 1] == val) {
-      r++;
+    int y = pos.getY();
+    if (x < 0 || x >= ROWNUM || y < 0 || y >= COLNUM) {
+      return false;
     }
+    long cell = cellMask(x, y);
+    long bits = pieces[side(player)] | cell;
+    return (covered(bits, 1) & cell) != 0
+        || (covered(bits, COLUMN_HEIGHT) & cell) != 0
+        || (covered(bits, COLUMN_HEIGHT - 1) & cell) != 0
+        || (covered(bits, COLUMN_HEIGHT + 1) & cell) != 0;
+  }
 
-    if (r - l + 1 >= 4) {
-      return true;
-    }
-    return false;
+  /**
+   * Check if the current game board makes a draw to both player.
+   * 
+   * @return If it's a draw, return true. Otherwise return false.
+   */
+  public boolean isTie() {
+    return mask == BOARD_MASK;
   }
 
-  private boolean checkVertical(Coordinate pos, int val) {
-    int l = pos.getX();
-    int r = pos.getX();
-    int y = pos.getY();
-    while (l - 1 >= 0 && board[l - 1][y] == val) {
-      l--;
-    }
-    while (r + 1 < ROWNUM && board[r + 1][y] == val) {
-      r++;
-    }
+  /**
+   * Get the row of the top piece of column <code>j</code>.
+   * 
+   * @param j
+   *          A column in the range [0, COLNUM).
+   * @return The row number, or ROWNUM if the column is empty.
+   */
+  int topRow(int j) {
+    return ROWNUM - Long.bitCount(mask & columnMask(j));
+  }
 
-    if (r - l + 1 >= 4) {
-      return true;
-    }
-    return false;
+  /**
+   * Check if column <code>j</code> still has room for a piece.
+   * 
+   * @param j
+   *          A column in the range [0, COLNUM).
+   * @return true if the column is not full.
+   */
+  boolean canPlay(int j) {
+    return (mask & topMask(j)) == 0;
   }
 
-  private boolean checkDiagnose(Coordinate pos, int val) {
-    int posX = pos.getX();
-    int posY = pos.getY();
+  /**
+   * Check if dropping a piece of <code>side</code> in column <code>j</code>
+   * would make four in a row, without changing the board.
+   * 
+   * @param j
+   *          A column that is not full.
+   * @param side
+   *          0 for PLAYER1, 1 for the other player.
+   * @return true if the move wins the game.
+   */
+  boolean isWinningMove(int j, int side) {
+    long move = (mask + bottomMask(j)) & columnMask(j);
+    return completesLine(pieces[side] | move, move);
+  }
 
-    int x = posX - 1;
-    int y = posY + 1;
-    int count = 1;
-    while (x >= 0 && y < ROWNUM && board[x][y] == val) {
-      count++;
-      x--;
-      y++;
-    }
-    x = posX + 1;
-    y = posY - 1;
-    while (x < ROWNUM && y >= 0 && board[x][y] == val) {
-      count++;
-      x++;
-      y--;
-    }
-    if (count >= 4) {
-      return true;
-    }
+  /**
+   * Get every cell a piece can be dropped on: one bit per column that is not
+   * full, at the lowest empty cell of that column.
+   * 
+   * @return The legal-move mask, 0 if the board is full.
+   */
+  long legalMoves() {
+    return legalMoves(mask);
+  }
 
-    count = 1;
-    x = posX - 1;
-    y = posY - 1;
-    while (x >= 0 && y >= 0 && board[x][y] == val) {
-      count++;
-      x--;
-      y--;
-    }
-    x = posX + 1;
-    y = posY + 1;
-    while (x < ROWNUM && y < COLNUM && board[x][y] == val) {
-      count++;
-      x++;
-      y++;
-    }
-    if (count >= 4) {
-      return true;
-    }
+  /**
+   * Get the pieces of one side as a bitboard.
+   * 
+   * @param side
+   *          0 for PLAYER1, 1 for the other player.
+   * @return One bit per piece of <code>side</code>.
+   */
+  long getPieces(int side) {
+    return pieces[side];
+  }
 
-    return false;
+  /**
+   * Get every occupied cell as a bitboard.
+   * 
+   * @return One bit per piece on the board.
+   */
+  long getMask() {
+    return mask;
   }
 
   /**
-   * Check if the current game board makes a draw to both player.
+   * Get the legal-move mask of a position given by its occupied cells. This
+   * and <code>completesLine()</code> let a caller play on plain
+   * <code>long</code> copies of the bitboards, with no hash or window counts
+   * to keep up to date.
    * 
-   * @return If it's a draw, return true. Otherwise return false.
+   * @param mask
+   *          Every occupied cell.
+   * @return One bit per column that is not full, at its lowest empty cell.
    */
-  public boolean isTie() {
-    for (int j = 0; j < COLNUM; j++) {
-      if (rowTracker[j] != 0) {
-        return false;
+  static long legalMoves(long mask) {
+    return (mask + BOTTOM_MASK) & BOARD_MASK;
+  }
+
+  /**
+   * Check if the piece <code>move</code> is part of four in a row in
+   * <code>bits</code>.
+   * 
+   * @param bits
+   *          The pieces of one side, including <code>move</code>.
+   * @param move
+   *          A single bit of <code>bits</code>.
+   * @return true if <code>move</code> completes a line.
+   */
+  static boolean completesLine(long bits, long move) {
+    return ((covered(bits, 1) | covered(bits, COLUMN_HEIGHT)
+        | covered(bits, COLUMN_HEIGHT - 1) | covered(bits, COLUMN_HEIGHT + 1))
+        & move) != 0;
+  }
+
+  /**
+   * Get the number of pieces on the board.
+   * 
+   * @return The number of moves played so far.
+   */
+  int getMoveCount() {
+    return Long.bitCount(mask);
+  }
+
+  /**
+   * Make this board a copy of <code>other</code>. The search engines keep one
+   * scratch board each and refresh it with this method before every search.
+   * 
+   * @param other
+   *          The GameBoard to copy.
+   */
+  void copyFrom(GameBoard other) {
+    pieces[0] = other.pieces[0];
+    pieces[1] = other.pieces[1];
+    mask = other.mask;
+    hash = other.hash;
+    mirrorHash = other.mirrorHash;
+    System.arraycopy(other.windowCounts[0], 0, windowCounts[0], 0, WINDOWS);
+    System.arraycopy(other.windowCounts[1], 0, windowCounts[1], 0, WINDOWS);
+    threats[0] = other.threats[0];
+    threats[1] = other.threats[1];
+  }
+
+  /**
+   * Get the Zobrist hash of the current position. Two boards holding the same
+   * pieces have the same hash, whatever order the pieces were played in.
+   * 
+   * @return A 64-bit hash of the position.
+   */
+  long getHash() {
+    return hash;
+  }
+
+  /**
+   * Get the key of the current position with <code>side</code> to move: the
+   * hash, with a constant mixed in when side 1 is to move. This is the key of
+   * transposition tables and opening books.
+   * 
+   * @param side
+   *          The side to move, 0 for PLAYER1 and 1 for the other player.
+   * @return A 64-bit key of the position and the side to move.
+   */
+  long getKey(int side) {
+    return side == 0 ? hash : hash ^ SIDE_KEY;
+  }
+
+  /**
+   * Get the key of the current position or of its mirror image, whichever is
+   * smaller, with <code>side</code> to move. A position and its mirror image
+   * have the same canonical key, so a cache keyed by it holds one entry for
+   * both. Columns stored with such an entry must go through
+   * <code>canonicalColumn()</code>.
+   * 
+   * @param side
+   *          The side to move, 0 for PLAYER1 and 1 for the other player.
+   * @return A 64-bit key of the position, its mirror image and the side to
+   *         move.
+   */
+  long getCanonicalKey(int side) {
+    long key = mirrorHash < hash ? mirrorHash : hash;
+    return side == 0 ? key : key ^ SIDE_KEY;
+  }
+
+  /**
+   * Translate a column of this position into the form its canonical key
+   * stands for, or back: the mirrored column if the canonical form is the
+   * mirror image, the column itself otherwise. Mirroring twice gives the
+   * column back, so the same call works both ways.
+   * 
+   * @param j
+   *          A column, or -1 for none.
+   * @return The translated column, or -1 if <code>j</code> is -1.
+   */
+  int canonicalColumn(int j) {
+    return j < 0 || mirrorHash >= hash ? j : mirrorColumn(j);
+  }
+
+  /**
+   * Get the column that <code>j</code> becomes in the mirror image.
+   * 
+   * @param j
+   *          A column in the range [0, COLNUM).
+   * @return The mirrored column.
+   */
+  static int mirrorColumn(int j) {
+    return COLNUM - 1 - j;
+  }
+
+  /**
+   * Map a player to the index of its bitboard: 0 for PLAYER1, 1 for anyone
+   * else, which matches the '1' and '2' values of <code>getBoard()</code>.
+   */
+  static int side(Player player) {
+    return player.getType() == PlayerType.PLAYER1 ? 0 : 1;
+  }
+
+  /**
+   * Return every cell of <code>bits</code> that belongs to a line of at least
+   * four pieces in the direction given by <code>shift</code>. Vertical lines
+   * use 1, horizontal ones <code>COLUMN_HEIGHT</code> and the two diagonals
+   * <code>COLUMN_HEIGHT - 1</code> and <code>COLUMN_HEIGHT + 1</code>.
+   */
+  private static long covered(long bits, int shift) {
+    long pairs = bits & (bits >>> shift);
+    long starts = pairs & (pairs >>> (2 * shift));
+    long cells = starts | (starts << shift);
+    return cells | (cells << (2 * shift));
+  }
+
+  static long cellMask(int i, int j) {
+    return 1L << (j * COLUMN_HEIGHT + ROWNUM - 1 - i);
+  }
+
+  static long bottomMask(int j) {
+    return 1L << (j * COLUMN_HEIGHT);
+  }
+
+  static long topMask(int j) {
+    return 1L << (j * COLUMN_HEIGHT + ROWNUM - 1);
+  }
+
+  static long columnMask(int j) {
+    return ((1L << ROWNUM) - 1) << (j * COLUMN_HEIGHT);
+  }
+
+  private static long[][] zobristKeys() {
+    SplittableRandom random = new SplittableRandom(0x436f6e6e65637434L);
+    long[][] keys = new long[2][COLNUM * COLUMN_HEIGHT];
+    for (int side = 0; side < 2; side++) {
+      for (int bit = 0; bit < keys[side].length; bit++) {
+        keys[side][bit] = random.nextLong();
       }
     }
-    return true;
+    return keys;
+  }
+
+  /**
+   * Number every window of four cells and list, for each bit of the board, the
+   * windows that contain it.
+   */
+  private static int[][] cellWindows() {
+    int[][] directions = { { 1, 0 }, { 0, 1 }, { 1, 1 }, { 1, -1 } };
+    int[] counts = new int[COLNUM * COLUMN_HEIGHT];
+    int[][] windows = new int[COLNUM * COLUMN_HEIGHT][16];
+    int window = 0;
+    for (int[] d : directions) {
+      for (int j = 0; j < COLNUM; j++) {
+        for (int h = 0; h < ROWNUM; h++) {
+          int lastJ = j + 3 * d[0];
+          int lastH = h + 3 * d[1];
+          if (lastJ >= COLNUM || lastH < 0 || lastH >= ROWNUM) {
+            continue;
+          }
+          for (int k = 0; k < 4; k++) {
+            int bit = (j + k * d[0]) * COLUMN_HEIGHT + h + k * d[1];
+            windows[bit][counts[bit]++] = window;
+          }
+          window++;
+        }
+      }
+    }
+    for (int bit = 0; bit < windows.length; bit++) {
+      windows[bit] = Arrays.copyOf(windows[bit], counts[bit]);
+    }
+    return windows;
+  }
+
+  private static int[] mirrorBits() {
+    int[] bits = new int[COLNUM * COLUMN_HEIGHT];
+    for (int bit = 0; bit < bits.length; bit++) {
+      int j = bit / COLUMN_HEIGHT;
+      bits[bit] = mirrorColumn(j) * COLUMN_HEIGHT + bit % COLUMN_HEIGHT;
+    }
+    return bits;
+  }
+
+  private static long bottomMask() {
+    long result = 0L;
+    for (int j = 0; j < COLNUM; j++) {
+      result |= bottomMask(j);
+    }
+    return result;
   }
 }
@@ -0,0 +1,205 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.util.Arrays;
+
+/**
+ * GameRecord class is one archived game: the two players, the result and the
+ * column of every move in order. Players are stored as small numbers, whose
+ * meaning is up to the archive, such as the index of an entrant in a
+ * tournament, so a record stays a few bytes long.
+ * <p>
+ * A record is immutable. Archives of many games are written with a
+ * GameRecordWriter and read back with a GameRecordReader, which gives the
+ * fields of each game without creating a GameRecord unless asked to.
+ * 
+ * @author Ke Chen
+ * @see GameRecordWriter
+ * @see GameRecordReader
+ *
+ */
+public final class GameRecord {
+
+  /**
+   * Result enum is the outcome of a recorded game.
+   */
+  public enum Result {
+    /** The game was stopped before it ended. */
+    UNFINISHED,
+    /** The player who moved first connected four. */
+    PLAYER1_WIN,
+    /** The player who moved second connected four. */
+    PLAYER2_WIN,
+    /** The board was filled without four in a row. */
+    DRAW;
+
+    private static final Result[] VALUES = values();
+
+    /**
+     * Get the result of a code written by <code>ordinal()</code>.
+     * 
+     * @param code
+     *          The ordinal of the result.
+     * @return The Result.
+     */
+    static Result of(int code) {
+      return VALUES[code];
+    }
+  }
+
+  /** The most moves a game can have. */
+  public static final int MAX_PLIES = GameBoard.ROWNUM * GameBoard.COLNUM;
+
+  private final int player1;
+  private final int player2;
+  private final Result result;
+  private final byte[] moves;
+
+  /**
+   * Create a record.
+   * 
+   * @param player1
+   *          The number of the player who moved first, not negative.
+   * @param player2
+   *          The number of the player who moved second, not negative.
+   * @param result
+   *          The outcome of the game.
+   * @param moves
+   *          The column of every move, in order; the array is copied.
+   * @throws IllegalArgumentException
+   *           If a player number is negative, there are more than
+   *           <code>MAX_PLIES</code> moves or a move is not a column.
+   */
+  public GameRecord(int player1, int player2, Result result, byte[] moves) {
+    this(player1, player2, result, moves, moves.length);
+  }
+
+  /**
+   * Create a record of the first <code>plies</code> moves of
+   * <code>moves</code>.
+   * 
+   * @param player1
+   *          The number of the player who moved first, not negative.
+   * @param player2
+   *          The number of the player who moved second, not negative.
+   * @param result
+   *          The outcome of the game.
+   * @param moves
+   *          The column of every move, in order; the array is copied.
+   * @param plies
+   *          The number of moves.
+   * @throws IllegalArgumentException
+   *           If a player number is negative, there are more than
+   *           <code>MAX_PLIES</code> moves or a move is not a column.
+   */
+  public GameRecord(int player1, int player2, Result result, byte[] moves,
+      int plies) {
+    check(player1, player2, moves, plies);
+    this.player1 = player1;
+    this.player2 = player2;
+    this.result = result;
+    this.moves = Arrays.copyOf(moves, plies);
+  }
+
+  /**
+   * Check the fields of a record before it is created or written.
+   */
+  static void check(int player1, int player2, byte[] moves, int plies) {
+    if (player1 < 0 || player2 < 0) {
+      throw new IllegalArgumentException("player numbers must not be negative");
+    }
+    if (plies < 0 || plies > MAX_PLIES || plies > moves.length) {
+      throw new IllegalArgumentException("bad number of moves: " + plies);
+    }
+    for (int i = 0; i < plies; i++) {
+      if (moves[i] < 0 || moves[i] >= GameBoard.COLNUM) {
+        throw new IllegalArgumentException("bad column: " + moves[i]);
+      }
+    }
+  }
+
+  /**
+   * Get the number of the player who moved first.
+   * 
+   * @return The player number.
+   */
+  public int getPlayer1() {
+    return player1;
+  }
+
+  /**
+   * Get the number of the player who moved second.
+   * 
+   * @return The player number.
+   */
+  public int getPlayer2() {
+    return player2;
+  }
+
+  /**
+   * Get the outcome of the game.
+   * 
+   * @return The Result.
+   */
+  public Result getResult() {
+    return result;
+  }
+
+  /**
+   * Get the number of moves of the game.
+   * 
+   * @return The number of plies.
+   */
+  public int getPlies() {
+    return moves.length;
+  }
+
+  /**
+   * Get the column of a move.
+   * 
+   * @param ply
+   *          The index of the move, 0 for the first.
+   * @return The column index.
+   */
+  public int getMove(int ply) {
+    return moves[ply];
+  }
+
+  /**
+   * Get the column of every move.
+   * 
+   * @return A new array of the columns, in order.
+   */
+  public byte[] getMoves() {
+    return moves.clone();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof GameRecord)) {
+      return false;
+    }
+    GameRecord other = (GameRecord) obj;
+    return player1 == other.player1 && player2 == other.player2
+        && result == other.result && Arrays.equals(moves, other.moves);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 31 * player1 + player2;
+    hash = 31 * hash + result.hashCode();
+    return 31 * hash + Arrays.hashCode(moves);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder columns = new StringBuilder(moves.length);
+    for (byte move : moves) {
+      columns.append(move);
+    }
+    return "GameRecord [" + player1 + " vs " + player2 + ", " + result + ", "
+        + columns + "]";
+  }
+}
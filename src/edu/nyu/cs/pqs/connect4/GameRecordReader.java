@@ -0,0 +1,263 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * GameRecordReader class reads the games of an archive written by a
+ * GameRecordWriter, from the first to the last. It is a cursor: every call of
+ * <code>next()</code> decodes the following game into the reader itself, and
+ * the getters give its fields, so scanning an archive of any size takes one
+ * buffer and creates no object per game. <code>toRecord()</code> copies the
+ * current game out when it is needed later.
+ * <p>
+ * The file is read through its channel into a direct buffer a large block at
+ * a time, so a scan runs at the speed of the disk.
+ * 
+ * @author Ke Chen
+ * @see GameRecordWriter
+ * @see GameRecord
+ *
+ */
+public class GameRecordReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final RandomAccessFile raf;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] moves = new byte[GameRecord.MAX_PLIES];
+  private boolean endOfFile = false;
+  private int player1;
+  private int player2;
+  private GameRecord.Result result;
+  private int plies;
+
+  /**
+   * Open <code>file</code> for reading, before its first game.
+   * 
+   * @param file
+   *          The archive file.
+   * @throws IOException
+   *           If the file cannot be opened or is not a game archive.
+   */
+  public GameRecordReader(File file) throws IOException {
+    this.raf = new RandomAccessFile(file, "r");
+    this.channel = raf.getChannel();
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    buffer.flip();
+    try {
+      if (!fill(GameRecordWriter.HEADER_SIZE)) {
+        throw new IOException("not a game archive");
+      }
+      checkHeader(buffer);
+    } catch (IOException e) {
+      raf.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Check the archive header at the position of <code>header</code> and move
+   * past it.
+   */
+  static void checkHeader(ByteBuffer header) throws IOException {
+    if (header.remaining() < GameRecordWriter.HEADER_SIZE
+        || header.getInt() != GameRecordWriter.MAGIC) {
+      throw new IOException("not a game archive");
+    }
+    int version = header.getInt();
+    if (version != GameRecordWriter.VERSION) {
+      throw new IOException("unsupported archive version " + version);
+    }
+  }
+
+  /**
+   * Move to the next game.
+   * 
+   * @return False if there are no more games.
+   * @throws IOException
+   *           If the file cannot be read or ends in the middle of a game.
+   */
+  public boolean next() throws IOException {
+    if (!fill(1)) {
+      return false;
+    }
+    fill(GameRecordWriter.MAX_RECORD_SIZE);
+    int counts = buffer.get() & 0xFF;
+    plies = counts >>> 2;
+    result = GameRecord.Result.of(counts & 3);
+    if (plies > GameRecord.MAX_PLIES) {
+      throw new IOException("corrupt game archive");
+    }
+    player1 = getVarint();
+    player2 = getVarint();
+    int bytes = (plies * 3 + 7) / 8;
+    if (buffer.remaining() < bytes) {
+      throw new IOException("truncated game archive");
+    }
+    int bits = 0;
+    int pending = 0;
+    for (int i = 0; i < plies; i++) {
+      if (pending < 3) {
+        bits |= (buffer.get() & 0xFF) << pending;
+        pending += 8;
+      }
+      moves[i] = (byte) (bits & 7);
+      bits >>>= 3;
+      pending -= 3;
+      if (moves[i] >= GameBoard.COLNUM) {
+        throw new IOException("corrupt game archive");
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the number of the player who moved first in the current game.
+   * 
+   * @return The player number.
+   */
+  public int getPlayer1() {
+    return player1;
+  }
+
+  /**
+   * Get the number of the player who moved second in the current game.
+   * 
+   * @return The player number.
+   */
+  public int getPlayer2() {
+    return player2;
+  }
+
+  /**
+   * Get the outcome of the current game.
+   * 
+   * @return The Result.
+   */
+  public GameRecord.Result getResult() {
+    return result;
+  }
+
+  /**
+   * Get the number of moves of the current game.
+   * 
+   * @return The number of plies.
+   */
+  public int getPlies() {
+    return plies;
+  }
+
+  /**
+   * Get the column of a move of the current game.
+   * 
+   * @param ply
+   *          The index of the move, less than <code>getPlies()</code>.
+   * @return The column index.
+   */
+  public int getMove(int ply) {
+    if (ply >= plies) {
+      throw new IndexOutOfBoundsException("no move " + ply);
+    }
+    return moves[ply];
+  }
+
+  /**
+   * Copy the current game out of the reader.
+   * 
+   * @return A new GameRecord.
+   */
+  public GameRecord toRecord() {
+    return new GameRecord(player1, player2, result, moves, plies);
+  }
+
+  @Override
+  public void close() throws IOException {
+    raf.close();
+  }
+
+  /**
+   * Read every game of <code>file</code> and print the number of games, the
+   * share of each result, the mean game length and the scan speed.
+   * 
+   * @param file
+   *          The archive file.
+   * @param out
+   *          The stream to print to.
+   * @return The number of games.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  public static long scan(File file, PrintStream out) throws IOException {
+    long start = System.nanoTime();
+    long[] results = new long[GameRecord.Result.values().length];
+    long games = 0;
+    long plies = 0;
+    GameRecordReader reader = new GameRecordReader(file);
+    try {
+      while (reader.next()) {
+        games++;
+        plies += reader.getPlies();
+        results[reader.getResult().ordinal()]++;
+      }
+    } finally {
+      reader.close();
+    }
+    long elapsed = Math.max(1, System.nanoTime() - start);
+    out.printf("%d games, %.1f MB in %.3f s (%.0f games/s, %.1f MB/s)%n",
+        games, file.length() / 1e6, elapsed / 1e9, games * 1e9 / elapsed,
+        file.length() * 1e3 / elapsed);
+    for (GameRecord.Result result : GameRecord.Result.values()) {
+      out.printf("%-12s %6.2f%%%n", result,
+          games == 0 ? 0 : 100.0 * results[result.ordinal()] / games);
+    }
+    out.printf("mean length  %.2f plies%n",
+        games == 0 ? 0 : (double) plies / games);
+    return games;
+  }
+
+  private int getVarint() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      if (!buffer.hasRemaining()) {
+        throw new IOException("truncated game archive");
+      }
+      int b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("corrupt game archive");
+  }
+
+  /**
+   * Read from the file until at least <code>bytes</code> bytes are buffered
+   * or the file ends.
+   * 
+   * @return False if fewer bytes were left in the file.
+   */
+  private boolean fill(int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return true;
+    }
+    if (endOfFile) {
+      return false;
+    }
+    buffer.compact();
+    while (buffer.position() < bytes) {
+      if (channel.read(buffer) < 0) {
+        endOfFile = true;
+        break;
+      }
+    }
+    buffer.flip();
+    return buffer.remaining() >= bytes;
+  }
+}
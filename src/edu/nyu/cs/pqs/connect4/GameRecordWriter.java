@@ -0,0 +1,197 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * GameRecordWriter class appends games to a game archive, a file meant to
+ * hold every game the project plays, up to hundreds of millions of them.
+ * <p>
+ * An archive is an 8-byte header (magic number and version) followed by the
+ * games, one after the other with no index. A game takes:
+ * <ul>
+ * <li>one byte holding the number of moves in its upper 6 bits and the
+ * ordinal of its result in its lower 2 bits,</li>
+ * <li>the numbers of the two players, each as a variable-length integer of 7
+ * bits per byte, so numbers below 128 take one byte,</li>
+ * <li>the columns of the moves, 3 bits each, packed from the lowest bit of
+ * each byte up, the last byte padded with zeros.</li>
+ * </ul>
+ * A game of 25 moves thus takes 13 bytes, so three hundred million games fit
+ * in about 4 GB. An archive is read by scanning it from the start.
+ * <p>
+ * Games are encoded into a direct buffer and written to the file channel
+ * whenever the buffer fills, so writing a game costs no allocation and a
+ * system call only every few thousand games. <code>write()</code> is
+ * synchronized, so the threads of a simulation may share one writer.
+ * 
+ * @author Ke Chen
+ * @see GameRecord
+ * @see GameRecordReader
+ *
+ */
+public class GameRecordWriter implements Closeable {
+
+  static final int MAGIC = 0x43344752;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 8;
+  /** The longest a game can be: the counts byte, two varints and 42 moves. */
+  static final int MAX_RECORD_SIZE = 1 + 5 + 5
+      + (GameRecord.MAX_PLIES * 3 + 7) / 8;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final RandomAccessFile raf;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private long count = 0;
+
+  /**
+   * Open <code>file</code> for appending games, creating it with an empty
+   * archive if it does not exist or is empty.
+   * 
+   * @param file
+   *          The archive file.
+   * @throws IOException
+   *           If the file cannot be opened or is not a game archive.
+   */
+  public GameRecordWriter(File file) throws IOException {
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    this.raf = new RandomAccessFile(file, "rw");
+    this.channel = raf.getChannel();
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    try {
+      long size = channel.size();
+      if (size == 0) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+      }
+      else {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+          // read the whole header
+        }
+        header.flip();
+        GameRecordReader.checkHeader(header);
+        channel.position(size);
+      }
+    } catch (IOException e) {
+      raf.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Append a game.
+   * 
+   * @param record
+   *          The GameRecord to append.
+   * @throws IOException
+   *           If the file cannot be written.
+   */
+  public void write(GameRecord record) throws IOException {
+    write(record.getPlayer1(), record.getPlayer2(), record.getResult(),
+        record.getMoves(), record.getPlies());
+  }
+
+  /**
+   * Append a game without creating a GameRecord for it.
+   * 
+   * @param player1
+   *          The number of the player who moved first, not negative.
+   * @param player2
+   *          The number of the player who moved second, not negative.
+   * @param result
+   *          The outcome of the game.
+   * @param moves
+   *          The column of every move, in order.
+   * @param plies
+   *          The number of moves, at most <code>GameRecord.MAX_PLIES</code>.
+   * @throws IOException
+   *           If the file cannot be written.
+   * @throws IllegalArgumentException
+   *           If the game cannot be recorded.
+   */
+  public synchronized void write(int player1, int player2,
+      GameRecord.Result result, byte[] moves, int plies) throws IOException {
+    GameRecord.check(player1, player2, moves, plies);
+    if (buffer.remaining() < MAX_RECORD_SIZE) {
+      drain();
+    }
+    buffer.put((byte) (plies << 2 | result.ordinal()));
+    putVarint(player1);
+    putVarint(player2);
+    int bits = 0;
+    int pending = 0;
+    for (int i = 0; i < plies; i++) {
+      bits |= moves[i] << pending;
+      pending += 3;
+      if (pending >= 8) {
+        buffer.put((byte) bits);
+        bits >>>= 8;
+        pending -= 8;
+      }
+    }
+    if (pending > 0) {
+      buffer.put((byte) bits);
+    }
+    count++;
+  }
+
+  /**
+   * Get the number of games appended by this writer.
+   * 
+   * @return The game count.
+   */
+  public synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * Write the buffered games to the file.
+   * 
+   * @throws IOException
+   *           If the file cannot be written.
+   */
+  public synchronized void flush() throws IOException {
+    drain();
+  }
+
+  /**
+   * Write the buffered games and close the file.
+   * 
+   * @throws IOException
+   *           If the file cannot be written.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      drain();
+    } finally {
+      raf.close();
+    }
+  }
+
+  private void putVarint(int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) (value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private void drain() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -0,0 +1,846 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * GameServer class hosts games over TCP, many at once, on one thread. Every
+ * connection is a session with a ConnectFourModel and a GameBoard of its own,
+ * and the model's events are written back to the client as lines of text.
+ * <p>
+ * One selector thread accepts connections, reads commands and writes events
+ * for every session, so an idle session costs a socket and a few small
+ * buffers but no thread. That thread is the event thread of every model:
+ * human moves are played on it right away, and the moves of computer players
+ * are searched on a shared pool of search threads, one move per session at a
+ * time, and handed back to the selector thread when done. Events are not
+ * written one by one: they are collected in the session's output buffer while
+ * a batch of commands or finished searches is handled, and each session with
+ * output is flushed with one write at the end of the batch.
+ * <p>
+ * The protocol is line based, ASCII, one command or event per line. Players
+ * are numbered 1 for the one who moves first and 2 for the other; columns and
+ * rows are numbered from 0, row 0 being the top of the board.
+ * <ul>
+ * <li><code>NEW [opponent]</code> starts a game against <code>easy</code>,
+ * <code>medium</code> (the default), <code>hard</code> or
+ * <code>depth:N</code> for N from 1 to 42, or <code>human</code> for a game
+ * where the client plays both sides. The client is player 1. Every search
+ * of the computer stops at the server's time budget, so no client can tie
+ * up the search threads.</li>
+ * <li><code>MOVE col</code> drops a piece for the player to move.</li>
+ * <li><code>UNDO</code> and <code>REDO</code> take back or replay moves.</li>
+ * <li><code>PING</code> is answered with <code>PONG</code>.</li>
+ * <li><code>QUIT</code> is answered with <code>BYE</code> and the connection
+ * is closed.</li>
+ * </ul>
+ * The server sends <code>HELLO connect4 1</code> on connect and then the
+ * events of the model: <code>START</code>, <code>MOVE player col row</code>,
+ * <code>BACK player col row</code>, <code>TURN player</code>,
+ * <code>WIN player</code>, <code>TIE</code> and <code>FULL player</code>.
+ * A command that cannot be carried out is answered with
+ * <code>ERR reason</code>.
+ * <p>
+ * A session whose handling throws, or whose client leaves more than 1 MB of
+ * output unread, is closed on its own; the other sessions go on. Failures
+ * are counted and passed to the error handler of the server.
+ * 
+ * @author Ke Chen
+ * @see ConnectFourModel
+ *
+ */
+public class GameServer implements Closeable {
+
+  /** The port of a server built without one. */
+  public static final int DEFAULT_PORT = 4000;
+
+  private static final byte[] HELLO = ascii("HELLO connect4 1\n");
+  private static final int MAX_LINE = 256;
+  private static final int MAX_OUTPUT = 1 << 20;
+
+  /**
+   * Builder class is to generate instances of GameServer class. The server
+   * listens on <code>DEFAULT_PORT</code> of the loopback address, searches
+   * on one thread per processor, hosts up to 10000 sessions and gives every
+   * computer player a transposition table of 16384 entries, so that
+   * thousands of them fit in a small heap. No move of a computer player is
+   * searched for longer than one second, whatever depth the client asked
+   * for. Failures are passed to the default uncaught exception handler
+   * unless an error handler is given.
+   * 
+   * @author Ke Chen
+   *
+   */
+  public static class Builder {
+    private String host = "127.0.0.1";
+    private int port = DEFAULT_PORT;
+    private int searchThreads = Runtime.getRuntime().availableProcessors();
+    private int maxSessions = 10000;
+    private int tableSize = 1 << 14;
+    private long searchBudgetMillis = 1000;
+    private Thread.UncaughtExceptionHandler errorHandler = null;
+
+    public Builder host(String host) {
+      this.host = host;
+      return this;
+    }
+
+    public Builder port(int port) {
+      this.port = port;
+      return this;
+    }
+
+    public Builder searchThreads(int searchThreads) {
+      this.searchThreads = searchThreads;
+      return this;
+    }
+
+    public Builder maxSessions(int maxSessions) {
+      this.maxSessions = maxSessions;
+      return this;
+    }
+
+    public Builder tableSize(int tableSize) {
+      this.tableSize = tableSize;
+      return this;
+    }
+
+    public Builder searchBudget(long searchBudgetMillis) {
+      this.searchBudgetMillis = searchBudgetMillis;
+      return this;
+    }
+
+    public Builder errorHandler(Thread.UncaughtExceptionHandler errorHandler) {
+      this.errorHandler = errorHandler;
+      return this;
+    }
+
+    public GameServer build() {
+      return new GameServer(this);
+    }
+  }
+
+  private final String host;
+  private final int requestedPort;
+  private final int maxSessions;
+  private final int tableSize;
+  private final long searchBudgetMillis;
+  private final Thread.UncaughtExceptionHandler errorHandler;
+  private final ExecutorService searchPool;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+  private final ArrayDeque<Session> pending = new ArrayDeque<Session>();
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private Thread thread;
+  private volatile boolean running = false;
+  private volatile int sessions = 0;
+  private volatile long commands = 0;
+  private volatile long commandNanos = 0;
+  private volatile long failures = 0;
+
+  private GameServer(Builder builder) {
+    if (builder.searchThreads < 1) {
+      throw new IllegalArgumentException("search threads must be at least 1");
+    }
+    if (builder.searchBudgetMillis < 1) {
+      throw new IllegalArgumentException("search budget must be positive");
+    }
+    this.host = builder.host;
+    this.requestedPort = builder.port;
+    this.maxSessions = builder.maxSessions;
+    this.tableSize = builder.tableSize;
+    this.searchBudgetMillis = builder.searchBudgetMillis;
+    this.errorHandler = builder.errorHandler;
+    this.searchPool = Executors.newFixedThreadPool(builder.searchThreads,
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "server-search");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+
+  /**
+   * Bind the port and start the selector thread.
+   * 
+   * @throws IOException
+   *           If the port cannot be bound.
+   */
+  public synchronized void start() throws IOException {
+    if (running) {
+      return;
+    }
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(host, requestedPort));
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    running = true;
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        serve();
+      }
+    }, "game-server");
+    thread.start();
+  }
+
+  /**
+   * Get the port the server listens on, which is the one bound by the
+   * system if the server was built with port 0.
+   * 
+   * @return The local port, or -1 before <code>start()</code>.
+   */
+  public int getPort() {
+    if (serverChannel == null) {
+      return -1;
+    }
+    return serverChannel.socket().getLocalPort();
+  }
+
+  /**
+   * Get the number of connected sessions.
+   * 
+   * @return The session count.
+   */
+  public int getSessionCount() {
+    return sessions;
+  }
+
+  /**
+   * Get the number of commands handled since the start.
+   * 
+   * @return The command count.
+   */
+  public long getCommandCount() {
+    return commands;
+  }
+
+  /**
+   * Get the number of failures reported since the start: sessions closed
+   * because handling them threw, connections that could not be set up and
+   * the failure of the selector that stopped the server, if any.
+   * 
+   * @return The failure count.
+   */
+  public long getFailureCount() {
+    return failures;
+  }
+
+  /**
+   * Get the average time the selector thread spent on one command, the
+   * events it fired included, but not the searches of computer players.
+   * 
+   * @return The average handling time in nanoseconds, or 0 before the first
+   *         command.
+   */
+  public long getMeanCommandNanos() {
+    long count = commands;
+    return count == 0 ? 0 : commandNanos / count;
+  }
+
+  /**
+   * Wait until the selector thread ends, which is when the server is
+   * closed.
+   * 
+   * @throws InterruptedException
+   *           If the waiting thread is interrupted.
+   */
+  public void join() throws InterruptedException {
+    Thread serving = thread;
+    if (serving != null) {
+      serving.join();
+    }
+  }
+
+  /**
+   * Close every session and the listening socket and stop the threads.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (!running) {
+        return;
+      }
+      running = false;
+    }
+    selector.wakeup();
+    try {
+      join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    searchPool.shutdownNow();
+  }
+
+  /**
+   * The loop of the selector thread.
+   */
+  private void serve() {
+    try {
+      while (running) {
+        selector.select();
+        runTasks();
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+            continue;
+          }
+          Session session = (Session) key.attachment();
+          try {
+            if (key.isReadable()) {
+              session.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+              markDirty(session);
+            }
+          } catch (RuntimeException e) {
+            report(e);
+            session.close();
+          }
+        }
+        runTasks();
+        flushAll();
+      }
+    } catch (IOException e) {
+      report(e);
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() instanceof Session) {
+          ((Session) key.attachment()).close();
+        }
+      }
+      try {
+        serverChannel.close();
+        selector.close();
+      } catch (IOException e) {
+        // nothing left to do
+      }
+    }
+  }
+
+  /**
+   * Accept a connection. A connection that fails while being set up is
+   * reported and dropped; the server goes on.
+   */
+  private void accept() {
+    SocketChannel channel = null;
+    try {
+      channel = serverChannel.accept();
+      if (channel == null) {
+        return;
+      }
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      if (sessions >= maxSessions) {
+        channel.write(ByteBuffer.wrap(ascii("ERR server full\n")));
+        channel.close();
+        return;
+      }
+      Session session = new Session(channel);
+      session.key = channel.register(selector, SelectionKey.OP_READ, session);
+      sessions++;
+      session.put(HELLO);
+    } catch (IOException e) {
+      report(e);
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ignored) {
+          // the connection is gone either way
+        }
+      }
+    }
+  }
+
+  /**
+   * Run the tasks handed to the selector thread by the search threads, that
+   * is the events of finished computer moves. Every task is wrapped by the
+   * event executor of its session, which closes that session if it fails.
+   */
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  private void markDirty(Session session) {
+    if (!session.queued) {
+      session.queued = true;
+      pending.add(session);
+    }
+  }
+
+  private void flushAll() {
+    Session session;
+    while ((session = pending.poll()) != null) {
+      session.queued = false;
+      try {
+        session.flush();
+      } catch (RuntimeException e) {
+        report(e);
+        session.close();
+      }
+    }
+  }
+
+  /**
+   * Count a failure and pass it to the error handler. A failure of one
+   * session closes that session only; the server stops on a failure of its
+   * selector only.
+   */
+  private void report(Throwable e) {
+    failures++;
+    Thread current = Thread.currentThread();
+    Thread.UncaughtExceptionHandler handler = errorHandler != null
+        ? errorHandler : Thread.getDefaultUncaughtExceptionHandler();
+    if (handler == null) {
+      handler = current.getThreadGroup();
+    }
+    try {
+      handler.uncaughtException(current, e);
+    } catch (RuntimeException ignored) {
+      // a failing handler must not stop the server
+    }
+  }
+
+  /**
+   * SerialExecutor class runs the tasks given to it one at a time, in order,
+   * on the shared search pool, as a model requires of its move executor.
+   */
+  private static class SerialExecutor implements Executor, Runnable {
+    private final Executor pool;
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<Runnable>();
+    private boolean scheduled = false;
+
+    private SerialExecutor(Executor pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      synchronized (this) {
+        queue.add(command);
+        if (scheduled) {
+          return;
+        }
+        scheduled = true;
+      }
+      pool.execute(this);
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        Runnable command;
+        synchronized (this) {
+          command = queue.poll();
+          if (command == null) {
+            scheduled = false;
+            return;
+          }
+        }
+        try {
+          command.run();
+        } catch (RuntimeException e) {
+          // a failed task must not stop the tasks after it
+        }
+      }
+    }
+  }
+
+  /**
+   * Session class is one connection: its buffers, its game, and the listener
+   * of that game, which encodes the events into the output buffer.
+   */
+  private class Session implements ConnectFourListener {
+    private final SocketChannel channel;
+    private final SerialExecutor moveExecutor;
+    private final Executor eventExecutor;
+    private ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+    private ByteBuffer out = ByteBuffer.allocate(512);
+    private SelectionKey key;
+    private boolean queued = false;
+    private boolean closing = false;
+    private boolean gameOver = false;
+    private ConnectFourModel model = null;
+    private Player player1;
+    private Player player2;
+
+    private Session(SocketChannel channel) {
+      this.channel = channel;
+      this.moveExecutor = new SerialExecutor(searchPool);
+      this.eventExecutor = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+          tasks.add(new Runnable() {
+            @Override
+            public void run() {
+              if (!key.isValid()) {
+                return;
+              }
+              try {
+                command.run();
+              } catch (RuntimeException e) {
+                report(e);
+                close();
+              }
+            }
+          });
+          selector.wakeup();
+        }
+      };
+    }
+
+    /**
+     * Read what the client sent and handle every complete line.
+     */
+    private void read() {
+      int count;
+      try {
+        count = channel.read(in);
+      } catch (IOException e) {
+        close();
+        return;
+      }
+      if (count < 0) {
+        close();
+        return;
+      }
+      int start = 0;
+      for (int i = 0; i < in.position(); i++) {
+        if (in.get(i) == '\n') {
+          int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+          String line = new String(in.array(), start, end - start,
+              StandardCharsets.US_ASCII);
+          long begin = System.nanoTime();
+          handle(line.trim());
+          commandNanos += System.nanoTime() - begin;
+          commands++;
+          start = i + 1;
+          if (closing || !key.isValid()) {
+            break;
+          }
+        }
+      }
+      if (!key.isValid()) {
+        return;
+      }
+      in.limit(in.position());
+      in.position(start);
+      in.compact();
+      if (!in.hasRemaining() && !closing) {
+        error("line too long");
+        closing = true;
+      }
+      markDirty(this);
+    }
+
+    private void handle(String line) {
+      String[] words = line.split(" +");
+      String command = words[0].toUpperCase();
+      if (command.equals("MOVE")) {
+        move(words);
+      }
+      else if (command.equals("NEW")) {
+        newGame(words.length > 1 ? words[1] : "medium");
+      }
+      else if (command.equals("UNDO")) {
+        if (model == null || !model.undo()) {
+          error("cannot undo");
+        }
+      }
+      else if (command.equals("REDO")) {
+        if (model == null || !model.redo()) {
+          error("cannot redo");
+        }
+      }
+      else if (command.equals("PING")) {
+        put(ascii("PONG\n"));
+      }
+      else if (command.equals("QUIT")) {
+        put(ascii("BYE\n"));
+        closing = true;
+      }
+      else if (!command.isEmpty()) {
+        error("unknown command");
+      }
+    }
+
+    private void newGame(String opponent) {
+      if (model != null) {
+        model.resetGame();
+      }
+      GameBoard gameBoard = new GameBoard();
+      player1 = new HumanPlayer.Builder(PlayerType.PLAYER1).name("Player1")
+          .gameBoard(gameBoard).build();
+      GameMode mode = GameMode.SINGLEPLAYER;
+      if (opponent.equalsIgnoreCase("human")) {
+        mode = GameMode.TWOPLAYER;
+        player2 = new HumanPlayer.Builder(PlayerType.PLAYER2).name("Player2")
+            .gameBoard(gameBoard).build();
+      }
+      else {
+        ComputerPlayer.Builder builder = new ComputerPlayer.Builder(
+            PlayerType.COMPUTER).gameBoard(gameBoard).tableSize(tableSize);
+        try {
+          long budget;
+          if (opponent.toLowerCase().startsWith("depth:")) {
+            int depth = Integer.parseInt(opponent.substring(6));
+            if (depth < 1 || depth > GameRecord.MAX_PLIES) {
+              throw new IllegalArgumentException("bad depth " + depth);
+            }
+            builder.depth(depth);
+            budget = 0;
+          }
+          else {
+            Difficulty difficulty = Difficulty.valueOf(opponent
+                .toUpperCase());
+            builder.difficulty(difficulty);
+            budget = difficulty.getTimeBudgetMillis();
+          }
+          builder.timeBudget(budget == 0 ? searchBudgetMillis
+              : Math.min(budget, searchBudgetMillis));
+        } catch (IllegalArgumentException e) {
+          error("unknown opponent");
+          model = null;
+          return;
+        }
+        player2 = builder.build();
+      }
+      model = new ConnectFourModel(mode, gameBoard, player1, player2,
+          moveExecutor, eventExecutor);
+      model.addListener(this);
+      gameOver = false;
+      model.startGame();
+      switchTurnTo(player1);
+    }
+
+    private void move(String[] words) {
+      if (model == null) {
+        error("no game");
+        return;
+      }
+      int col;
+      try {
+        col = Integer.parseInt(words.length > 1 ? words[1] : "");
+      } catch (NumberFormatException e) {
+        error("bad column");
+        return;
+      }
+      if (col < 0 || col >= GameBoard.COLNUM) {
+        error("bad column");
+        return;
+      }
+      if (gameOver) {
+        error("game over");
+        return;
+      }
+      Player toMove = model.getHistory().getPly() % 2 == 0 ? player1
+          : player2;
+      if (model.isComputerThinking() || !(toMove instanceof HumanPlayer)) {
+        error("not your turn");
+        return;
+      }
+      model.mouseClicked(toMove, col);
+    }
+
+    private void error(String reason) {
+      put(ascii("ERR " + reason + "\n"));
+    }
+
+    /**
+     * Write as much of the output buffer as the socket takes, and ask the
+     * selector to tell when it takes more if something is left.
+     */
+    private void flush() {
+      if (!key.isValid()) {
+        return;
+      }
+      try {
+        out.flip();
+        channel.write(out);
+        out.compact();
+      } catch (IOException e) {
+        close();
+        return;
+      }
+      if (out.position() > 0) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      }
+      else if (closing) {
+        close();
+      }
+      else {
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+
+    private void close() {
+      if (key != null && !key.isValid()) {
+        return;
+      }
+      if (model != null) {
+        model.resetGame();
+        model.removeListener(this);
+      }
+      if (key != null) {
+        key.cancel();
+      }
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // the connection is gone either way
+      }
+      sessions--;
+    }
+
+    private void put(byte[] bytes) {
+      if (!reserve(bytes.length)) {
+        return;
+      }
+      out.put(bytes);
+      markDirty(this);
+    }
+
+    /**
+     * Write one event line of a word and up to three numbers.
+     */
+    private void event(String word, int... numbers) {
+      if (!reserve(word.length() + 4 * numbers.length + 1)) {
+        return;
+      }
+      for (int i = 0; i < word.length(); i++) {
+        out.put((byte) word.charAt(i));
+      }
+      for (int number : numbers) {
+        out.put((byte) ' ');
+        putNumber(number);
+      }
+      out.put((byte) '\n');
+      markDirty(this);
+    }
+
+    private void putNumber(int number) {
+      if (number >= 10) {
+        putNumber(number / 10);
+      }
+      out.put((byte) ('0' + number % 10));
+    }
+
+    /**
+     * Make room for <code>bytes</code> more bytes of output, growing the
+     * buffer if needed. A client whose unread output would pass
+     * <code>MAX_OUTPUT</code> is not reading, and its session is closed at
+     * once rather than sent a stream with lines missing.
+     * 
+     * @return false if the session is closed, so nothing may be written.
+     */
+    private boolean reserve(int bytes) {
+      if (!key.isValid()) {
+        return false;
+      }
+      if (out.remaining() >= bytes) {
+        return true;
+      }
+      int capacity = out.capacity();
+      while (capacity - out.position() < bytes) {
+        capacity *= 2;
+      }
+      if (capacity > MAX_OUTPUT) {
+        close();
+        return false;
+      }
+      ByteBuffer bigger = ByteBuffer.allocate(capacity);
+      out.flip();
+      bigger.put(out);
+      out = bigger;
+      return true;
+    }
+
+    private int number(Player whichPlayer) {
+      return whichPlayer == player1 ? 1 : 2;
+    }
+
+    @Override
+    public void gameStart() {
+      event("START");
+    }
+
+    @Override
+    public void mouseInEachColume(Player whichPlayer, int col) {
+      // hovering is not sent over the network
+    }
+
+    @Override
+    public void mouseOutEachColume(Player whichPlayer, int col) {
+      // hovering is not sent over the network
+    }
+
+    @Override
+    public void mouseClickEachColume(Player whichPlayer, Coordinate pos) {
+      event("MOVE", number(whichPlayer), pos.getY(), pos.getX());
+    }
+
+    @Override
+    public void takeBackMove(Player whichPlayer, Coordinate pos) {
+      gameOver = false;
+      event("BACK", number(whichPlayer), pos.getY(), pos.getX());
+    }
+
+    @Override
+    public void switchTurnTo(Player whichPlayer) {
+      event("TURN", number(whichPlayer));
+    }
+
+    @Override
+    public void gameOverWithWinner(Player whichPlayer) {
+      gameOver = true;
+      event("WIN", number(whichPlayer));
+    }
+
+    @Override
+    public void gameTie() {
+      gameOver = true;
+      event("TIE");
+    }
+
+    @Override
+    public void columeFull(Player whichPlayer) {
+      event("FULL", number(whichPlayer));
+    }
+
+    @Override
+    public void closeWindow() {
+      // there is no window
+    }
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,364 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * GameSimulator class plays games between two computer entrants without any
+ * window, view or listener, so engine changes can be measured on machines with
+ * no display. Each game follows the rules of ConnectFourModel: the players
+ * move in turn on one GameBoard until one of them connects four or the board
+ * is full.
+ * <p>
+ * Games are spread over several threads. Every thread owns one GameBoard and
+ * one player per entrant and colour, created once and reused for all the
+ * games of that thread, so a batch does not allocate per game. Entrants swap
+ * colours every game, and each game may start with a few random moves so that
+ * deterministic engines do not replay the same game over and over.
+ * <p>
+ * Given a GameRecordWriter, the simulator appends every game it plays to the
+ * archive, entrant A being player number 0 and entrant B number 1.
+ * 
+ * @author Ke Chen
+ * @see SimulationResult
+ *
+ */
+public class GameSimulator {
+
+  /**
+   * Entrant interface creates the players of one side of a simulation. Unlike
+   * a PlayerFactory it may be asked for any number of players, since every
+   * simulation thread needs players of its own.
+   * 
+   * @author Ke Chen
+   *
+   */
+  interface Entrant {
+    /**
+     * Create a player that makes its moves on the given game board.
+     * 
+     * @param name
+     *          The name of the player.
+     * @param type
+     *          PLAYER1 if the player moves first, PLAYER2 otherwise.
+     * @param gameBoard
+     *          The GameBoard of the games the player takes part in.
+     * @return A new Player.
+     */
+    Player createPlayer(String name, PlayerType type, GameBoard gameBoard);
+  }
+
+  private final Entrant entrantA;
+  private final Entrant entrantB;
+  private final int threads;
+  private final int openingPlies;
+  private final GameRecordWriter recorder;
+
+  /**
+   * Create a simulator of games between <code>entrantA</code> and
+   * <code>entrantB</code>.
+   * 
+   * @param entrantA
+   *          The first entrant, who moves first in even games.
+   * @param entrantB
+   *          The second entrant, who moves first in odd games.
+   * @param threads
+   *          The number of simulation threads, at least 1.
+   * @param openingPlies
+   *          The number of random moves that start every game.
+   */
+  GameSimulator(Entrant entrantA, Entrant entrantB, int threads,
+      int openingPlies) {
+    this(entrantA, entrantB, threads, openingPlies, null);
+  }
+
+  /**
+   * Create a simulator of games between <code>entrantA</code> and
+   * <code>entrantB</code> that records every game it plays.
+   * 
+   * @param entrantA
+   *          The first entrant, who moves first in even games.
+   * @param entrantB
+   *          The second entrant, who moves first in odd games.
+   * @param threads
+   *          The number of simulation threads, at least 1.
+   * @param openingPlies
+   *          The number of random moves that start every game.
+   * @param recorder
+   *          The archive the games are appended to, or null for none. It is
+   *          flushed but not closed at the end of every run.
+   */
+  GameSimulator(Entrant entrantA, Entrant entrantB, int threads,
+      int openingPlies, GameRecordWriter recorder) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1");
+    }
+    if (openingPlies < 0) {
+      throw new IllegalArgumentException("opening plies must not be negative");
+    }
+    this.entrantA = entrantA;
+    this.entrantB = entrantB;
+    this.threads = threads;
+    this.openingPlies = openingPlies;
+    this.recorder = recorder;
+  }
+
+  /**
+   * Get an entrant from its description: <code>easy</code>,
+   * <code>medium</code> or <code>hard</code> for a ComputerPlayer of that
+   * Difficulty, <code>depth:N</code> for a ComputerPlayer searching N plies,
+   * or <code>mcts:N</code> for an MctsPlayer running N playouts a move.
+   * 
+   * @param spec
+   *          The description of the entrant.
+   * @return The Entrant it describes.
+   * @throws IllegalArgumentException
+   *           If the description is not understood.
+   */
+  static Entrant entrant(String spec) {
+    String[] parts = spec.split(":");
+    final int value;
+    try {
+      value = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("bad entrant: " + spec);
+    }
+    if (parts[0].equals("mcts")) {
+      return new Entrant() {
+        @Override
+        public Player createPlayer(String name, PlayerType type,
+            GameBoard gameBoard) {
+          return new MctsPlayer.Builder(type).name(name).gameBoard(gameBoard)
+              .playouts(value).build();
+        }
+      };
+    }
+    final int depth;
+    final long timeBudgetMillis;
+    if (parts[0].equals("depth")) {
+      depth = value;
+      timeBudgetMillis = 0;
+    }
+    else {
+      Difficulty difficulty;
+      try {
+        difficulty = Difficulty.valueOf(parts[0].toUpperCase());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("bad entrant: " + spec);
+      }
+      depth = difficulty.getDepth();
+      timeBudgetMillis = difficulty.getTimeBudgetMillis();
+    }
+    return new Entrant() {
+      @Override
+      public Player createPlayer(String name, PlayerType type,
+          GameBoard gameBoard) {
+        return new ComputerPlayer.Builder(type).name(name).gameBoard(gameBoard)
+            .depth(depth).timeBudget(timeBudgetMillis).build();
+      }
+    };
+  }
+
+  /**
+   * Play <code>games</code> games, spread evenly over the threads of this
+   * simulator, and add up their results.
+   * 
+   * @param games
+   *          The number of games to play.
+   * @return The combined SimulationResult, timed from start to finish.
+   * @throws IllegalStateException
+   *           If a game fails or cannot be recorded.
+   */
+  public SimulationResult run(int games) {
+    long start = System.nanoTime();
+    if (threads == 1) {
+      SimulationResult result = playGames(0, games);
+      flushRecorder();
+      return withElapsed(result, System.nanoTime() - start);
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<SimulationResult>> futures =
+          new ArrayList<Future<SimulationResult>>();
+      for (int t = 0; t < threads; t++) {
+        final int first = (int) ((long) games * t / threads);
+        final int last = (int) ((long) games * (t + 1) / threads);
+        futures.add(pool.submit(new Callable<SimulationResult>() {
+          @Override
+          public SimulationResult call() {
+            return playGames(first, last);
+          }
+        }));
+      }
+      SimulationResult total = new SimulationResult(0, 0, 0, 0, 0);
+      for (Future<SimulationResult> future : futures) {
+        total = total.combine(future.get());
+      }
+      flushRecorder();
+      return withElapsed(total, System.nanoTime() - start);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("simulation interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("simulation failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Play games number <code>first</code> to <code>last - 1</code> on the
+   * calling thread.
+   */
+  private SimulationResult playGames(int first, int last) {
+    long start = System.nanoTime();
+    GameBoard gameBoard = new GameBoard();
+    Player firstA = entrantA.createPlayer("A", PlayerType.PLAYER1, gameBoard);
+    Player secondA = entrantA.createPlayer("A", PlayerType.PLAYER2, gameBoard);
+    Player firstB = entrantB.createPlayer("B", PlayerType.PLAYER1, gameBoard);
+    Player secondB = entrantB.createPlayer("B", PlayerType.PLAYER2, gameBoard);
+    PlayoutEngine random = PlayoutEngine.current();
+    byte[] moves = recorder == null ? null : new byte[GameRecord.MAX_PLIES];
+    int winsA = 0;
+    int winsB = 0;
+    int draws = 0;
+    long plies = 0;
+    for (int game = first; game < last; game++) {
+      boolean aFirst = game % 2 == 0;
+      Player player1 = aFirst ? firstA : firstB;
+      Player player2 = aFirst ? secondB : secondA;
+      gameBoard.resetBoard();
+      Player winner = playGame(gameBoard, player1, player2, random,
+          openingPlies, moves);
+      plies += gameBoard.getMoveCount();
+      if (recorder != null) {
+        record(aFirst, winner == null ? GameRecord.Result.DRAW
+            : winner == player1 ? GameRecord.Result.PLAYER1_WIN
+                : GameRecord.Result.PLAYER2_WIN, moves,
+            gameBoard.getMoveCount());
+      }
+      if (winner == null) {
+        draws++;
+      }
+      else if (winner == firstA || winner == secondA) {
+        winsA++;
+      }
+      else {
+        winsB++;
+      }
+    }
+    return new SimulationResult(winsA, winsB, draws, plies,
+        System.nanoTime() - start);
+  }
+
+  /**
+   * Play one game from the empty <code>gameBoard</code>, starting with
+   * <code>openingPlies</code> random moves that do not end the game.
+   * 
+   * @param gameBoard
+   *          The empty GameBoard both players make their moves on.
+   * @param player1
+   *          The player who moves first.
+   * @param player2
+   *          The player who moves second.
+   * @param random
+   *          The engine that picks the opening moves.
+   * @param openingPlies
+   *          The number of random opening moves.
+   * @return The winner, or null for a draw.
+   * @throws IllegalStateException
+   *           If a player makes an illegal move.
+   */
+  static Player playGame(GameBoard gameBoard, Player player1, Player player2,
+      PlayoutEngine random, int openingPlies) {
+    return playGame(gameBoard, player1, player2, random, openingPlies, null);
+  }
+
+  /**
+   * Play one game like <code>playGame()</code> does, writing the column of
+   * every move, the random ones included, into <code>moves</code>.
+   * 
+   * @param gameBoard
+   *          The empty GameBoard both players make their moves on.
+   * @param player1
+   *          The player who moves first.
+   * @param player2
+   *          The player who moves second.
+   * @param random
+   *          The engine that picks the opening moves.
+   * @param openingPlies
+   *          The number of random opening moves.
+   * @param moves
+   *          An array of <code>GameRecord.MAX_PLIES</code> columns, or null
+   *          to record nothing. The game length is the move count of the
+   *          board afterwards.
+   * @return The winner, or null for a draw.
+   * @throws IllegalStateException
+   *           If a player makes an illegal move.
+   */
+  static Player playGame(GameBoard gameBoard, Player player1, Player player2,
+      PlayoutEngine random, int openingPlies, byte[] moves) {
+    int side = 0;
+    for (int ply = 0; ply < openingPlies; ply++) {
+      int j = random.randomColumn(gameBoard);
+      if (j == -1 || gameBoard.isWinningMove(j, side)) {
+        break;
+      }
+      if (moves != null) {
+        moves[ply] = (byte) j;
+      }
+      gameBoard.play(j, side);
+      side = 1 - side;
+    }
+    Player current = side == 0 ? player1 : player2;
+    while (!gameBoard.isTie()) {
+      Coordinate pos = current.makeMove(-1);
+      if (pos.getX() < 0) {
+        throw new IllegalStateException(current + " made an illegal move");
+      }
+      if (moves != null) {
+        moves[gameBoard.getMoveCount() - 1] = (byte) pos.getY();
+      }
+      if (gameBoard.isWin(pos, current)) {
+        return current;
+      }
+      current = current == player1 ? player2 : player1;
+    }
+    return null;
+  }
+
+  /**
+   * Append a game to the archive, entrant A being player 0.
+   */
+  private void record(boolean aFirst, GameRecord.Result result, byte[] moves,
+      int plies) {
+    try {
+      recorder.write(aFirst ? 0 : 1, aFirst ? 1 : 0, result, moves, plies);
+    } catch (IOException e) {
+      throw new IllegalStateException("cannot record game", e);
+    }
+  }
+
+  private void flushRecorder() {
+    if (recorder == null) {
+      return;
+    }
+    try {
+      recorder.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException("cannot record game", e);
+    }
+  }
+
+  private static SimulationResult withElapsed(SimulationResult result,
+      long elapsedNanos) {
+    return new SimulationResult(result.getWinsA(), result.getWinsB(),
+        result.getDraws(), result.getPlies(), elapsedNanos);
+  }
+}
@@ -12,11 +12,13 @@ public class HumanPlayer implements Player {
 
   private final String name;
   private final PlayerType type;
+  private final GameBoard gameBoard;
 
   /**
    * Builder class is to generate instances of HumanPlayer class. Player type is
    * the required parameter, while the name is optional and if not set, give the
-   * default value "player".
+   * default value "player". The game board is optional as well and if not set,
+   * the player gets an empty board of its own.
    * 
    * @author Ke Chen
    *
@@ -24,6 +26,7 @@ public class HumanPlayer implements Player {
   public static class Builder {
     private PlayerType type;
     private String name = "Player";
+    private GameBoard gameBoard = null;
 
     public Builder(PlayerType type) {
       this.type = type;
@@ -34,6 +37,11 @@ public class HumanPlayer implements Player {
       return this;
     }
 
+    public Builder gameBoard(GameBoard gameBoard) {
+      this.gameBoard = gameBoard;
+      return this;
+    }
+
     public HumanPlayer build() {
       return new HumanPlayer(this);
     }
@@ -42,6 +50,8 @@ public class HumanPlayer implements Player {
   private HumanPlayer(Builder builder) {
     this.name = builder.name;
     this.type = builder.type;
+    this.gameBoard = builder.gameBoard == null ? new GameBoard()
+        : builder.gameBoard;
   }
 
   @Override
@@ -54,12 +64,16 @@ public class HumanPlayer implements Player {
     return this.type;
   }
 
+  @Override
+  public GameBoard getGameBoard() {
+    return this.gameBoard;
+  }
+
   @Override
   public Coordinate makeMove(int col) {
     if (col < 0 || col >= GameBoard.COLNUM) {
       throw new ArrayIndexOutOfBoundsException();
     }
-    GameBoard gameBoard = GameBoard.getInstance();
     int row = gameBoard.setBoard(col, this);
     return new Coordinate(row, col);
   }
@@ -15,4 +15,11 @@ public class HumanPlayerFactory implements PlayerFactory {
     return new HumanPlayer.Builder(type).name(name).build();
   }
 
+  @Override
+  public Player createPlayer(String name, PlayerType type,
+      GameBoard gameBoard) {
+    return new HumanPlayer.Builder(type).name(name).gameBoard(gameBoard)
+        .build();
+  }
+
 }
@@ -0,0 +1,111 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ * ImageCache class holds the icons of the game, shared by the start menu and
+ * every view of the process. Each image is read and decoded once, on first
+ * use or by <code>preload()</code>, and the same ImageIcon is handed out from
+ * then on, so a mouse moving over the board costs a map lookup and no disk
+ * access or decoding on the event thread.
+ * <p>
+ * An image is looked up on the class path first, as
+ * <code>image/&lt;name&gt;</code>, so a jar with the image directory packed
+ * into it runs from any working directory. If it is not there, it is read
+ * from the <code>image</code> directory under the working directory, as the
+ * game always did.
+ * 
+ * @author Ke Chen
+ * @see ConnectFourView
+ * @see ConnectFourStartMenu
+ *
+ */
+public final class ImageCache {
+
+  /** The picture of the start menu. */
+  public static final String MAIN = "main.jpg";
+  /** The red piece shown above the board and next to the player name. */
+  public static final String RED_PIECE = "redpiece.jpg";
+  /** The yellow piece shown above the board and next to the player name. */
+  public static final String YELLOW_PIECE = "yellowpiece.jpg";
+  /** The blank space above a column the mouse is not over. */
+  public static final String EMPTY_PIECE = "emptypiece.png";
+  /** An empty cell of the board. */
+  public static final String CELL = "cell.png";
+  /** A cell holding a red piece. */
+  public static final String RED_CELL = "redcell.png";
+  /** A cell holding a yellow piece. */
+  public static final String YELLOW_CELL = "yellowcell.png";
+
+  private static final String DIRECTORY = "image";
+  private static final String[] ALL = { MAIN, RED_PIECE, YELLOW_PIECE,
+      EMPTY_PIECE, CELL, RED_CELL, YELLOW_CELL };
+
+  private static final ConcurrentMap<String, ImageIcon> ICONS =
+      new ConcurrentHashMap<String, ImageIcon>();
+
+  private ImageCache() {
+  }
+
+  /**
+   * Get the icon of an image, reading it on first use.
+   * 
+   * @param name
+   *          The file name of the image, one of the constants of this class.
+   * @return The shared ImageIcon.
+   * @throws IOException
+   *           If the image is neither on the class path nor in the image
+   *           directory, or cannot be decoded.
+   */
+  public static ImageIcon getIcon(String name) throws IOException {
+    ImageIcon icon = ICONS.get(name);
+    if (icon == null) {
+      icon = new ImageIcon(read(name));
+      ImageIcon previous = ICONS.putIfAbsent(name, icon);
+      if (previous != null) {
+        icon = previous;
+      }
+    }
+    return icon;
+  }
+
+  /**
+   * Read every image of the game, so that a missing file shows up before a
+   * game starts rather than in the middle of one.
+   * 
+   * @throws IOException
+   *           If an image cannot be read.
+   */
+  public static void preload() throws IOException {
+    for (String name : ALL) {
+      getIcon(name);
+    }
+  }
+
+  private static BufferedImage read(String name) throws IOException {
+    BufferedImage image = null;
+    URL resource = ImageCache.class.getClassLoader()
+        .getResource(DIRECTORY + "/" + name);
+    if (resource != null) {
+      image = ImageIO.read(resource);
+    }
+    else {
+      File file = new File(DIRECTORY, name);
+      if (file.isFile()) {
+        image = ImageIO.read(file);
+      }
+    }
+    if (image == null) {
+      throw new IOException("cannot read image " + name);
+    }
+    return image;
+  }
+}
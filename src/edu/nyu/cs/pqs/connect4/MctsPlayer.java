@@ -0,0 +1,285 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * MctsPlayer class implements Player Interface with a Monte Carlo Tree Search.
+ * Instead of scoring positions, the makeMove() method plays many games to the
+ * end with random moves, growing a tree of the positions it goes through and
+ * steering the next games toward the moves that won most (UCT). It then plays
+ * the column that was tried the most.
+ * <p>
+ * The tree is kept between moves. After its own move the player keeps the
+ * subtree of that move, and when its turn comes again it keeps the subtree of
+ * the move the opponent made, so the playouts of earlier turns are not thrown
+ * away. A move is given a number of playouts, a time budget, or both; it stops
+ * at whichever runs out first.
+ * <p>
+ * Name and type never change, but the player keeps its tree and the figures of
+ * its last move, so an instance belongs to one game.
+ * 
+ * @author Ke Chen
+ * @see Player
+ * @see MctsTree
+ *
+ */
+public class MctsPlayer implements Player {
+
+  /** The default number of playouts of one move. */
+  public static final int DEFAULT_PLAYOUTS = 20000;
+  /** The default number of nodes the tree can hold. */
+  public static final int DEFAULT_TREE_SIZE = 1 << 19;
+
+  private final String name;
+  private final PlayerType type;
+  private final GameBoard gameBoard;
+  private final int playouts;
+  private final long timeBudgetMillis;
+  private final MctsTree tree;
+  private volatile int lastPlayouts = 0;
+  private volatile int lastReusedVisits = 0;
+  private volatile long lastElapsedNanos = 0;
+
+  /**
+   * Builder class is to generate instances of MctsPlayer class. Player type is
+   * the required parameter. The name defaults to "Computer", the game board to
+   * an empty board of the player's own, the budget of a move to
+   * DEFAULT_PLAYOUTS playouts with no time limit and the tree size to
+   * DEFAULT_TREE_SIZE nodes. A budget of 0 means no limit, but a move must be
+   * limited by playouts or by time.
+   * 
+   * @author Ke Chen
+   *
+   */
+  public static class Builder {
+    private PlayerType type;
+    private String name = "Computer";
+    private GameBoard gameBoard = null;
+    private int playouts = DEFAULT_PLAYOUTS;
+    private long timeBudgetMillis = 0;
+    private int treeSize = DEFAULT_TREE_SIZE;
+    private long seed = System.nanoTime();
+
+    public Builder(PlayerType type) {
+      this.type = type;
+    }
+
+    public Builder name(String name) {
+      this.name = name;
+      return this;
+    }
+
+    public Builder gameBoard(GameBoard gameBoard) {
+      this.gameBoard = gameBoard;
+      return this;
+    }
+
+    public Builder playouts(int playouts) {
+      this.playouts = playouts;
+      return this;
+    }
+
+    public Builder timeBudget(long timeBudgetMillis) {
+      this.timeBudgetMillis = timeBudgetMillis;
+      return this;
+    }
+
+    public Builder treeSize(int treeSize) {
+      this.treeSize = treeSize;
+      return this;
+    }
+
+    public Builder seed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    public MctsPlayer build() {
+      if (playouts < 0 || timeBudgetMillis < 0) {
+        throw new IllegalArgumentException("budget must not be negative");
+      }
+      if (playouts == 0 && timeBudgetMillis == 0) {
+        throw new IllegalArgumentException("a move needs a playout or time "
+            + "budget");
+      }
+      return new MctsPlayer(this);
+    }
+  }
+
+  private MctsPlayer(Builder builder) {
+    this.name = builder.name;
+    this.type = builder.type;
+    this.gameBoard = builder.gameBoard == null ? new GameBoard()
+        : builder.gameBoard;
+    this.playouts = builder.playouts;
+    this.timeBudgetMillis = builder.timeBudgetMillis;
+    this.tree = new MctsTree(builder.treeSize, builder.seed);
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public PlayerType getType() {
+    return this.type;
+  }
+
+  @Override
+  public GameBoard getGameBoard() {
+    return this.gameBoard;
+  }
+
+  /**
+   * Get the playout budget of one move of this player.
+   * 
+   * @return The number of playouts, 0 for no limit.
+   */
+  public int getPlayouts() {
+    return this.playouts;
+  }
+
+  /**
+   * Get the time budget of one move of this player.
+   * 
+   * @return The budget in milliseconds, 0 for no limit.
+   */
+  public long getTimeBudgetMillis() {
+    return this.timeBudgetMillis;
+  }
+
+  /**
+   * Get the number of playouts run for the last move.
+   * 
+   * @return The playout count, 0 if the player has not moved yet.
+   */
+  public int getLastPlayouts() {
+    return this.lastPlayouts;
+  }
+
+  /**
+   * Get the number of playouts the last move found in the tree kept from the
+   * earlier moves.
+   * 
+   * @return The visit count of the root before the last search.
+   */
+  public int getLastReusedVisits() {
+    return this.lastReusedVisits;
+  }
+
+  /**
+   * Get the time the last move took.
+   * 
+   * @return The elapsed time in nanoseconds.
+   */
+  public long getLastElapsedNanos() {
+    return this.lastElapsedNanos;
+  }
+
+  /**
+   * Get the playout rate of the last move.
+   * 
+   * @return The number of playouts per second, 0 if the player has not moved
+   *         yet.
+   */
+  public long getLastPlayoutsPerSecond() {
+    long nanos = lastElapsedNanos;
+    return nanos == 0 ? 0 : (long) (lastPlayouts * 1e9 / nanos);
+  }
+
+  /**
+   * Search the current position and drop a piece in the best column. On a
+   * board that is full or already has four in a row no piece is placed and
+   * the returned Coordinate has row and column -1, as setBoard() reports a
+   * move that cannot be made.
+   */
+  @Override
+  public Coordinate makeMove(int col) {
+    if (isFinished()) {
+      lastPlayouts = 0;
+      lastElapsedNanos = 0;
+      return new Coordinate(-1, -1);
+    }
+    long start = System.nanoTime();
+    long deadline = start + timeBudgetMillis * 1000000L;
+    lastReusedVisits = tree.advance(gameBoard, GameBoard.side(this));
+
+    int count = 0;
+    while (playouts == 0 || count < playouts) {
+      if (timeBudgetMillis > 0 && (count & 63) == 0
+          && System.nanoTime() - deadline >= 0) {
+        break;
+      }
+      tree.runPlayout();
+      count++;
+    }
+
+    int y = tree.bestMove();
+    if (y == -1) {
+      tree.runPlayout();
+      y = tree.bestMove();
+    }
+    int x = gameBoard.setBoard(y, this);
+    tree.play(y);
+    lastPlayouts = count;
+    lastElapsedNanos = System.nanoTime() - start;
+    return new Coordinate(x, y);
+  }
+
+  /**
+   * Check if the game on the board is over, so there is no move to search.
+   */
+  private boolean isFinished() {
+    if (gameBoard.legalMoves() == 0) {
+      return true;
+    }
+    for (int side = 0; side < 2; side++) {
+      long pieces = gameBoard.getPieces(side);
+      if (GameBoard.completesLine(pieces, pieces)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (!(obj instanceof MctsPlayer)) {
+      return false;
+    }
+    MctsPlayer mp = (MctsPlayer) obj;
+    if (mp.name == null || mp.type == null) {
+      return false;
+    }
+    if (!mp.name.equals(this.name) || mp.type != this.type) {
+      return false;
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 17;
+    result = 31 * result + (this.name == null ? 0 : this.name.hashCode());
+    result = 31 * result + (this.type == null ? 0 : this.type.hashCode());
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("MctsPlayer [");
+    sb.append("name = ");
+    sb.append(this.name);
+    sb.append(", type = ");
+    sb.append(this.type);
+    sb.append("]");
+    return sb.toString();
+  }
+}
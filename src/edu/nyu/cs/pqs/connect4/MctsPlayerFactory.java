@@ -0,0 +1,78 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * MctsPlayerFactory class is a singleton factory that implements PlayerFactory
+ * interface to produce MctsPlayer instance. Like ComputerPlayerFactory it
+ * produces no more than one player, the single computer opponent of a game,
+ * so use one factory per game. The factory decides the budget of every move:
+ * a number of playouts, a time budget, or both.
+ * 
+ * @author Ke Chen
+ * @see PlayerFactory
+ * @see MctsPlayer
+ */
+public class MctsPlayerFactory implements PlayerFactory {
+  private MctsPlayer instance = null;
+  private final int playouts;
+  private final long timeBudgetMillis;
+
+  /**
+   * Create a factory that produces players running
+   * MctsPlayer.DEFAULT_PLAYOUTS playouts a move.
+   */
+  public MctsPlayerFactory() {
+    this(MctsPlayer.DEFAULT_PLAYOUTS, 0);
+  }
+
+  /**
+   * Create a factory that produces players stopping a move at whichever of the
+   * two budgets runs out first.
+   * 
+   * @param playouts
+   *          The number of playouts of one move, 0 for no limit.
+   * @param timeBudgetMillis
+   *          The wall-clock budget of one move in milliseconds, 0 for no
+   *          limit.
+   */
+  public MctsPlayerFactory(int playouts, long timeBudgetMillis) {
+    if (playouts < 0 || timeBudgetMillis < 0) {
+      throw new IllegalArgumentException("budget must not be negative");
+    }
+    if (playouts == 0 && timeBudgetMillis == 0) {
+      throw new IllegalArgumentException("a move needs a playout or time "
+          + "budget");
+    }
+    this.playouts = playouts;
+    this.timeBudgetMillis = timeBudgetMillis;
+  }
+
+  @Override
+  public Player createPlayer(String name, PlayerType type) {
+    if (instance == null) {
+      instance = new MctsPlayer.Builder(type).name(name).playouts(playouts)
+          .timeBudget(timeBudgetMillis).build();
+    }
+    return instance;
+  }
+
+  /**
+   * Create the MctsPlayer of this factory on <code>gameBoard</code>, or
+   * return the one already created if it plays on that same board.
+   * 
+   * @throws IllegalStateException
+   *           If the factory already produced a player for another board.
+   */
+  @Override
+  public Player createPlayer(String name, PlayerType type,
+      GameBoard gameBoard) {
+    if (instance != null && instance.getGameBoard() != gameBoard) {
+      throw new IllegalStateException("the computer player of this factory "
+          + "plays on another game board");
+    }
+    if (instance == null) {
+      instance = new MctsPlayer.Builder(type).name(name).gameBoard(gameBoard)
+          .playouts(playouts).timeBudget(timeBudgetMillis).build();
+    }
+    return instance;
+  }
+}
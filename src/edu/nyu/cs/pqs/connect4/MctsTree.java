@@ -0,0 +1,345 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * MctsTree class is the search tree of the MctsPlayer. Nodes are not objects:
+ * every field of a node lives in its own primitive array and a node is just an
+ * index into them. The children of a node are allocated all at once when the
+ * node is expanded, so they sit next to each other and a node only needs to
+ * know its first child and how many children it has. The games are finished
+ * by a PlayoutEngine of the tree's own, so an iteration allocates nothing.
+ * <p>
+ * The value of a node is kept from the point of view of the side that made the
+ * move leading to it: a win for that side counts 1, a draw 0.5.
+ * <p>
+ * After a move is played the subtree under it is moved to the front of a
+ * second set of arrays, which then become the tree; the rest of the old tree
+ * is dropped. This keeps everything the tree learned about the new position
+ * while giving the free space back.
+ * 
+ * @author Ke Chen
+ * @see MctsPlayer
+ *
+ */
+class MctsTree {
+  private static final byte OPEN = 0;
+  private static final byte WIN = 1;
+  private static final byte DRAW = 2;
+  private static final double EXPLORATION = 1.4;
+  private static final int CELLNUM = GameBoard.ROWNUM * GameBoard.COLNUM;
+
+  private final int capacity;
+  private byte[] move;
+  private byte[] childCount;
+  private byte[] terminal;
+  private int[] firstChild;
+  private int[] visits;
+  private float[] wins;
+  private byte[] spareMove;
+  private byte[] spareChildCount;
+  private byte[] spareTerminal;
+  private int[] spareFirstChild;
+  private int[] spareVisits;
+  private float[] spareWins;
+  private int size;
+
+  private final GameBoard rootBoard;
+  private int rootSide;
+  private final GameBoard board;
+  private final int[] path;
+  private final PlayoutEngine playouts;
+
+  /**
+   * Create an empty tree with room for <code>capacity</code> nodes.
+   * 
+   * @param capacity
+   *          The maximal number of nodes, at least COLNUM + 1.
+   * @param seed
+   *          The seed of the random playouts.
+   */
+  MctsTree(int capacity, long seed) {
+    if (capacity <= GameBoard.COLNUM) {
+      throw new IllegalArgumentException("capacity too small: " + capacity);
+    }
+    this.capacity = capacity;
+    this.move = new byte[capacity];
+    this.childCount = new byte[capacity];
+    this.terminal = new byte[capacity];
+    this.firstChild = new int[capacity];
+    this.visits = new int[capacity];
+    this.wins = new float[capacity];
+    this.spareMove = new byte[capacity];
+    this.spareChildCount = new byte[capacity];
+    this.spareTerminal = new byte[capacity];
+    this.spareFirstChild = new int[capacity];
+    this.spareVisits = new int[capacity];
+    this.spareWins = new float[capacity];
+    this.rootBoard = new GameBoard();
+    this.board = new GameBoard();
+    this.path = new int[CELLNUM + 1];
+    this.playouts = new PlayoutEngine(seed);
+  }
+
+  /**
+   * Make the tree ready to search <code>position</code> with
+   * <code>side</code> to move. If the position is the root of the tree or one
+   * of its children, that part of the tree is kept; otherwise the tree starts
+   * over.
+   * 
+   * @param position
+   *          The position to search.
+   * @param side
+   *          The side to move, 0 for PLAYER1 and 1 for the other player.
+   * @return The number of visits kept from the earlier searches.
+   */
+  int advance(GameBoard position, int side) {
+    if (size > 0 && rootSide == side
+        && rootBoard.getHash() == position.getHash()) {
+      return visits[0];
+    }
+    if (size > 0 && rootSide != side) {
+      int first = firstChild[0];
+      for (int c = first; c < first + childCount[0]; c++) {
+        rootBoard.play(move[c], rootSide);
+        boolean found = rootBoard.getHash() == position.getHash();
+        rootBoard.undo(move[c]);
+        if (found) {
+          reroot(c);
+          return visits[0];
+        }
+      }
+    }
+    reset(position, side);
+    return 0;
+  }
+
+  /**
+   * Play <code>column</code> at the root and keep only the subtree under it.
+   * 
+   * @param column
+   *          A column that is not full at the root.
+   */
+  void play(int column) {
+    int first = firstChild[0];
+    for (int c = first; c < first + childCount[0]; c++) {
+      if (move[c] == column) {
+        reroot(c);
+        return;
+      }
+    }
+    rootBoard.play(column, rootSide);
+    reset(rootBoard, 1 - rootSide);
+  }
+
+  /**
+   * Run one iteration: walk down the tree with UCT, expand the leaf it stops
+   * at, finish the game with random moves and update the visited nodes.
+   */
+  void runPlayout() {
+    board.copyFrom(rootBoard);
+    int node = 0;
+    int side = rootSide;
+    int depth = 0;
+    path[0] = 0;
+    while (terminal[node] == OPEN) {
+      if (childCount[node] == 0) {
+        if (visits[node] == 0 && node != 0) {
+          break;
+        }
+        if (!expand(node, side)) {
+          break;
+        }
+      }
+      node = select(node);
+      board.play(move[node], side);
+      side = 1 - side;
+      path[++depth] = node;
+    }
+
+    int winner;
+    if (terminal[node] == WIN) {
+      winner = 1 - side;
+    }
+    else if (terminal[node] == DRAW) {
+      winner = -1;
+    }
+    else {
+      winner = playouts.playout(board, side);
+    }
+
+    for (int d = depth; d >= 0; d--) {
+      int n = path[d];
+      int mover = (rootSide + d + 1) & 1;
+      visits[n]++;
+      if (winner == mover) {
+        wins[n] += 1f;
+      }
+      else if (winner == -1) {
+        wins[n] += 0.5f;
+      }
+    }
+  }
+
+  /**
+   * Get the most visited column of the root.
+   * 
+   * @return The best column, or -1 if the root has no children.
+   */
+  int bestMove() {
+    int best = -1;
+    int bestVisits = -1;
+    int first = firstChild[0];
+    for (int c = first; c < first + childCount[0]; c++) {
+      if (terminal[c] == WIN) {
+        return move[c];
+      }
+      if (visits[c] > bestVisits) {
+        bestVisits = visits[c];
+        best = move[c];
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Get the number of visits of the root.
+   * 
+   * @return The root visit count.
+   */
+  int getRootVisits() {
+    return visits[0];
+  }
+
+  /**
+   * Get the number of nodes in the tree.
+   * 
+   * @return The node count.
+   */
+  int size() {
+    return size;
+  }
+
+  private void reset(GameBoard position, int side) {
+    rootBoard.copyFrom(position);
+    rootSide = side;
+    size = 1;
+    move[0] = -1;
+    childCount[0] = 0;
+    terminal[0] = OPEN;
+    firstChild[0] = 0;
+    visits[0] = 0;
+    wins[0] = 0f;
+  }
+
+  private boolean expand(int node, int side) {
+    if (size + GameBoard.COLNUM > capacity) {
+      return false;
+    }
+    int first = size;
+    int count = 0;
+    boolean full = board.getMoveCount() + 1 == CELLNUM;
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      if (!board.canPlay(j)) {
+        continue;
+      }
+      int c = first + count;
+      move[c] = (byte) j;
+      childCount[c] = 0;
+      firstChild[c] = 0;
+      visits[c] = 0;
+      wins[c] = 0f;
+      if (board.isWinningMove(j, side)) {
+        terminal[c] = WIN;
+      }
+      else {
+        terminal[c] = full ? DRAW : OPEN;
+      }
+      count++;
+    }
+    firstChild[node] = first;
+    childCount[node] = (byte) count;
+    size += count;
+    return count > 0;
+  }
+
+  private int select(int node) {
+    int first = firstChild[node];
+    int last = first + childCount[node];
+    double logVisits = Math.log(visits[node] + 1);
+    int best = first;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for (int c = first; c < last; c++) {
+      if (visits[c] == 0) {
+        return c;
+      }
+      double value = wins[c] / visits[c]
+          + EXPLORATION * Math.sqrt(logVisits / visits[c]);
+      if (value > bestValue) {
+        bestValue = value;
+        best = c;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Make <code>newRoot</code> the root by copying its subtree, breadth first,
+   * to the front of the spare arrays and swapping them in. Children blocks
+   * stay contiguous because a whole block is copied at once.
+   */
+  private void reroot(int newRoot) {
+    rootBoard.play(move[newRoot], rootSide);
+    rootSide = 1 - rootSide;
+
+    copyNode(newRoot, 0);
+    spareMove[0] = -1;
+    int newSize = 1;
+    for (int n = 0; n < newSize; n++) {
+      int oldNode = spareFirstChild[n];
+      int count = childCount[oldNode];
+      if (count == 0) {
+        spareFirstChild[n] = 0;
+        continue;
+      }
+      int oldFirst = firstChild[oldNode];
+      for (int k = 0; k < count; k++) {
+        copyNode(oldFirst + k, newSize + k);
+      }
+      spareFirstChild[n] = newSize;
+      newSize += count;
+    }
+
+    byte[] bytes = move;
+    move = spareMove;
+    spareMove = bytes;
+    bytes = childCount;
+    childCount = spareChildCount;
+    spareChildCount = bytes;
+    bytes = terminal;
+    terminal = spareTerminal;
+    spareTerminal = bytes;
+    int[] ints = firstChild;
+    firstChild = spareFirstChild;
+    spareFirstChild = ints;
+    ints = visits;
+    visits = spareVisits;
+    spareVisits = ints;
+    float[] floats = wins;
+    wins = spareWins;
+    spareWins = floats;
+    size = newSize;
+  }
+
+  /**
+   * Copy node <code>from</code> of the tree to slot <code>to</code> of the
+   * spare arrays. Its first child is set to its old index, which reroot()
+   * replaces once the children have been copied.
+   */
+  private void copyNode(int from, int to) {
+    spareMove[to] = move[from];
+    spareChildCount[to] = childCount[from];
+    spareTerminal[to] = terminal[from];
+    spareFirstChild[to] = from;
+    spareVisits[to] = visits[from];
+    spareWins[to] = wins[from];
+  }
+}
@@ -0,0 +1,138 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.util.Arrays;
+
+/**
+ * MoveHistory class is the move list of one game: the column of every move
+ * played, in order, and a cursor at the current ply. Moves before the cursor
+ * are on the board; moves after it were taken back and can be played again.
+ * Playing a new move at the cursor drops the moves after it.
+ * <p>
+ * The columns are kept in one byte array of <code>GameRecord.MAX_PLIES</code>
+ * entries, so recording a move, taking it back and playing it again are
+ * single array accesses and a game never allocates. A position anywhere in
+ * the game is rebuilt by taking back or replaying the moves between it and
+ * the current one on the GameBoard, which updates the bitboards incrementally
+ * and never copies a board.
+ * <p>
+ * The history of a ConnectFourModel is changed by the model only; its getters
+ * are for the views and tools that browse a game.
+ * 
+ * @author Ke Chen
+ * @see ConnectFourModel
+ *
+ */
+public class MoveHistory {
+
+  private final byte[] moves = new byte[GameRecord.MAX_PLIES];
+  private int ply = 0;
+  private int length = 0;
+
+  /**
+   * Get the number of moves on the board, the index of the next move.
+   * 
+   * @return The current ply.
+   */
+  public int getPly() {
+    return ply;
+  }
+
+  /**
+   * Get the number of moves recorded, including those taken back.
+   * 
+   * @return The length of the history.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Get the column of a recorded move.
+   * 
+   * @param index
+   *          The index of the move, less than <code>getLength()</code>.
+   * @return The column index.
+   */
+  public int getMove(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("no move " + index);
+    }
+    return moves[index];
+  }
+
+  /**
+   * Get the columns of the moves on the board.
+   * 
+   * @return A new array of the first <code>getPly()</code> columns.
+   */
+  public byte[] getMoves() {
+    return Arrays.copyOf(moves, ply);
+  }
+
+  /**
+   * Check if there is a move to take back.
+   * 
+   * @return true if the current ply is not 0.
+   */
+  public boolean canUndo() {
+    return ply > 0;
+  }
+
+  /**
+   * Check if there is a taken back move to play again.
+   * 
+   * @return true if the current ply is before the end of the history.
+   */
+  public boolean canRedo() {
+    return ply < length;
+  }
+
+  /**
+   * Record a move at the current ply, dropping the moves after it.
+   */
+  void push(int col) {
+    moves[ply++] = (byte) col;
+    length = ply;
+  }
+
+  /**
+   * Move the cursor one move back.
+   * 
+   * @return The column of the move taken back.
+   */
+  int undo() {
+    return moves[--ply];
+  }
+
+  /**
+   * Move the cursor one move forward.
+   * 
+   * @return The column of the move played again.
+   */
+  int redo() {
+    return moves[ply++];
+  }
+
+  /**
+   * Forget every move.
+   */
+  void clear() {
+    ply = 0;
+    length = 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder columns = new StringBuilder(length + 1);
+    for (int i = 0; i < length; i++) {
+      if (i == ply) {
+        columns.append('|');
+      }
+      columns.append(moves[i]);
+    }
+    if (ply == length) {
+      columns.append('|');
+    }
+    return "MoveHistory [" + columns + "]";
+  }
+}
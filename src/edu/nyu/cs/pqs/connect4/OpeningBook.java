@@ -0,0 +1,300 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OpeningBook class gives instant moves for the first plies of a game, which
+ * are the most expensive ones to search and the ones repeated in every game.
+ * <p>
+ * A book is a file with a 12-byte header (magic number, version, entry count)
+ * followed by fixed-size 16-byte entries sorted by position key: the key, the
+ * score of the position for the side to move, the best column and the depth it
+ * was searched to. The file is mapped into memory with a MappedByteBuffer and
+ * looked up with a binary search right in the mapping, so opening a book costs
+ * no parsing and no heap, and the pages are shared with every other process
+ * that maps the same file.
+ * <p>
+ * Positions are keyed by their canonical key, which a position shares with its
+ * mirror image, and the best column is stored in the canonical form, so each
+ * pair of mirrored positions takes one entry. Callers translate the column
+ * back with <code>GameBoard.canonicalColumn()</code>.
+ * <p>
+ * A book is immutable once opened and its lookups only use absolute reads of
+ * the buffer, so one instance is safely shared by every game of the process.
+ * Use <code>load()</code> to get that shared instance.
+ * 
+ * @author Ke Chen
+ * @see ComputerPlayer
+ *
+ */
+public class OpeningBook {
+
+  /** The file that <code>loadDefault()</code> opens. */
+  public static final String DEFAULT_FILE = "book/connect4.book";
+
+  private static final int MAGIC = 0x43344F42;
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 12;
+  private static final int ENTRY_SIZE = 16;
+
+  private static final Map<String, OpeningBook> BOOKS =
+      new ConcurrentHashMap<String, OpeningBook>();
+
+  private final MappedByteBuffer buffer;
+  private final int size;
+
+  private OpeningBook(MappedByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("not an opening book");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("unsupported book version " + buffer.getInt(4));
+    }
+    this.buffer = buffer;
+    this.size = buffer.getInt(8);
+    if ((long) HEADER_SIZE + (long) size * ENTRY_SIZE > buffer.capacity()) {
+      throw new IOException("truncated opening book");
+    }
+  }
+
+  /**
+   * Get the book stored in <code>file</code>. The file is mapped the first
+   * time it is asked for; later calls with the same file return the same
+   * instance.
+   * 
+   * @param file
+   *          A book file written by <code>write()</code> or
+   *          <code>build()</code>.
+   * @return The shared OpeningBook of that file.
+   * @throws IOException
+   *           If the file cannot be read or is not a book.
+   */
+  public static OpeningBook load(File file) throws IOException {
+    String path = file.getCanonicalPath();
+    OpeningBook book = BOOKS.get(path);
+    if (book != null) {
+      return book;
+    }
+    synchronized (BOOKS) {
+      book = BOOKS.get(path);
+      if (book == null) {
+        book = open(file);
+        BOOKS.put(path, book);
+      }
+      return book;
+    }
+  }
+
+  /**
+   * Get the book stored in <code>DEFAULT_FILE</code>, if there is one.
+   * 
+   * @return The shared default OpeningBook, or null if the file is missing or
+   *         cannot be read.
+   */
+  public static OpeningBook loadDefault() {
+    File file = new File(DEFAULT_FILE);
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      return load(file);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static OpeningBook open(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+          channel.size());
+      return new OpeningBook(buffer);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Find the entry of a position.
+   * 
+   * @param key
+   *          The key of the position, as given by
+   *          <code>GameBoard.getCanonicalKey(side)</code>.
+   * @return The index of the entry, or -1 if the position is not in the book.
+   */
+  public int find(long key) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midKey = buffer.getLong(HEADER_SIZE + mid * ENTRY_SIZE);
+      if (midKey < key) {
+        low = mid + 1;
+      }
+      else if (midKey > key) {
+        high = mid - 1;
+      }
+      else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get the score stored in an entry.
+   * 
+   * @param index
+   *          An index returned by <code>find()</code>.
+   * @return The score of the position for the side to move.
+   */
+  public int getScore(int index) {
+    return buffer.getInt(HEADER_SIZE + index * ENTRY_SIZE + 8);
+  }
+
+  /**
+   * Get the best column stored in an entry.
+   * 
+   * @param index
+   *          An index returned by <code>find()</code>.
+   * @return The best column of the position in its canonical form.
+   */
+  public int getMove(int index) {
+    return buffer.get(HEADER_SIZE + index * ENTRY_SIZE + 12);
+  }
+
+  /**
+   * Get the depth an entry was searched to.
+   * 
+   * @param index
+   *          An index returned by <code>find()</code>.
+   * @return The search depth, in plies.
+   */
+  public int getDepth(int index) {
+    return buffer.get(HEADER_SIZE + index * ENTRY_SIZE + 13);
+  }
+
+  /**
+   * Get the number of positions in the book.
+   * 
+   * @return The entry count.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Write a book file. Entries may be given in any order; they are sorted by
+   * key before being written.
+   * 
+   * @param file
+   *          The file to write, replaced if it exists.
+   * @param entries
+   *          The entries to write, keyed by canonical position key. Each
+   *          value holds the score, the best column in canonical form and the
+   *          search depth, in that order.
+   * @throws IOException
+   *           If the file cannot be written.
+   */
+  public static void write(File file, Map<Long, int[]> entries)
+      throws IOException {
+    TreeMap<Long, int[]> sorted = new TreeMap<Long, int[]>(entries);
+    ByteBuffer out = ByteBuffer
+        .allocate(HEADER_SIZE + sorted.size() * ENTRY_SIZE);
+    out.putInt(MAGIC);
+    out.putInt(VERSION);
+    out.putInt(sorted.size());
+    for (Map.Entry<Long, int[]> entry : sorted.entrySet()) {
+      int[] value = entry.getValue();
+      out.putLong(entry.getKey());
+      out.putInt(value[0]);
+      out.put((byte) value[1]);
+      out.put((byte) value[2]);
+      out.putShort((short) 0);
+    }
+    out.flip();
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(0);
+      FileChannel channel = raf.getChannel();
+      while (out.hasRemaining()) {
+        channel.write(out);
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Build a book of every position reachable in at most <code>plies</code>
+   * plies, searching each one with iterative deepening, and write it to
+   * <code>file</code>. PLAYER1 is assumed to move first.
+   * 
+   * @param file
+   *          The file to write.
+   * @param plies
+   *          The deepest position of the book, in plies from the start.
+   * @param depth
+   *          The maximal search depth of every position.
+   * @param millis
+   *          The time budget of every search in milliseconds, 0 for none.
+   * @param out
+   *          Where progress is printed, or null.
+   * @return The number of positions written.
+   * @throws IOException
+   *           If the file cannot be written.
+   */
+  public static int build(File file, int plies, int depth, long millis,
+      PrintStream out) throws IOException {
+    Map<Long, int[]> entries = new TreeMap<Long, int[]>();
+    SearchEngine engine = new SearchEngine(new TranspositionTable(1 << 22));
+    collect(new GameBoard(), 0, plies, depth, millis, engine, entries,
+        new HashSet<Long>(), out);
+    write(file, entries);
+    return entries.size();
+  }
+
+  private static void collect(GameBoard board, int side, int plies, int depth,
+      long millis, SearchEngine engine, Map<Long, int[]> entries,
+      Set<Long> seen, PrintStream out) {
+    long key = board.getCanonicalKey(side);
+    if (!seen.add(key)) {
+      return;
+    }
+    SearchResult result = engine.searchIterative(board, side, depth, millis);
+    if (result.getColumn() != -1) {
+      entries.put(key, new int[] { result.getScore(),
+          board.canonicalColumn(result.getColumn()), result.getDepth() });
+      if (out != null && entries.size() % 100 == 0) {
+        out.println(entries.size() + " positions");
+      }
+    }
+    if (plies == 0) {
+      return;
+    }
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      if (board.canPlay(j) && !board.isWinningMove(j, side)) {
+        board.play(j, side);
+        collect(board, 1 - side, plies - 1, depth, millis, engine, entries,
+            seen, out);
+        board.undo(j);
+      }
+    }
+  }
+}
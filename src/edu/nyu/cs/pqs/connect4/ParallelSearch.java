@@ -0,0 +1,222 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParallelSearch class runs a Lazy SMP search: several SearchEngines search
+ * the same root position at the same time and share one TranspositionTable.
+ * There is no work splitting between them; the helpers simply try the columns
+ * in different orders, and the results they store in the shared table let the
+ * main engine skip work it would otherwise have done itself. The main engine
+ * runs on the calling thread and its result is the one returned, with the
+ * nodes and the other counters of all engines added up.
+ * <p>
+ * With one thread this is just a SearchEngine. Helper threads are daemon
+ * threads that are created on demand and die after a minute of idleness. A
+ * ParallelSearch must not run two searches at once.
+ * 
+ * @author Ke Chen
+ * @see SearchEngine
+ *
+ */
+public class ParallelSearch {
+
+  private final int threads;
+  private final TranspositionTable table;
+  private final SearchEngine[] engines;
+  private final GameBoard root;
+  private ThreadPoolExecutor helpers = null;
+
+  /**
+   * Create a search that uses <code>threads</code> engines sharing the given
+   * table.
+   * 
+   * @param threads
+   *          The number of search threads, including the calling thread.
+   * @param table
+   *          The TranspositionTable shared by all engines.
+   */
+  public ParallelSearch(int threads, TranspositionTable table) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1");
+    }
+    this.threads = threads;
+    this.table = table;
+    this.engines = new SearchEngine[threads];
+    for (int i = 0; i < threads; i++) {
+      engines[i] = new SearchEngine(table, i);
+    }
+    this.root = new GameBoard();
+  }
+
+  /**
+   * Search the given position with iterative deepening on every engine, until
+   * <code>maxDepth</code> is done or the time budget runs out. The helpers are
+   * stopped and waited for before this method returns.
+   * 
+   * @param position
+   *          The GameBoard to search from. It is not modified.
+   * @param side
+   *          The side to move, 0 for PLAYER1 and 1 for the other player.
+   * @param maxDepth
+   *          The deepest search to run, at least 1.
+   * @param timeBudgetMillis
+   *          The wall-clock budget of the whole search in milliseconds, or 0
+   *          for no limit.
+   * @return The SearchResult of the main engine, with the node count and the
+   *         other counters of all engines.
+   */
+  public SearchResult searchIterative(GameBoard position, final int side,
+      final int maxDepth, long timeBudgetMillis) {
+    final long start = System.nanoTime();
+    final long deadline = timeBudgetMillis > 0
+        ? start + timeBudgetMillis * 1000000L : 0L;
+    root.copyFrom(position);
+    table.newSearch();
+
+    List<Future<SearchResult>> futures = new ArrayList<Future<SearchResult>>();
+    for (int i = 1; i < threads; i++) {
+      final SearchEngine helper = engines[i];
+      helper.clearStop();
+      futures.add(helperPool().submit(new Callable<SearchResult>() {
+        @Override
+        public SearchResult call() {
+          return helper.deepen(root, side, maxDepth, deadline, start);
+        }
+      }));
+    }
+
+    engines[0].clearStop();
+    SearchResult main = engines[0].deepen(root, side, maxDepth, deadline,
+        start);
+    long nodes = main.getNodes();
+    long expandedNodes = main.getExpandedNodes();
+    long cutoffs = main.getCutoffs();
+    long firstMoveCutoffs = main.getFirstMoveCutoffs();
+    long tableProbes = main.getTableProbes();
+    long tableHits = main.getTableHits();
+    for (int i = 1; i < threads; i++) {
+      engines[i].stop();
+    }
+    for (Future<SearchResult> future : futures) {
+      try {
+        SearchResult helper = future.get();
+        nodes += helper.getNodes();
+        expandedNodes += helper.getExpandedNodes();
+        cutoffs += helper.getCutoffs();
+        firstMoveCutoffs += helper.getFirstMoveCutoffs();
+        tableProbes += helper.getTableProbes();
+        tableHits += helper.getTableHits();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("helper search failed", e.getCause());
+      }
+    }
+    return new SearchResult(main.getColumn(), main.getScore(), main.getDepth(),
+        nodes, System.nanoTime() - start, expandedNodes, cutoffs,
+        firstMoveCutoffs, tableProbes, tableHits);
+  }
+
+  /**
+   * Stop the running search. The main engine returns the result of its last
+   * completed depth. This method may be called from any thread.
+   */
+  public void stop() {
+    for (SearchEngine engine : engines) {
+      engine.stop();
+    }
+  }
+
+  /**
+   * Get the number of search threads.
+   * 
+   * @return The number of engines, including the main one.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Get the table shared by the engines.
+   * 
+   * @return The shared TranspositionTable.
+   */
+  public TranspositionTable getTranspositionTable() {
+    return table;
+  }
+
+  private synchronized ThreadPoolExecutor helperPool() {
+    if (helpers == null) {
+      helpers = new ThreadPoolExecutor(threads - 1, threads - 1, 60,
+          TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+              Thread thread = new Thread(r, "search-helper");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      helpers.allowCoreThreadTimeOut(true);
+    }
+    return helpers;
+  }
+
+  /**
+   * Search a few opening and middle-game positions with one thread and then
+   * with <code>threads</code> threads, each for <code>millis</code>
+   * milliseconds, and print the nodes per second of both and the speedup.
+   * 
+   * @param threads
+   *          The number of threads of the parallel search.
+   * @param millis
+   *          The time budget of every search.
+   * @param out
+   *          Where the report is printed.
+   */
+  public static void measureSpeedup(int threads, long millis,
+      PrintStream out) {
+    String[] positions = { "", "4", "44", "4453", "444333", "3443551" };
+    long singleNodes = 0;
+    long singleNanos = 0;
+    long parallelNodes = 0;
+    long parallelNanos = 0;
+    for (String moves : positions) {
+      GameBoard board = new GameBoard();
+      int side = 0;
+      for (int i = 0; i < moves.length(); i++) {
+        board.play(moves.charAt(i) - '1', side);
+        side = 1 - side;
+      }
+      int maxDepth = GameBoard.ROWNUM * GameBoard.COLNUM;
+      SearchResult single = new ParallelSearch(1,
+          new TranspositionTable(1 << 22)).searchIterative(board, side,
+              maxDepth, millis);
+      SearchResult parallel = new ParallelSearch(threads,
+          new TranspositionTable(1 << 22)).searchIterative(board, side,
+              maxDepth, millis);
+      out.printf("%-10s 1 thread: depth %2d, %,12d nps   %d threads: "
+          + "depth %2d, %,12d nps%n", "\"" + moves + "\"", single.getDepth(),
+          single.getNodesPerSecond(), threads, parallel.getDepth(),
+          parallel.getNodesPerSecond());
+      singleNodes += single.getNodes();
+      singleNanos += single.getElapsedNanos();
+      parallelNodes += parallel.getNodes();
+      parallelNanos += parallel.getElapsedNanos();
+    }
+    double singleNps = singleNodes * 1e9 / singleNanos;
+    double parallelNps = parallelNodes * 1e9 / parallelNanos;
+    out.printf("speedup in nodes per second with %d threads: %.2fx%n", threads,
+        parallelNps / singleNps);
+  }
+}
@@ -0,0 +1,162 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.PrintStream;
+
+/**
+ * Perft class counts the move sequences of a given length from a position,
+ * walking the whole game tree with <code>setBoard</code> and
+ * <code>unsetBoard</code> only. Since the counts of the empty board are known,
+ * a wrong count points at a bug in move making, taking back or win detection,
+ * which makes perft the first check of any change to the board
+ * representation. The time it takes measures raw move making speed.
+ * <p>
+ * A sequence ends when a move connects four, like a game does: the moves
+ * after a win are not generated, so a win before the last ply adds nothing
+ * to the count. At the last ply every legal move counts as one leaf without
+ * being checked for a win.
+ * 
+ * @author Ke Chen
+ * @see GameBoard
+ *
+ */
+public class Perft {
+
+  /**
+   * The perft counts of the empty board, indexed by depth, checked against an
+   * independent brute-force count. Below depth 7 no game can end, so they are
+   * the powers of 7.
+   */
+  static final long[] EMPTY_BOARD_COUNTS = { 1L, 7L, 49L, 343L, 2401L, 16807L,
+      117649L, 823536L, 5673234L, 39394572L };
+
+  private final GameBoard gameBoard;
+  private final Player[] players;
+
+  /**
+   * Create a perft counter on <code>gameBoard</code>. The board is changed
+   * while counting but left as it was when a count returns.
+   * 
+   * @param gameBoard
+   *          The GameBoard whose position is counted.
+   */
+  public Perft(GameBoard gameBoard) {
+    this.gameBoard = gameBoard;
+    this.players = new Player[] {
+        new HumanPlayer.Builder(PlayerType.PLAYER1).gameBoard(gameBoard)
+            .build(),
+        new HumanPlayer.Builder(PlayerType.PLAYER2).gameBoard(gameBoard)
+            .build() };
+  }
+
+  /**
+   * Count the move sequences of <code>depth</code> plies from the current
+   * position, the player to move being the one whose turn it is by the
+   * number of pieces on the board.
+   * 
+   * @param depth
+   *          The number of plies, not negative.
+   * @return The number of leaf positions.
+   */
+  public long perft(int depth) {
+    if (depth < 0) {
+      throw new IllegalArgumentException("depth must not be negative");
+    }
+    return count(depth, gameBoard.getMoveCount() % 2);
+  }
+
+  /**
+   * Count the move sequences of <code>depth</code> plies separately for every
+   * first move.
+   * 
+   * @param depth
+   *          The number of plies, at least 1.
+   * @return The count of each column, or -1 for a column that is full.
+   */
+  public long[] divide(int depth) {
+    if (depth < 1) {
+      throw new IllegalArgumentException("depth must be at least 1");
+    }
+    int side = gameBoard.getMoveCount() % 2;
+    Player player = players[side];
+    long[] counts = new long[GameBoard.COLNUM];
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      int row = gameBoard.setBoard(j, player);
+      if (row < 0) {
+        counts[j] = -1;
+        continue;
+      }
+      if (depth == 1) {
+        counts[j] = 1;
+      }
+      else if (gameBoard.isWin(new Coordinate(row, j), player)) {
+        counts[j] = 0;
+      }
+      else {
+        counts[j] = count(depth - 1, 1 - side);
+      }
+      gameBoard.unsetBoard(j);
+    }
+    return counts;
+  }
+
+  private long count(int depth, int side) {
+    if (depth == 0) {
+      return 1;
+    }
+    Player player = players[side];
+    long nodes = 0;
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      int row = gameBoard.setBoard(j, player);
+      if (row < 0) {
+        continue;
+      }
+      if (depth == 1) {
+        nodes++;
+      }
+      else if (!gameBoard.isWin(new Coordinate(row, j), player)) {
+        nodes += count(depth - 1, 1 - side);
+      }
+      gameBoard.unsetBoard(j);
+    }
+    return nodes;
+  }
+
+  /**
+   * Count the empty board at every depth up to <code>maxDepth</code> and
+   * print the counts, their check against the known ones and the speed, in
+   * nodes per second. With <code>divide</code> set, the counts of every first
+   * move at <code>maxDepth</code> are printed as well.
+   * 
+   * @param maxDepth
+   *          The deepest count.
+   * @param divide
+   *          Whether to print the counts of every first move.
+   * @param out
+   *          The stream to print to.
+   * @return True if every count matched the known one.
+   */
+  public static boolean run(int maxDepth, boolean divide, PrintStream out) {
+    Perft perft = new Perft(new GameBoard());
+    boolean passed = true;
+    for (int depth = 0; depth <= maxDepth; depth++) {
+      long start = System.nanoTime();
+      long nodes = perft.perft(depth);
+      long elapsed = Math.max(1, System.nanoTime() - start);
+      String check = "";
+      if (depth < EMPTY_BOARD_COUNTS.length) {
+        boolean ok = nodes == EMPTY_BOARD_COUNTS[depth];
+        passed &= ok;
+        check = ok ? " ok" : " expected " + EMPTY_BOARD_COUNTS[depth];
+      }
+      out.printf("perft(%d) = %d in %.3f s, %.0f nodes/s%s%n", depth, nodes,
+          elapsed / 1e9, nodes * 1e9 / elapsed, check);
+    }
+    if (divide && maxDepth > 0) {
+      long[] counts = perft.divide(maxDepth);
+      for (int j = 0; j < counts.length; j++) {
+        out.println("column " + j + ": " + counts[j]);
+      }
+    }
+    return passed;
+  }
+}
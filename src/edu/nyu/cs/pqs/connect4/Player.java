@@ -23,6 +23,13 @@ interface Player {
    */
   public PlayerType getType();
 
+  /**
+   * Get the game board this player makes its moves on.
+   * 
+   * @return The GameBoard of the game this player takes part in.
+   */
+  public GameBoard getGameBoard();
+
   /**
    * Defines how to make next move for the player.
    * 
@@ -17,7 +17,20 @@ interface PlayerFactory {
    *          A String variable represents Player's name
    * @param type
    *          A PlayerType enum variable represents Player's type
-   * @return A Player object.
+   * @return A Player object that plays on a game board of its own.
    */
   public Player createPlayer(String name, PlayerType type);
+
+  /**
+   * Create a Player object that makes its moves on the given game board.
+   * 
+   * @param name
+   *          A String variable represents Player's name
+   * @param type
+   *          A PlayerType enum variable represents Player's type
+   * @param gameBoard
+   *          The GameBoard of the game the player takes part in.
+   * @return A Player object.
+   */
+  public Player createPlayer(String name, PlayerType type, GameBoard gameBoard);
 }
@@ -0,0 +1,176 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * PlayoutEngine class finishes games with uniformly random moves, the building
+ * block of Monte Carlo players and statistical evaluators. A playout never
+ * touches the heap nor the GameBoard it starts from: it copies the bitboards
+ * into local variables, picks its moves from their legal-move mask, checks
+ * for four in a row with shifts and draws its random numbers from an xorshift
+ * generator kept in a field, so millions of playouts cost no garbage at all.
+ * Working on plain bitboards also skips the hash and the threat windows that a
+ * move on the GameBoard itself would update.
+ * <p>
+ * An engine is not thread-safe. Give every thread its own, either by creating
+ * one per thread or by calling <code>current()</code>.
+ * 
+ * @author Ke Chen
+ * @see MctsTree
+ *
+ */
+public class PlayoutEngine {
+
+  private static final ThreadLocal<PlayoutEngine> ENGINES =
+      new ThreadLocal<PlayoutEngine>() {
+        @Override
+        protected PlayoutEngine initialValue() {
+          return new PlayoutEngine(
+              System.nanoTime() ^ Thread.currentThread().getId() << 32);
+        }
+      };
+
+  private long state;
+  private long playouts;
+
+  /**
+   * Create an engine whose random moves are given by <code>seed</code>. Two
+   * engines with the same seed play the same games.
+   * 
+   * @param seed
+   *          The seed of the random generator.
+   */
+  public PlayoutEngine(long seed) {
+    this.state = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+    this.playouts = 0;
+  }
+
+  /**
+   * Get the engine of the calling thread, creating it on first use.
+   * 
+   * @return The PlayoutEngine of the current thread.
+   */
+  public static PlayoutEngine current() {
+    return ENGINES.get();
+  }
+
+  /**
+   * Play one random game from <code>position</code> to the end.
+   * 
+   * @param position
+   *          The GameBoard to start from. It is not modified.
+   * @param side
+   *          The side to move, 0 for PLAYER1 and 1 for the other player.
+   * @return The winning side, or -1 for a draw.
+   */
+  public int playout(GameBoard position, int side) {
+    playouts++;
+    return finish(position, side);
+  }
+
+  /**
+   * Play <code>count</code> random games from <code>position</code> and add
+   * up their results for <code>side</code>.
+   * 
+   * @param position
+   *          The GameBoard to start from. It is not modified.
+   * @param side
+   *          The side to move, 0 for PLAYER1 and 1 for the other player.
+   * @param count
+   *          The number of games to play.
+   * @return The score of <code>side</code> in half points: 2 for every win
+   *         and 1 for every draw.
+   */
+  public int runBatch(GameBoard position, int side, int count) {
+    int score = 0;
+    playouts += count;
+    for (int i = 0; i < count; i++) {
+      int winner = finish(position, side);
+      if (winner == side) {
+        score += 2;
+      }
+      else if (winner == -1) {
+        score += 1;
+      }
+    }
+    return score;
+  }
+
+  /**
+   * Get the number of playouts this engine has run.
+   * 
+   * @return The playout count.
+   */
+  public long getPlayouts() {
+    return playouts;
+  }
+
+  /**
+   * Pick a column that is not full, uniformly at random.
+   * 
+   * @param position
+   *          The GameBoard to pick from.
+   * @return A playable column, or -1 if the board is full.
+   */
+  public int randomColumn(GameBoard position) {
+    long legal = position.legalMoves();
+    if (legal == 0) {
+      return -1;
+    }
+    return Long.numberOfTrailingZeros(pick(legal)) / GameBoard.COLUMN_HEIGHT;
+  }
+
+  /**
+   * Play random moves from <code>position</code> until the game ends, on
+   * copies of its bitboards.
+   * 
+   * @param position
+   *          The GameBoard to start from. It is not modified.
+   * @param side
+   *          The side to move.
+   * @return The winning side, or -1 for a draw.
+   */
+  private int finish(GameBoard position, int side) {
+    long own = position.getPieces(side);
+    long opponent = position.getPieces(1 - side);
+    long mask = position.getMask();
+    long legal = GameBoard.legalMoves(mask);
+    while (legal != 0) {
+      long move = pick(legal);
+      own |= move;
+      if (GameBoard.completesLine(own, move)) {
+        return side;
+      }
+      mask |= move;
+      long swap = own;
+      own = opponent;
+      opponent = swap;
+      side = 1 - side;
+      legal = GameBoard.legalMoves(mask);
+    }
+    return -1;
+  }
+
+  /**
+   * Return one of the bits of <code>legal</code>, uniformly at random.
+   */
+  private long pick(long legal) {
+    int skip = nextInt(Long.bitCount(legal));
+    for (int i = 0; i < skip; i++) {
+      legal &= legal - 1;
+    }
+    return legal & -legal;
+  }
+
+  /**
+   * Return a random number in [0, bound) with one xorshift64* step and a
+   * multiply instead of a division.
+   */
+  private int nextInt(int bound) {
+    long x = state;
+    x ^= x >>> 12;
+    x ^= x << 25;
+    x ^= x >>> 27;
+    state = x;
+    long bits = (x * 0x2545F4914F6CDD1DL) >>> 32;
+    return (int) ((bits * bound) >>> 32);
+  }
+}
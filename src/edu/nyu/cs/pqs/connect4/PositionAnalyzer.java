@@ -0,0 +1,307 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * PositionAnalyzer class scores a file of positions, one per line, with the
+ * search engine, and writes one result line per position in the order of the
+ * input. A position is given by its moves as column numbers from 1 to 7, so
+ * <code>4453</code> is four moves and an empty line is the empty board. The
+ * result line is the moves, the best column (from 1), the score for the side
+ * to move and the depth reached, separated by tabs, or the moves and
+ * <code>ERR reason</code> for a position that cannot be scored.
+ * <p>
+ * Files of millions of positions are streamed: the reading thread reads a
+ * line, hands it to a fork-join pool as a task and keeps going, and the
+ * results come back through a reorder buffer, a ring of the tasks in flight
+ * in input order. The reading thread writes the result at the head of the
+ * ring as soon as it is done, and waits for it only when the ring is full, so
+ * at most <code>window</code> positions are in memory at any time whatever
+ * the size of the file, and a slow position holds up the output but not the
+ * search of the positions after it.
+ * <p>
+ * Every worker thread of the pool owns a SearchEngine, its transposition
+ * table and a GameBoard, made once when the thread starts, so scoring a
+ * position allocates nothing but its result line.
+ * 
+ * @author Ke Chen
+ * @see SearchEngine
+ *
+ */
+public class PositionAnalyzer {
+
+  /**
+   * Builder class is to generate instances of PositionAnalyzer class. By
+   * default positions are searched 8 plies deep with no time limit, on one
+   * thread per processor, with a transposition table of 65536 entries per
+   * thread, 1024 positions in flight and progress reported every second.
+   * 
+   * @author Ke Chen
+   *
+   */
+  public static class Builder {
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int depth = 8;
+    private long timeBudgetMillis = 0;
+    private int tableSize = 1 << 16;
+    private int window = 1024;
+    private long progressMillis = 1000;
+
+    public Builder threads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    public Builder depth(int depth) {
+      this.depth = depth;
+      return this;
+    }
+
+    public Builder timeBudget(long timeBudgetMillis) {
+      this.timeBudgetMillis = timeBudgetMillis;
+      return this;
+    }
+
+    public Builder tableSize(int tableSize) {
+      this.tableSize = tableSize;
+      return this;
+    }
+
+    public Builder window(int window) {
+      this.window = window;
+      return this;
+    }
+
+    public Builder progressMillis(long progressMillis) {
+      this.progressMillis = progressMillis;
+      return this;
+    }
+
+    public PositionAnalyzer build() {
+      if (threads < 1 || depth < 1 || timeBudgetMillis < 0 || window < 1
+          || progressMillis < 1) {
+        throw new IllegalArgumentException("bad analyzer settings");
+      }
+      return new PositionAnalyzer(this);
+    }
+  }
+
+  private final int threads;
+  private final int depth;
+  private final long timeBudgetMillis;
+  private final int tableSize;
+  private final int window;
+  private final long progressNanos;
+  private long invalid;
+  private long nodes;
+
+  private PositionAnalyzer(Builder builder) {
+    this.threads = builder.threads;
+    this.depth = builder.depth;
+    this.timeBudgetMillis = builder.timeBudgetMillis;
+    this.tableSize = builder.tableSize;
+    this.window = builder.window;
+    this.progressNanos = builder.progressMillis * 1000000L;
+  }
+
+  /**
+   * Worker class is a thread of the pool with the search engine and the board
+   * of its own that its tasks use.
+   */
+  private static class Worker extends ForkJoinWorkerThread {
+    private final SearchEngine engine;
+    private final GameBoard board = new GameBoard();
+
+    private Worker(ForkJoinPool pool, int tableSize) {
+      super(pool);
+      this.engine = new SearchEngine(new TranspositionTable(tableSize));
+    }
+  }
+
+  /**
+   * Analysis class is the scoring of one position. It runs on a Worker and
+   * never fails: a position that cannot be scored gets an error line.
+   */
+  private class Analysis extends RecursiveTask<String> {
+    private static final long serialVersionUID = 1L;
+    private final String moves;
+    private boolean failed = false;
+    private long searched = 0;
+
+    private Analysis(String moves) {
+      this.moves = moves;
+    }
+
+    @Override
+    protected String compute() {
+      Worker worker = (Worker) Thread.currentThread();
+      GameBoard board = worker.board;
+      try {
+        String error = replay(board);
+        if (error != null) {
+          failed = true;
+          return moves + "\tERR " + error;
+        }
+        SearchResult result = worker.engine.searchIterative(board,
+            moves.length() % 2, depth, timeBudgetMillis);
+        searched = result.getNodes();
+        return moves + "\t" + (result.getColumn() + 1) + "\t"
+            + result.getScore() + "\t" + result.getDepth();
+      } finally {
+        for (int i = board.getMoveCount() - 1; i >= 0; i--) {
+          board.undo(moves.charAt(i) - '1');
+        }
+      }
+    }
+
+    /**
+     * Play the moves on the empty <code>board</code>, stopping at the first
+     * one that cannot be played.
+     * 
+     * @return Why the position cannot be scored, or null if it can.
+     */
+    private String replay(GameBoard board) {
+      if (moves.length() > GameRecord.MAX_PLIES) {
+        return "too many moves";
+      }
+      for (int i = 0; i < moves.length(); i++) {
+        int j = moves.charAt(i) - '1';
+        if (j < 0 || j >= GameBoard.COLNUM) {
+          return "bad column";
+        }
+        if (!board.canPlay(j)) {
+          return "column full";
+        }
+        if (board.isWinningMove(j, i % 2)) {
+          board.play(j, i % 2);
+          return "game over";
+        }
+        board.play(j, i % 2);
+      }
+      if (moves.length() == GameRecord.MAX_PLIES) {
+        return "board full";
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Score every position of <code>in</code> and write the results to
+   * <code>out</code> in the same order. Neither stream is closed.
+   * 
+   * @param in
+   *          The positions, one per line.
+   * @param out
+   *          Where the results are written, one line per position.
+   * @param progress
+   *          Where the progress and the final report are printed, or null
+   *          for none.
+   * @return The number of positions read.
+   * @throws IOException
+   *           If the input cannot be read or the output written.
+   */
+  public long analyze(Reader in, Writer out, PrintStream progress)
+      throws IOException {
+    BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in
+        : new BufferedReader(in, 1 << 16);
+    ForkJoinPool pool = new ForkJoinPool(threads,
+        new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+          @Override
+          public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            return new Worker(pool, tableSize);
+          }
+        }, null, false);
+    Analysis[] ring = new Analysis[window];
+    long submitted = 0;
+    long written = 0;
+    long start = System.nanoTime();
+    long lastReport = start;
+    invalid = 0;
+    nodes = 0;
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (submitted - written == window) {
+          write(ring, written++, out);
+        }
+        while (written < submitted && ring[slot(written)].isDone()) {
+          write(ring, written++, out);
+        }
+        Analysis analysis = new Analysis(line.trim());
+        ring[slot(submitted++)] = analysis;
+        pool.execute(analysis);
+        if (progress != null && System.nanoTime() - lastReport
+            >= progressNanos) {
+          lastReport = System.nanoTime();
+          report(progress, written, lastReport - start);
+        }
+      }
+      while (written < submitted) {
+        write(ring, written++, out);
+      }
+      out.flush();
+    } finally {
+      pool.shutdownNow();
+    }
+    if (progress != null) {
+      long elapsed = System.nanoTime() - start;
+      report(progress, written, elapsed);
+      progress.printf("%d invalid, %,d nodes (%.0f nodes/s)%n", invalid,
+          nodes, nodes * 1e9 / Math.max(elapsed, 1));
+    }
+    return submitted;
+  }
+
+  /**
+   * Get the number of positions of the last <code>analyze()</code> call that
+   * could not be scored.
+   * 
+   * @return The count of error lines written.
+   */
+  public long getInvalidCount() {
+    return invalid;
+  }
+
+  /**
+   * Get the number of nodes searched in the last <code>analyze()</code> call.
+   * 
+   * @return The node count.
+   */
+  public long getNodeCount() {
+    return nodes;
+  }
+
+  private int slot(long index) {
+    return (int) (index % window);
+  }
+
+  /**
+   * Wait for the result of position <code>index</code> if needed, write it
+   * and free its slot of the ring.
+   */
+  private void write(Analysis[] ring, long index, Writer out)
+      throws IOException {
+    Analysis analysis = ring[slot(index)];
+    ring[slot(index)] = null;
+    String result = analysis.join();
+    if (analysis.failed) {
+      invalid++;
+    }
+    nodes += analysis.searched;
+    out.write(result);
+    out.write('\n');
+  }
+
+  private static void report(PrintStream progress, long positions,
+      long nanos) {
+    progress.printf("%,d positions in %.1f s (%.0f positions/s)%n", positions,
+        nanos / 1e9, positions * 1e9 / Math.max(nanos, 1));
+  }
+}
@@ -0,0 +1,430 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * SearchEngine class searches the game tree with negamax and alpha-beta
+ * pruning. Columns are tried from the center outwards, which is where the
+ * strong moves usually are and therefore where the cutoffs come from.
+ * <p>
+ * The engine keeps a scratch GameBoard of its own: every search copies the
+ * game position into it and then only plays and takes back moves on that
+ * board, so a search never allocates and never touches the board of the game.
+ * An engine is not thread-safe; use one engine per thread.
+ * <p>
+ * Results are cached in a TranspositionTable keyed by the canonical key of
+ * the scratch board, so a position and its mirror image share one entry; the
+ * best column of an entry is stored in the canonical form and translated
+ * back when it is read. The table may be shared with other engines, including
+ * engines running on other threads. Engines that share a table may use
+ * different move orders, so that they explore different parts of the tree
+ * first and fill the table for each other (see ParallelSearch).
+ * <p>
+ * Positions at the depth limit are scored with the threat-window evaluation of
+ * the GameBoard, which is kept up to date by every move of the search and so
+ * costs nothing to read. Those scores stay far below the scores of proven
+ * wins and losses.
+ * <p>
+ * Besides the nodes, a search counts its table lookups and hits, the nodes it
+ * expands and their beta cutoffs, and the cutoffs made by the first move
+ * tried. The counters are plain fields of the engine and are returned in the
+ * SearchResult.
+ * 
+ * @author Ke Chen
+ * @see SearchResult
+ *
+ */
+public class SearchEngine {
+
+  /**
+   * The score of a win on an empty board. A win reached after
+   * <code>n</code> pieces on the board scores <code>WIN_SCORE - n</code>, so
+   * quicker wins score higher and slower losses score less badly.
+   */
+  public static final int WIN_SCORE = 100000;
+
+  private static final int INFINITY = WIN_SCORE + 1;
+  private static final int CELLNUM = GameBoard.ROWNUM * GameBoard.COLNUM;
+  private static final int[] COLUMN_ORDER = columnOrder();
+
+  /** Number of entries of the table created by the default constructor. */
+  public static final int DEFAULT_TABLE_SIZE = 1 << 18;
+
+  /** The clock is read once every <code>CLOCK_INTERVAL + 1</code> nodes. */
+  private static final long CLOCK_INTERVAL = 1023;
+
+  private final GameBoard board;
+  private final TranspositionTable table;
+  private final int[] columnOrder;
+  private volatile boolean stopRequested;
+  private long nodes;
+  private long expandedNodes;
+  private long cutoffs;
+  private long firstMoveCutoffs;
+  private long tableProbes;
+  private long tableHits;
+  private long deadline;
+  private boolean aborted;
+  private int rootColumn;
+  private int rootScore;
+
+  /**
+   * Create a search engine with an empty scratch board and a transposition
+   * table of <code>DEFAULT_TABLE_SIZE</code> entries.
+   */
+  public SearchEngine() {
+    this(new TranspositionTable(DEFAULT_TABLE_SIZE));
+  }
+
+  /**
+   * Create a search engine that caches its results in the given table.
+   * 
+   * @param table
+   *          A TranspositionTable, possibly shared with other engines.
+   */
+  public SearchEngine(TranspositionTable table) {
+    this(table, 0);
+  }
+
+  /**
+   * Create a search engine that caches its results in the given table and
+   * tries the columns in a varied order. Variation 0 is the usual center-first
+   * order; any other value rotates it by that many places.
+   * 
+   * @param table
+   *          A TranspositionTable, possibly shared with other engines.
+   * @param variation
+   *          The move order variation, 0 for the center-first order.
+   */
+  public SearchEngine(TranspositionTable table, int variation) {
+    this.board = new GameBoard();
+    this.table = table;
+    this.columnOrder = new int[GameBoard.COLNUM];
+    for (int k = 0; k < GameBoard.COLNUM; k++) {
+      columnOrder[k] = COLUMN_ORDER[(k + variation) % GameBoard.COLNUM];
+    }
+  }
+
+  /**
+   * Search the given position to the given depth and return the best column
+   * for <code>side</code>. The position itself is not modified.
+   * 
+   * @param position
+   *          The GameBoard to search from.
+   * @param side
+   *          The side to move, 0 for PLAYER1 and 1 for the other player.
+   * @param depth
+   *          The number of plies to search, at least 1.
+   * @return A SearchResult holding the best column and its score.
+   */
+  public SearchResult search(GameBoard position, int side, int depth) {
+    long start = System.nanoTime();
+    stopRequested = false;
+    table.newSearch();
+    prepare(position, 0L);
+    int win = findWinningMove(side);
+    if (win != -1) {
+      return result(win, WIN_SCORE - board.getMoveCount() - 1, 1, start);
+    }
+    searchRoot(side, depth);
+    return result(rootColumn, rootScore, depth, start);
+  }
+
+  /**
+   * Search the given position with iterative deepening: depth 1, then 2, and
+   * so on, until <code>maxDepth</code> is done, the game is solved or the time
+   * budget runs out. A depth that is cut short by the deadline is thrown away
+   * and the best column of the last completed depth is returned, so the call
+   * returns shortly after the deadline whatever the position.
+   * 
+   * @param position
+   *          The GameBoard to search from.
+   * @param side
+   *          The side to move, 0 for PLAYER1 and 1 for the other player.
+   * @param maxDepth
+   *          The deepest search to run, at least 1.
+   * @param timeBudgetMillis
+   *          The wall-clock budget of the whole search in milliseconds, or 0
+   *          for no limit.
+   * @return A SearchResult holding the best column, its score and the depth
+   *         of the last completed iteration.
+   */
+  public SearchResult searchIterative(GameBoard position, int side,
+      int maxDepth, long timeBudgetMillis) {
+    long start = System.nanoTime();
+    stopRequested = false;
+    table.newSearch();
+    return deepen(position, side, maxDepth,
+        timeBudgetMillis > 0 ? start + timeBudgetMillis * 1000000L : 0L, start);
+  }
+
+  /**
+   * Run iterative deepening until <code>deadline</code> (a System.nanoTime()
+   * value, or 0 for none) or until <code>stop()</code> is called. Unlike the
+   * public search methods this neither starts a new table generation nor
+   * clears an earlier stop request, which lets ParallelSearch drive several
+   * engines as one search.
+   */
+  SearchResult deepen(GameBoard position, int side, int maxDepth,
+      long deadline, long start) {
+    prepare(position, deadline);
+    int win = findWinningMove(side);
+    if (win != -1) {
+      return result(win, WIN_SCORE - board.getMoveCount() - 1, 1, start);
+    }
+
+    int bestColumn = -1;
+    int bestScore = 0;
+    int reachedDepth = 0;
+    int emptyCells = CELLNUM - board.getMoveCount();
+    for (int depth = 1; depth <= maxDepth; depth++) {
+      searchRoot(side, depth);
+      if (aborted) {
+        break;
+      }
+      bestColumn = rootColumn;
+      bestScore = rootScore;
+      reachedDepth = depth;
+      if (depth >= emptyCells || isDecided(bestScore)) {
+        break;
+      }
+    }
+    if (bestColumn == -1) {
+      bestColumn = firstPlayableColumn();
+    }
+    return result(bestColumn, bestScore, reachedDepth, start);
+  }
+
+  /**
+   * Ask the running search to stop as soon as possible. The search returns the
+   * result of its last completed depth, just as if its time budget had run
+   * out. This method may be called from any thread.
+   */
+  public void stop() {
+    stopRequested = true;
+  }
+
+  /**
+   * Forget an earlier <code>stop()</code> before a call to
+   * <code>deepen()</code>.
+   */
+  void clearStop() {
+    stopRequested = false;
+  }
+
+  /**
+   * Get the transposition table of this engine.
+   * 
+   * @return The TranspositionTable used by this engine.
+   */
+  public TranspositionTable getTranspositionTable() {
+    return table;
+  }
+
+  /**
+   * Get the number of positions visited by the last search.
+   * 
+   * @return The node count.
+   */
+  public long getNodeCount() {
+    return nodes;
+  }
+
+  private void prepare(GameBoard position, long deadline) {
+    board.copyFrom(position);
+    nodes = 0;
+    expandedNodes = 0;
+    cutoffs = 0;
+    firstMoveCutoffs = 0;
+    tableProbes = 0;
+    tableHits = 0;
+    this.deadline = deadline;
+    this.aborted = false;
+  }
+
+  private SearchResult result(int column, int score, int depth, long start) {
+    return new SearchResult(column, score, depth, nodes,
+        System.nanoTime() - start, expandedNodes, cutoffs, firstMoveCutoffs,
+        tableProbes, tableHits);
+  }
+
+  /**
+   * Search every column of the root to <code>depth</code> and leave the best
+   * one in <code>rootColumn</code> and <code>rootScore</code>. Both are
+   * meaningless if the search was aborted.
+   */
+  private void searchRoot(int side, int depth) {
+    rootColumn = -1;
+    rootScore = 0;
+    int bestScore = -INFINITY;
+    int alpha = -INFINITY;
+    nodes++;
+    expandedNodes++;
+    int hashMove = board.canonicalColumn(
+        TranspositionTable.move(probe(key(side))));
+    for (int k = -1; k < GameBoard.COLNUM; k++) {
+      int j = k < 0 ? hashMove : columnOrder[k];
+      if (j < 0 || (k >= 0 && j == hashMove) || !board.canPlay(j)) {
+        continue;
+      }
+      board.play(j, side);
+      int score = -negamax(depth - 1, -INFINITY, -alpha, 1 - side);
+      board.undo(j);
+      if (aborted) {
+        return;
+      }
+      if (score > bestScore) {
+        bestScore = score;
+        rootColumn = j;
+      }
+      if (score > alpha) {
+        alpha = score;
+      }
+    }
+    if (rootColumn != -1) {
+      rootScore = bestScore;
+      table.store(key(side), bestScore, depth, TranspositionTable.EXACT,
+          board.canonicalColumn(rootColumn));
+    }
+  }
+
+  private int findWinningMove(int side) {
+    nodes++;
+    for (int k = 0; k < GameBoard.COLNUM; k++) {
+      int j = COLUMN_ORDER[k];
+      if (board.canPlay(j) && board.isWinningMove(j, side)) {
+        return j;
+      }
+    }
+    return -1;
+  }
+
+  private int firstPlayableColumn() {
+    for (int k = 0; k < GameBoard.COLNUM; k++) {
+      if (board.canPlay(columnOrder[k])) {
+        return columnOrder[k];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Check if a score proves a win or a loss, in which case searching deeper
+   * cannot change it.
+   */
+  private static boolean isDecided(int score) {
+    return Math.abs(score) > WIN_SCORE - CELLNUM - 1;
+  }
+
+  private int negamax(int depth, int alpha, int beta, int side) {
+    nodes++;
+    if ((nodes & CLOCK_INTERVAL) == 0 && (stopRequested
+        || (deadline != 0L && System.nanoTime() - deadline >= 0))) {
+      aborted = true;
+    }
+    if (aborted) {
+      return 0;
+    }
+    int moveCount = board.getMoveCount();
+    if (moveCount == CELLNUM) {
+      return 0;
+    }
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      if (board.canPlay(j) && board.isWinningMove(j, side)) {
+        return WIN_SCORE - moveCount - 1;
+      }
+    }
+    if (depth <= 0) {
+      return board.evaluate(side);
+    }
+
+    long key = key(side);
+    long entry = probe(key);
+    int hashMove = -1;
+    if (entry != TranspositionTable.MISS) {
+      hashMove = board.canonicalColumn(TranspositionTable.move(entry));
+      if (TranspositionTable.depth(entry) >= depth) {
+        int score = TranspositionTable.score(entry);
+        int bound = TranspositionTable.bound(entry);
+        if (bound == TranspositionTable.EXACT) {
+          return score;
+        }
+        if (bound == TranspositionTable.LOWER && score > alpha) {
+          alpha = score;
+        }
+        else if (bound == TranspositionTable.UPPER && score < beta) {
+          beta = score;
+        }
+        if (alpha >= beta) {
+          return score;
+        }
+      }
+    }
+
+    int originalAlpha = alpha;
+    int best = -INFINITY;
+    int bestMove = -1;
+    int searched = 0;
+    expandedNodes++;
+    for (int k = -1; k < GameBoard.COLNUM; k++) {
+      int j = k < 0 ? hashMove : columnOrder[k];
+      if (j < 0 || (k >= 0 && j == hashMove) || !board.canPlay(j)) {
+        continue;
+      }
+      board.play(j, side);
+      int score = -negamax(depth - 1, -beta, -alpha, 1 - side);
+      board.undo(j);
+      searched++;
+      if (aborted) {
+        return 0;
+      }
+      if (score > best) {
+        best = score;
+        bestMove = j;
+      }
+      if (score > alpha) {
+        alpha = score;
+        if (alpha >= beta) {
+          cutoffs++;
+          if (searched == 1) {
+            firstMoveCutoffs++;
+          }
+          break;
+        }
+      }
+    }
+
+    int bound = TranspositionTable.EXACT;
+    if (best <= originalAlpha) {
+      bound = TranspositionTable.UPPER;
+    }
+    else if (best >= beta) {
+      bound = TranspositionTable.LOWER;
+    }
+    table.store(key, best, depth, bound, board.canonicalColumn(bestMove));
+    return best;
+  }
+
+  private long probe(long key) {
+    tableProbes++;
+    long entry = table.probe(key);
+    if (entry != TranspositionTable.MISS) {
+      tableHits++;
+    }
+    return entry;
+  }
+
+  private long key(int side) {
+    return board.getCanonicalKey(side);
+  }
+
+  /**
+   * Order the columns from the center outwards: 3, 2, 4, 1, 5, 0, 6 on the
+   * standard board.
+   */
+  private static int[] columnOrder() {
+    int[] order = new int[GameBoard.COLNUM];
+    for (int k = 0; k < GameBoard.COLNUM; k++) {
+      order[k] = GameBoard.COLNUM / 2 + (1 - 2 * (k % 2)) * (k + 1) / 2;
+    }
+    return order;
+  }
+}
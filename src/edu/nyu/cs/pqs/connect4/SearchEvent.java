@@ -0,0 +1,61 @@
+package edu.nyu.cs.pqs.connect4;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+
+/**
+ * SearchEvent class is the JDK Flight Recorder event of one move of a
+ * computer player. Its duration is the time to decision, and its fields are
+ * the counters of the search behind the move, so a recording shows slow moves
+ * next to the garbage collections and CPU load around them. The event costs
+ * next to nothing while no recording is running.
+ * <p>
+ * Record it with, for example,
+ * <code>java -XX:StartFlightRecording=filename=game.jfr ...</code> and look
+ * for <code>edu.nyu.cs.pqs.connect4.Search</code> in the recording.
+ * 
+ * @author Ke Chen
+ * @see ComputerPlayer
+ *
+ */
+@Name("edu.nyu.cs.pqs.connect4.Search")
+@Label("Computer Move")
+@Category("Connect Four")
+@Description("The search behind one move of a computer player")
+class SearchEvent extends Event {
+
+  @Label("Player")
+  String player;
+
+  @Label("Source")
+  @Description("Where the move came from: search, ponder or book")
+  String source;
+
+  @Label("Column")
+  int column;
+
+  @Label("Depth")
+  int depth;
+
+  @Label("Nodes")
+  long nodes;
+
+  @Label("Nodes per Second")
+  long nodesPerSecond;
+
+  @Label("Table Hit Rate")
+  @Percentage
+  double tableHitRate;
+
+  @Label("Cutoff Rate")
+  @Percentage
+  double cutoffRate;
+
+  @Label("First Move Cutoff Rate")
+  @Percentage
+  double firstMoveCutoffRate;
+}
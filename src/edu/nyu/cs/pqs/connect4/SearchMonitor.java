@@ -0,0 +1,224 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * SearchMonitor class is a singleton that collects the counters of every move
+ * made by a computer player of this process and publishes them as a platform
+ * MXBean named <code>edu.nyu.cs.pqs.connect4:type=SearchMonitor</code>. The
+ * counters of all moves are added up, and the rates are worked out from the
+ * totals, so they describe every move of every player since the start or the
+ * last reset, however many games run at once under a simulator, a tournament
+ * or the server. Only the <code>Last</code> attributes describe a single
+ * move, the one recorded last, whichever player made it.
+ * <p>
+ * The bean is registered when the monitor is first used. If the platform
+ * MBean server refuses it the monitor keeps counting all the same, since a
+ * game must not fail for want of monitoring.
+ * 
+ * @author Ke Chen
+ * @see SearchMonitorMXBean
+ * @see ComputerPlayer
+ *
+ */
+public class SearchMonitor implements SearchMonitorMXBean {
+
+  /** The name the monitor is registered under. */
+  public static final String OBJECT_NAME =
+      "edu.nyu.cs.pqs.connect4:type=SearchMonitor";
+
+  private static SearchMonitor instance = null;
+
+  private long moves = 0;
+  private String lastPlayer = "";
+  private String lastSource = "";
+  private SearchResult lastResult = new SearchResult(-1, 0, 0, 0, 0);
+  private long lastDecisionNanos = 0;
+  private long totalDecisionNanos = 0;
+  private long maxDecisionNanos = 0;
+  private long totalNodes = 0;
+  private long totalSearchNanos = 0;
+  private long totalDepth = 0;
+  private long expandedNodes = 0;
+  private long cutoffs = 0;
+  private long firstMoveCutoffs = 0;
+  private long tableProbes = 0;
+  private long tableHits = 0;
+
+  private SearchMonitor() {
+  }
+
+  /**
+   * Get the monitor of this process, creating and registering it on first
+   * use.
+   * 
+   * @return The SearchMonitor instance.
+   */
+  public static synchronized SearchMonitor getInstance() {
+    if (instance == null) {
+      instance = new SearchMonitor();
+      try {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(instance, new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+        // Keep counting without JMX.
+      } catch (SecurityException e) {
+        // Keep counting without JMX.
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Record one move of a computer player.
+   * 
+   * @param player
+   *          The name of the player.
+   * @param source
+   *          Where the move came from: <code>search</code>,
+   *          <code>ponder</code> or <code>book</code>.
+   * @param result
+   *          The SearchResult behind the move.
+   * @param decisionNanos
+   *          The time from the call of makeMove() to the decision.
+   */
+  public synchronized void record(String player, String source,
+      SearchResult result, long decisionNanos) {
+    moves++;
+    lastPlayer = player;
+    lastSource = source;
+    lastResult = result;
+    lastDecisionNanos = decisionNanos;
+    totalDecisionNanos += decisionNanos;
+    maxDecisionNanos = Math.max(maxDecisionNanos, decisionNanos);
+    totalNodes += result.getNodes();
+    totalSearchNanos += result.getElapsedNanos();
+    totalDepth += result.getDepth();
+    expandedNodes += result.getExpandedNodes();
+    cutoffs += result.getCutoffs();
+    firstMoveCutoffs += result.getFirstMoveCutoffs();
+    tableProbes += result.getTableProbes();
+    tableHits += result.getTableHits();
+  }
+
+  @Override
+  public synchronized long getMoves() {
+    return moves;
+  }
+
+  @Override
+  public synchronized String getLastPlayer() {
+    return lastPlayer;
+  }
+
+  @Override
+  public synchronized String getLastSource() {
+    return lastSource;
+  }
+
+  @Override
+  public synchronized int getLastDepth() {
+    return lastResult.getDepth();
+  }
+
+  @Override
+  public synchronized long getLastNodes() {
+    return lastResult.getNodes();
+  }
+
+  @Override
+  public synchronized double getAverageDepth() {
+    return moves == 0 ? 0.0 : (double) totalDepth / moves;
+  }
+
+  @Override
+  public synchronized long getNodesPerSecond() {
+    if (totalSearchNanos == 0) {
+      return 0;
+    }
+    return (long) (totalNodes * 1e9 / totalSearchNanos);
+  }
+
+  @Override
+  public synchronized long getExpandedNodes() {
+    return expandedNodes;
+  }
+
+  @Override
+  public synchronized long getCutoffs() {
+    return cutoffs;
+  }
+
+  @Override
+  public synchronized long getFirstMoveCutoffs() {
+    return firstMoveCutoffs;
+  }
+
+  @Override
+  public synchronized long getTableProbes() {
+    return tableProbes;
+  }
+
+  @Override
+  public synchronized long getTableHits() {
+    return tableHits;
+  }
+
+  @Override
+  public synchronized double getTableHitRate() {
+    return tableProbes == 0 ? 0.0 : (double) tableHits / tableProbes;
+  }
+
+  @Override
+  public synchronized double getCutoffRate() {
+    return expandedNodes == 0 ? 0.0 : (double) cutoffs / expandedNodes;
+  }
+
+  @Override
+  public synchronized double getFirstMoveCutoffRate() {
+    return cutoffs == 0 ? 0.0 : (double) firstMoveCutoffs / cutoffs;
+  }
+
+  @Override
+  public synchronized double getLastDecisionMillis() {
+    return lastDecisionNanos / 1e6;
+  }
+
+  @Override
+  public synchronized double getAverageDecisionMillis() {
+    return moves == 0 ? 0.0 : totalDecisionNanos / 1e6 / moves;
+  }
+
+  @Override
+  public synchronized double getMaxDecisionMillis() {
+    return maxDecisionNanos / 1e6;
+  }
+
+  @Override
+  public synchronized long getTotalNodes() {
+    return totalNodes;
+  }
+
+  @Override
+  public synchronized void reset() {
+    moves = 0;
+    lastPlayer = "";
+    lastSource = "";
+    lastResult = new SearchResult(-1, 0, 0, 0, 0);
+    lastDecisionNanos = 0;
+    totalDecisionNanos = 0;
+    maxDecisionNanos = 0;
+    totalNodes = 0;
+    totalSearchNanos = 0;
+    totalDepth = 0;
+    expandedNodes = 0;
+    cutoffs = 0;
+    firstMoveCutoffs = 0;
+    tableProbes = 0;
+    tableHits = 0;
+  }
+}
@@ -0,0 +1,162 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * SearchMonitorMXBean interface is the management interface of
+ * SearchMonitor. Every attribute describes the moves of the computer players
+ * of this process, so a JMX console such as JConsole or VisualVM shows why a
+ * move took as long as it did. The counters and rates cover all recorded
+ * moves; the attributes named <code>Last</code> describe the move recorded
+ * last only.
+ * 
+ * @author Ke Chen
+ * @see SearchMonitor
+ *
+ */
+public interface SearchMonitorMXBean {
+
+  /**
+   * Get the number of moves recorded since the start or the last reset.
+   * 
+   * @return The move count.
+   */
+  public long getMoves();
+
+  /**
+   * Get the name of the player of the last move.
+   * 
+   * @return The player name, or an empty string before the first move.
+   */
+  public String getLastPlayer();
+
+  /**
+   * Get where the last move came from: <code>search</code>,
+   * <code>ponder</code> or <code>book</code>.
+   * 
+   * @return The source of the last move.
+   */
+  public String getLastSource();
+
+  /**
+   * Get the depth the last search completed.
+   * 
+   * @return The depth in plies.
+   */
+  public int getLastDepth();
+
+  /**
+   * Get the number of positions visited by the last search.
+   * 
+   * @return The node count.
+   */
+  public long getLastNodes();
+
+  /**
+   * Get the average depth the searches behind the recorded moves completed.
+   * 
+   * @return The average depth in plies, or 0 before the first move.
+   */
+  public double getAverageDepth();
+
+  /**
+   * Get the speed of all recorded searches together.
+   * 
+   * @return The nodes visited per second of search time.
+   */
+  public long getNodesPerSecond();
+
+  /**
+   * Get the number of positions whose moves were searched, over all recorded
+   * moves.
+   * 
+   * @return The expanded node count.
+   */
+  public long getExpandedNodes();
+
+  /**
+   * Get the number of beta cutoffs of all recorded moves.
+   * 
+   * @return The cutoff count.
+   */
+  public long getCutoffs();
+
+  /**
+   * Get the number of beta cutoffs caused by the first move tried, over all
+   * recorded moves.
+   * 
+   * @return The first-move cutoff count.
+   */
+  public long getFirstMoveCutoffs();
+
+  /**
+   * Get the number of transposition table lookups of all recorded moves.
+   * 
+   * @return The probe count.
+   */
+  public long getTableProbes();
+
+  /**
+   * Get the number of table lookups of all recorded moves that found their
+   * position.
+   * 
+   * @return The hit count.
+   */
+  public long getTableHits();
+
+  /**
+   * Get the share of the table lookups of all recorded moves that found their
+   * position.
+   * 
+   * @return A number between 0 and 1, or 0 if the table was not used.
+   */
+  public double getTableHitRate();
+
+  /**
+   * Get the share of the expanded positions of all recorded moves that were
+   * cut off.
+   * 
+   * @return A number between 0 and 1, or 0 if no position was expanded.
+   */
+  public double getCutoffRate();
+
+  /**
+   * Get the share of the cutoffs of all recorded moves caused by the first
+   * move tried.
+   * 
+   * @return A number between 0 and 1, or 0 if there was no cutoff.
+   */
+  public double getFirstMoveCutoffRate();
+
+  /**
+   * Get the time from the call of makeMove() to the decision, for the last
+   * move.
+   * 
+   * @return The time to decision in milliseconds.
+   */
+  public double getLastDecisionMillis();
+
+  /**
+   * Get the average time to decision of all recorded moves.
+   * 
+   * @return The average in milliseconds, or 0 before the first move.
+   */
+  public double getAverageDecisionMillis();
+
+  /**
+   * Get the longest time to decision of all recorded moves.
+   * 
+   * @return The maximum in milliseconds.
+   */
+  public double getMaxDecisionMillis();
+
+  /**
+   * Get the number of positions visited by all recorded moves.
+   * 
+   * @return The total node count.
+   */
+  public long getTotalNodes();
+
+  /**
+   * Forget every recorded move.
+   */
+  public void reset();
+}
@@ -0,0 +1,238 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * SearchResult class is an immutable class that stores the outcome of one
+ * search: the chosen column, its score from the point of view of the player to
+ * move, the depth searched, the number of nodes visited and how long it took.
+ * It also keeps the counters that tell why a search took as long as it did:
+ * how often the transposition table had the position, how often a node was
+ * cut off and how often the first move tried was already good enough to cut
+ * it off, which measures the move ordering.
+ * 
+ * @author Ke Chen
+ * @see SearchEngine
+ *
+ */
+public class SearchResult {
+  private final int column;
+  private final int score;
+  private final int depth;
+  private final long nodes;
+  private final long elapsedNanos;
+  private final long expandedNodes;
+  private final long cutoffs;
+  private final long firstMoveCutoffs;
+  private final long tableProbes;
+  private final long tableHits;
+
+  /**
+   * Constructor takes the fields of a result without search counters, such
+   * as a move from an opening book.
+   * 
+   * @param column
+   *          The best column found, or -1 if there is no legal move.
+   * @param score
+   *          The score of that column for the player to move.
+   * @param depth
+   *          The depth of the search, in plies.
+   * @param nodes
+   *          The number of positions visited.
+   * @param elapsedNanos
+   *          The wall-clock time the search took, in nanoseconds.
+   */
+  public SearchResult(int column, int score, int depth, long nodes,
+      long elapsedNanos) {
+    this(column, score, depth, nodes, elapsedNanos, 0, 0, 0, 0, 0);
+  }
+
+  /**
+   * Constructor takes every field of the result, counters included.
+   * 
+   * @param column
+   *          The best column found, or -1 if there is no legal move.
+   * @param score
+   *          The score of that column for the player to move.
+   * @param depth
+   *          The depth of the search, in plies.
+   * @param nodes
+   *          The number of positions visited.
+   * @param elapsedNanos
+   *          The wall-clock time the search took, in nanoseconds.
+   * @param expandedNodes
+   *          The number of positions whose moves were searched.
+   * @param cutoffs
+   *          The number of expanded positions left early on a beta cutoff.
+   * @param firstMoveCutoffs
+   *          The number of cutoffs caused by the first move tried.
+   * @param tableProbes
+   *          The number of transposition table lookups.
+   * @param tableHits
+   *          The number of lookups that found their position.
+   */
+  SearchResult(int column, int score, int depth, long nodes,
+      long elapsedNanos, long expandedNodes, long cutoffs,
+      long firstMoveCutoffs, long tableProbes, long tableHits) {
+    this.column = column;
+    this.score = score;
+    this.depth = depth;
+    this.nodes = nodes;
+    this.elapsedNanos = elapsedNanos;
+    this.expandedNodes = expandedNodes;
+    this.cutoffs = cutoffs;
+    this.firstMoveCutoffs = firstMoveCutoffs;
+    this.tableProbes = tableProbes;
+    this.tableHits = tableHits;
+  }
+
+  /**
+   * Get the best column found by the search.
+   * 
+   * @return A column number, or -1 if there is no legal move.
+   */
+  public int getColumn() {
+    return column;
+  }
+
+  /**
+   * Get the score of the best column from the point of view of the player to
+   * move. Positive scores are good for that player, 0 means even, and scores
+   * close to <code>SearchEngine.WIN_SCORE</code> are forced wins.
+   * 
+   * @return The score of the best column.
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Get the depth of the search.
+   * 
+   * @return The number of plies searched.
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Get the number of positions visited by the search.
+   * 
+   * @return The node count.
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Get the wall-clock time of the search.
+   * 
+   * @return The elapsed time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Get the search speed.
+   * 
+   * @return The number of nodes visited per second.
+   */
+  public long getNodesPerSecond() {
+    if (elapsedNanos == 0) {
+      return 0;
+    }
+    return nodes * 1000000000L / elapsedNanos;
+  }
+
+  /**
+   * Get the number of positions whose moves were searched, as opposed to
+   * positions settled by a win, the table or the depth limit.
+   * 
+   * @return The expanded node count.
+   */
+  public long getExpandedNodes() {
+    return expandedNodes;
+  }
+
+  /**
+   * Get the number of expanded positions that were left early because a move
+   * was too good for the opponent to allow.
+   * 
+   * @return The beta cutoff count.
+   */
+  public long getCutoffs() {
+    return cutoffs;
+  }
+
+  /**
+   * Get the number of beta cutoffs caused by the first move tried.
+   * 
+   * @return The first-move cutoff count.
+   */
+  public long getFirstMoveCutoffs() {
+    return firstMoveCutoffs;
+  }
+
+  /**
+   * Get the number of transposition table lookups.
+   * 
+   * @return The probe count.
+   */
+  public long getTableProbes() {
+    return tableProbes;
+  }
+
+  /**
+   * Get the number of transposition table lookups that found their position.
+   * 
+   * @return The hit count.
+   */
+  public long getTableHits() {
+    return tableHits;
+  }
+
+  /**
+   * Get the share of table lookups that found their position.
+   * 
+   * @return A number between 0 and 1, or 0 if the table was not used.
+   */
+  public double getTableHitRate() {
+    return tableProbes == 0 ? 0.0 : (double) tableHits / tableProbes;
+  }
+
+  /**
+   * Get the share of expanded positions that were cut off.
+   * 
+   * @return A number between 0 and 1, or 0 if no position was expanded.
+   */
+  public double getCutoffRate() {
+    return expandedNodes == 0 ? 0.0 : (double) cutoffs / expandedNodes;
+  }
+
+  /**
+   * Get the share of cutoffs caused by the first move tried. Close to 1 means
+   * the move ordering puts the refuting move first.
+   * 
+   * @return A number between 0 and 1, or 0 if there was no cutoff.
+   */
+  public double getFirstMoveCutoffRate() {
+    return cutoffs == 0 ? 0.0 : (double) firstMoveCutoffs / cutoffs;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("SearchResult [");
+    sb.append("column = ");
+    sb.append(this.column);
+    sb.append(", score = ");
+    sb.append(this.score);
+    sb.append(", depth = ");
+    sb.append(this.depth);
+    sb.append(", nodes = ");
+    sb.append(this.nodes);
+    sb.append(", time = ");
+    sb.append(this.elapsedNanos / 1000000);
+    sb.append(" ms]");
+    return sb.toString();
+  }
+}
@@ -0,0 +1,280 @@
+package edu.nyu.cs.pqs.connect4;
+
+/**
+ * SimulationResult class is an immutable class that stores the outcome of a
+ * batch of games between two entrants, A and B: how many games each won, how
+ * many were drawn, how many moves they took in total and how long the batch
+ * ran.
+ * 
+ * @author Ke Chen
+ * @see GameSimulator
+ *
+ */
+public class SimulationResult {
+  private final int winsA;
+  private final int winsB;
+  private final int draws;
+  private final long plies;
+  private final long elapsedNanos;
+
+  /**
+   * Constructor takes every field of the result.
+   * 
+   * @param winsA
+   *          The number of games won by A.
+   * @param winsB
+   *          The number of games won by B.
+   * @param draws
+   *          The number of drawn games.
+   * @param plies
+   *          The number of moves of all games together.
+   * @param elapsedNanos
+   *          The wall-clock time of the batch, in nanoseconds.
+   */
+  public SimulationResult(int winsA, int winsB, int draws, long plies,
+      long elapsedNanos) {
+    this.winsA = winsA;
+    this.winsB = winsB;
+    this.draws = draws;
+    this.plies = plies;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Add up two results of the same entrants, as if their games had been
+   * played in one batch. The elapsed time is the longer of the two, since
+   * batches that are combined usually ran side by side.
+   * 
+   * @param other
+   *          Another SimulationResult.
+   * @return The combined result.
+   */
+  public SimulationResult combine(SimulationResult other) {
+    return new SimulationResult(winsA + other.winsA, winsB + other.winsB,
+        draws + other.draws, plies + other.plies,
+        Math.max(elapsedNanos, other.elapsedNanos));
+  }
+
+  /**
+   * Get the number of games played.
+   * 
+   * @return The number of games.
+   */
+  public int getGames() {
+    return winsA + winsB + draws;
+  }
+
+  /**
+   * Get the number of games won by A.
+   * 
+   * @return The win count of A.
+   */
+  public int getWinsA() {
+    return winsA;
+  }
+
+  /**
+   * Get the number of games won by B.
+   * 
+   * @return The win count of B.
+   */
+  public int getWinsB() {
+    return winsB;
+  }
+
+  /**
+   * Get the number of drawn games.
+   * 
+   * @return The draw count.
+   */
+  public int getDraws() {
+    return draws;
+  }
+
+  /**
+   * Get the number of moves of all games together.
+   * 
+   * @return The total number of plies.
+   */
+  public long getPlies() {
+    return plies;
+  }
+
+  /**
+   * Get the wall-clock time of the batch.
+   * 
+   * @return The elapsed time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Get the share of games won by A.
+   * 
+   * @return A number between 0 and 1, or 0 if no game was played.
+   */
+  public double getWinRateA() {
+    return rate(winsA);
+  }
+
+  /**
+   * Get the share of games won by B.
+   * 
+   * @return A number between 0 and 1, or 0 if no game was played.
+   */
+  public double getWinRateB() {
+    return rate(winsB);
+  }
+
+  /**
+   * Get the share of drawn games.
+   * 
+   * @return A number between 0 and 1, or 0 if no game was played.
+   */
+  public double getDrawRate() {
+    return rate(draws);
+  }
+
+  /**
+   * Get the average number of moves of a game.
+   * 
+   * @return The mean game length in plies, or 0 if no game was played.
+   */
+  public double getMeanLength() {
+    int games = getGames();
+    return games == 0 ? 0.0 : (double) plies / games;
+  }
+
+  /**
+   * Get the simulation speed.
+   * 
+   * @return The number of games finished per second.
+   */
+  public double getGamesPerSecond() {
+    if (elapsedNanos == 0) {
+      return 0.0;
+    }
+    return getGames() * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Get the same result seen from B, with the wins of A and B swapped.
+   * 
+   * @return The reversed result.
+   */
+  public SimulationResult reverse() {
+    return new SimulationResult(winsB, winsA, draws, plies, elapsedNanos);
+  }
+
+  /**
+   * Get the score of A, counting a draw as half a win.
+   * 
+   * @return A number between 0 and 1, or 0.5 if no game was played.
+   */
+  public double getScoreA() {
+    int games = getGames();
+    return games == 0 ? 0.5 : (winsA + 0.5 * draws) / games;
+  }
+
+  /**
+   * Get the Elo difference between A and B that explains the score of A. A
+   * score of 0 or 1 is treated as if half a game had gone the other way, so
+   * the estimate stays finite.
+   * 
+   * @return The rating of A minus the rating of B.
+   */
+  public double getEloDifference() {
+    return elo(clamp(getScoreA()));
+  }
+
+  /**
+   * Get the half-width of the 95% confidence interval of
+   * <code>getEloDifference()</code>, from the variance of the score of a
+   * single game. Like <code>getLogLikelihoodRatio</code> the variance counts
+   * one virtual win and one virtual loss, so a one-sided match does not look
+   * exact.
+   * 
+   * @return The margin in Elo points, or infinity if no game was played.
+   */
+  public double getEloMargin() {
+    int games = getGames();
+    if (games == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double score = getScoreA();
+    double error = 1.96 * Math.sqrt(variance(winsA + 1, draws, winsB + 1)
+        / games);
+    return (elo(clamp(score + error)) - elo(clamp(score - error))) / 2;
+  }
+
+  /**
+   * Get the log-likelihood ratio of the hypothesis that A is
+   * <code>elo1</code> points stronger than B against the hypothesis that it
+   * is <code>elo0</code> points stronger, with the normal approximation of the
+   * generalized SPRT. One virtual win and one virtual loss are added to the
+   * games so that a one-sided match, whose variance is 0, still moves the
+   * ratio.
+   * 
+   * @param elo0
+   *          The Elo difference of the null hypothesis.
+   * @param elo1
+   *          The Elo difference of the alternative hypothesis.
+   * @return The log-likelihood ratio, positive in favour of
+   *         <code>elo1</code>.
+   */
+  public double getLogLikelihoodRatio(double elo0, double elo1) {
+    int games = getGames() + 2;
+    double score = (winsA + 1 + 0.5 * draws) / games;
+    double variance = variance(winsA + 1, draws, winsB + 1);
+    double score0 = expectedScore(elo0);
+    double score1 = expectedScore(elo1);
+    return games * (score1 - score0) * (2 * score - score0 - score1)
+        / (2 * variance);
+  }
+
+  /**
+   * Get the expected score of a player rated <code>elo</code> points above
+   * its opponent.
+   * 
+   * @param elo
+   *          The rating difference.
+   * @return The expected score, between 0 and 1.
+   */
+  public static double expectedScore(double elo) {
+    return 1 / (1 + Math.pow(10, -elo / 400));
+  }
+
+  private static double elo(double score) {
+    return -400 * Math.log10(1 / score - 1);
+  }
+
+  private double clamp(double score) {
+    double half = 0.5 / Math.max(1, getGames());
+    return Math.min(1 - half, Math.max(half, score));
+  }
+
+  /**
+   * Return the variance of the score of one game for the given numbers of
+   * wins, draws and losses.
+   */
+  private static double variance(int wins, int draws, int losses) {
+    double games = wins + draws + losses;
+    double mean = (wins + 0.5 * draws) / games;
+    return (wins * (1 - mean) * (1 - mean) + draws * (0.5 - mean)
+        * (0.5 - mean) + losses * mean * mean) / games;
+  }
+
+  private double rate(int count) {
+    int games = getGames();
+    return games == 0 ? 0.0 : (double) count / games;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d games in %.2f s (%.1f games/s): A wins %.1f%%, "
+        + "B wins %.1f%%, draws %.1f%%, mean length %.1f plies", getGames(),
+        elapsedNanos / 1e9, getGamesPerSecond(), 100 * getWinRateA(),
+        100 * getWinRateB(), 100 * getDrawRate(), getMeanLength());
+  }
+}
@@ -0,0 +1,408 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Tournament class plays a round robin between computer entrants without any
+ * window, every pair of entrants meeting the same number of times with
+ * alternating colours, and rates the entrants with the Elo system. Each game
+ * runs as a task of its own, on a virtual thread where the Java runtime has
+ * them and on a pool of platform threads otherwise, and a semaphore keeps no
+ * more than <code>concurrency</code> games in flight.
+ * <p>
+ * With a sequential probability ratio test configured, a pair stops playing
+ * as soon as its games accept or reject the hypothesis that the first entrant
+ * is stronger, which settles a two-entrant match between an engine change and
+ * its baseline in as few games as the evidence allows.
+ * <p>
+ * A game takes a free seat, a GameBoard with players of every entrant created
+ * on it, so players and their tables are built once per concurrent game and
+ * not once per game. The two games of a pair that differ only in colours
+ * start from the same random opening.
+ * 
+ * @author Ke Chen
+ * @see GameSimulator
+ *
+ */
+public class Tournament {
+
+  /**
+   * Verdict represents the outcome of the sequential probability ratio test
+   * of a pair: ACCEPTED if the first entrant was shown to be stronger,
+   * REJECTED if it was shown not to be, and UNDECIDED while the evidence is
+   * not strong enough either way.
+   * 
+   * @author Ke Chen
+   *
+   */
+  public enum Verdict {
+    ACCEPTED, REJECTED, UNDECIDED
+  }
+
+  /**
+   * Builder class is to generate instances of Tournament class. Entrants are
+   * added one by one and at least two are required. Each pair plays 100 games
+   * by default, as many at once as there are processors, with 2 random
+   * opening moves. No test is run unless <code>sprt</code> is called.
+   * 
+   * @author Ke Chen
+   *
+   */
+  public static class Builder {
+    private final List<String> names = new ArrayList<String>();
+    private final List<GameSimulator.Entrant> entrants =
+        new ArrayList<GameSimulator.Entrant>();
+    private int gamesPerPair = 100;
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private int openingPlies = 2;
+    private boolean sprt = false;
+    private double elo0;
+    private double elo1;
+    private double alpha;
+    private double beta;
+
+    public Builder entrant(String spec) {
+      return entrant(spec, GameSimulator.entrant(spec));
+    }
+
+    Builder entrant(String name, GameSimulator.Entrant entrant) {
+      this.names.add(name);
+      this.entrants.add(entrant);
+      return this;
+    }
+
+    public Builder gamesPerPair(int gamesPerPair) {
+      this.gamesPerPair = gamesPerPair;
+      return this;
+    }
+
+    public Builder concurrency(int concurrency) {
+      this.concurrency = concurrency;
+      return this;
+    }
+
+    public Builder openingPlies(int openingPlies) {
+      this.openingPlies = openingPlies;
+      return this;
+    }
+
+    public Builder sprt(double elo0, double elo1, double alpha, double beta) {
+      this.sprt = true;
+      this.elo0 = elo0;
+      this.elo1 = elo1;
+      this.alpha = alpha;
+      this.beta = beta;
+      return this;
+    }
+
+    public Tournament build() {
+      if (entrants.size() < 2) {
+        throw new IllegalArgumentException("a tournament needs two entrants");
+      }
+      if (gamesPerPair < 1 || concurrency < 1 || openingPlies < 0) {
+        throw new IllegalArgumentException("bad tournament settings");
+      }
+      if (sprt && (elo1 <= elo0 || alpha <= 0 || alpha >= 1 || beta <= 0
+          || beta >= 1)) {
+        throw new IllegalArgumentException("bad SPRT settings");
+      }
+      return new Tournament(this);
+    }
+  }
+
+  /**
+   * Seat class holds one GameBoard and, created on first use, a player of
+   * every entrant and colour making its moves on it.
+   */
+  private class Seat {
+    private final GameBoard gameBoard = new GameBoard();
+    private final Player[][] players = new Player[names.size()][2];
+
+    private Player player(int entrant, int side) {
+      if (players[entrant][side] == null) {
+        players[entrant][side] = entrants.get(entrant).createPlayer(
+            names.get(entrant), side == 0 ? PlayerType.PLAYER1
+                : PlayerType.PLAYER2, gameBoard);
+      }
+      return players[entrant][side];
+    }
+  }
+
+  private final List<String> names;
+  private final List<GameSimulator.Entrant> entrants;
+  private final int gamesPerPair;
+  private final int concurrency;
+  private final int openingPlies;
+  private final boolean sprt;
+  private final double elo0;
+  private final double elo1;
+  private final double lowerBound;
+  private final double upperBound;
+  private final int[][] pairs;
+  private final SimulationResult[] results;
+  private final Verdict[] verdicts;
+  private final Queue<Seat> seats = new ConcurrentLinkedQueue<Seat>();
+  private volatile RuntimeException failure = null;
+  private long elapsedNanos = 0;
+
+  private Tournament(Builder builder) {
+    this.names = new ArrayList<String>(builder.names);
+    this.entrants = new ArrayList<GameSimulator.Entrant>(builder.entrants);
+    this.gamesPerPair = builder.gamesPerPair;
+    this.concurrency = builder.concurrency;
+    this.openingPlies = builder.openingPlies;
+    this.sprt = builder.sprt;
+    this.elo0 = builder.elo0;
+    this.elo1 = builder.elo1;
+    this.lowerBound = Math.log(builder.beta / (1 - builder.alpha));
+    this.upperBound = Math.log((1 - builder.beta) / builder.alpha);
+    int n = names.size();
+    this.pairs = new int[n * (n - 1) / 2][];
+    int p = 0;
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        pairs[p++] = new int[] { i, j };
+      }
+    }
+    this.results = new SimulationResult[pairs.length];
+    this.verdicts = new Verdict[pairs.length];
+    for (p = 0; p < pairs.length; p++) {
+      results[p] = new SimulationResult(0, 0, 0, 0, 0);
+      verdicts[p] = Verdict.UNDECIDED;
+    }
+  }
+
+  /**
+   * Play the tournament. Games are handed out round by round, one game of
+   * every undecided pair per round, until every pair has played its games or
+   * reached a verdict. The call returns when the last game has finished.
+   * 
+   * @throws IllegalStateException
+   *           If a game fails, for example because a player made an illegal
+   *           move.
+   */
+  public void run() {
+    long start = System.nanoTime();
+    final Semaphore permits = new Semaphore(concurrency);
+    ExecutorService executor = newGameExecutor(concurrency);
+    try {
+      for (int round = 0; round < gamesPerPair && failure == null; round++) {
+        for (int p = 0; p < pairs.length; p++) {
+          if (getVerdict(p) != Verdict.UNDECIDED) {
+            continue;
+          }
+          permits.acquireUninterruptibly();
+          if (failure != null) {
+            permits.release();
+            break;
+          }
+          final int pair = p;
+          final int game = round;
+          executor.execute(new Runnable() {
+            @Override
+            public void run() {
+              try {
+                playGame(pair, game);
+              } catch (RuntimeException e) {
+                failure = e;
+              } finally {
+                permits.release();
+              }
+            }
+          });
+        }
+      }
+      permits.acquireUninterruptibly(concurrency);
+    } finally {
+      executor.shutdown();
+    }
+    synchronized (this) {
+      elapsedNanos = System.nanoTime() - start;
+    }
+    if (failure != null) {
+      throw new IllegalStateException("tournament game failed", failure);
+    }
+  }
+
+  /**
+   * Play game number <code>game</code> of a pair on a free seat. The first
+   * entrant of the pair moves first in even games, and games 2k and 2k + 1
+   * share their opening.
+   */
+  private void playGame(int pair, int game) {
+    Seat seat = seats.poll();
+    if (seat == null) {
+      seat = new Seat();
+    }
+    try {
+      int first = pairs[pair][game % 2];
+      int second = pairs[pair][1 - game % 2];
+      Player player1 = seat.player(first, 0);
+      Player player2 = seat.player(second, 1);
+      PlayoutEngine random = new PlayoutEngine(
+          (long) pair * 0x9E3779B97F4A7C15L + game / 2 + 1);
+      seat.gameBoard.resetBoard();
+      Player winner = GameSimulator.playGame(seat.gameBoard, player1, player2,
+          random, openingPlies);
+      int plies = seat.gameBoard.getMoveCount();
+      boolean firstWon = winner == (game % 2 == 0 ? player1 : player2);
+      if (winner == null) {
+        record(pair, new SimulationResult(0, 0, 1, plies, 0));
+      }
+      else if (firstWon) {
+        record(pair, new SimulationResult(1, 0, 0, plies, 0));
+      }
+      else {
+        record(pair, new SimulationResult(0, 1, 0, plies, 0));
+      }
+    } finally {
+      seats.offer(seat);
+    }
+  }
+
+  private synchronized void record(int pair, SimulationResult game) {
+    results[pair] = results[pair].combine(game);
+    if (sprt && verdicts[pair] == Verdict.UNDECIDED) {
+      double llr = results[pair].getLogLikelihoodRatio(elo0, elo1);
+      if (llr >= upperBound) {
+        verdicts[pair] = Verdict.ACCEPTED;
+      }
+      else if (llr <= lowerBound) {
+        verdicts[pair] = Verdict.REJECTED;
+      }
+    }
+  }
+
+  /**
+   * Get the number of entrants.
+   * 
+   * @return The entrant count.
+   */
+  public int getEntrantCount() {
+    return names.size();
+  }
+
+  /**
+   * Get the games between two entrants, seen from the first of them.
+   * 
+   * @param a
+   *          The index of one entrant, in the order they were added.
+   * @param b
+   *          The index of another entrant.
+   * @return The SimulationResult of the pair, with <code>a</code> as A.
+   */
+  public synchronized SimulationResult getResult(int a, int b) {
+    for (int p = 0; p < pairs.length; p++) {
+      if (pairs[p][0] == a && pairs[p][1] == b) {
+        return results[p];
+      }
+      if (pairs[p][0] == b && pairs[p][1] == a) {
+        return results[p].reverse();
+      }
+    }
+    throw new IllegalArgumentException("no pair " + a + ", " + b);
+  }
+
+  /**
+   * Get all games of an entrant against the rest of the field, seen from the
+   * entrant. Its Elo difference is its rating relative to the average
+   * opponent.
+   * 
+   * @param a
+   *          The index of the entrant.
+   * @return The SimulationResult of the entrant as A.
+   */
+  public synchronized SimulationResult getStanding(int a) {
+    SimulationResult standing = new SimulationResult(0, 0, 0, 0, elapsedNanos);
+    for (int b = 0; b < names.size(); b++) {
+      if (b != a) {
+        standing = standing.combine(getResult(a, b));
+      }
+    }
+    return standing;
+  }
+
+  /**
+   * Get the verdict of the sequential probability ratio test of two
+   * entrants, for the hypothesis that <code>a</code> is stronger than
+   * <code>b</code>.
+   * 
+   * @param a
+   *          The index of one entrant.
+   * @param b
+   *          The index of another entrant.
+   * @return The Verdict, always UNDECIDED if no test is configured.
+   */
+  public synchronized Verdict getVerdict(int a, int b) {
+    for (int p = 0; p < pairs.length; p++) {
+      if (pairs[p][0] == a && pairs[p][1] == b) {
+        return verdicts[p];
+      }
+      if (pairs[p][0] == b && pairs[p][1] == a) {
+        return verdicts[p] == Verdict.ACCEPTED ? Verdict.REJECTED
+            : verdicts[p] == Verdict.REJECTED ? Verdict.ACCEPTED
+                : Verdict.UNDECIDED;
+      }
+    }
+    throw new IllegalArgumentException("no pair " + a + ", " + b);
+  }
+
+  private synchronized Verdict getVerdict(int pair) {
+    return verdicts[pair];
+  }
+
+  /**
+   * Print the standings, with an Elo estimate and its 95% confidence interval
+   * for every entrant, and the result of every pair.
+   * 
+   * @param out
+   *          The stream to print to.
+   */
+  public synchronized void report(PrintStream out) {
+    out.printf("Tournament of %d entrants in %.2f s%n", names.size(),
+        elapsedNanos / 1e9);
+    for (int a = 0; a < names.size(); a++) {
+      SimulationResult standing = getStanding(a);
+      out.printf("%-12s %5d games %5.1f%% Elo %+7.1f +/- %.1f%n",
+          names.get(a), standing.getGames(), 100 * standing.getScoreA(),
+          standing.getEloDifference(), standing.getEloMargin());
+    }
+    for (int p = 0; p < pairs.length; p++) {
+      SimulationResult result = results[p];
+      out.printf("%s vs %s: +%d =%d -%d, Elo %+.1f +/- %.1f",
+          names.get(pairs[p][0]), names.get(pairs[p][1]), result.getWinsA(),
+          result.getDraws(), result.getWinsB(), result.getEloDifference(),
+          result.getEloMargin());
+      if (sprt) {
+        out.printf(", LLR %.2f [%.2f, %.2f] %s",
+            result.getLogLikelihoodRatio(elo0, elo1), lowerBound, upperBound,
+            verdicts[p]);
+      }
+      out.println();
+    }
+  }
+
+  /**
+   * Return an executor that starts a virtual thread per task if the Java
+   * runtime has them, and a pool of <code>threads</code> platform threads
+   * otherwise. The project is compiled for Java 11 (see .settings), which has
+   * no virtual threads, so the factory method is found by reflection.
+   */
+  private static ExecutorService newGameExecutor(int threads) {
+    try {
+      Method method = Executors.class.getMethod(
+          "newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(threads);
+    }
+  }
+}
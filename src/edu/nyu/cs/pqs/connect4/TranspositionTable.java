@@ -0,0 +1,243 @@
+package edu.nyu.cs.pqs.connect4;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TranspositionTable class is a fixed-size cache of search results keyed by
+ * position hash. It is made of two <code>long</code> arrays, one for the keys
+ * and one for the packed entries, so it never allocates after construction.
+ * <p>
+ * The table is lock-free and can be shared by several search threads. Every
+ * slot stores the key XOR-ed with its entry; a probe only accepts a slot if
+ * un-XOR-ing the entry gives back the key it looks for. A slot that is being
+ * written by another thread, or was torn by two threads writing at once, fails
+ * that check and is simply seen as a miss.
+ * <p>
+ * Each key maps to exactly one slot. A new result replaces the stored one if
+ * it is for the same position, if the stored one comes from an earlier search,
+ * or if it was searched at least as deep (depth-preferred replacement).
+ * 
+ * @author Ke Chen
+ * @see SearchEngine
+ *
+ */
+public class TranspositionTable {
+
+  /** The stored score is the exact score of the position. */
+  public static final int EXACT = 0;
+  /** The stored score is a lower bound: the search failed high. */
+  public static final int LOWER = 1;
+  /** The stored score is an upper bound: the search failed low. */
+  public static final int UPPER = 2;
+
+  /** Returned by <code>probe()</code> when the position is not stored. */
+  public static final long MISS = 0L;
+
+  private static final int SCORE_BITS = 32;
+  private static final int DEPTH_SHIFT = 32;
+  private static final int BOUND_SHIFT = 40;
+  private static final int MOVE_SHIFT = 42;
+  private static final int GENERATION_SHIFT = 46;
+  private static final long VALID = 1L << 62;
+  private static final int NO_MOVE = 0xF;
+
+  private final long[] keys;
+  private final long[] entries;
+  private final int indexMask;
+  private volatile int generation;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder overwrites = new LongAdder();
+
+  /**
+   * Create a table with room for at least <code>capacity</code> entries. The
+   * capacity is rounded up to a power of two.
+   * 
+   * @param capacity
+   *          The minimal number of entries, at least 1.
+   */
+  public TranspositionTable(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity out of range: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.keys = new long[size];
+    this.entries = new long[size];
+    this.indexMask = size - 1;
+    this.generation = 0;
+  }
+
+  /**
+   * Look up the entry stored for <code>key</code>.
+   * 
+   * @param key
+   *          The hash of the position.
+   * @return The packed entry, to be read with <code>score()</code>,
+   *         <code>depth()</code>, <code>bound()</code> and <code>move()</code>,
+   *         or <code>MISS</code> if the position is not stored.
+   */
+  public long probe(long key) {
+    int index = (int) key & indexMask;
+    long entry = entries[index];
+    if (entry != MISS && (keys[index] ^ entry) == key) {
+      hits.increment();
+      return entry;
+    }
+    misses.increment();
+    return MISS;
+  }
+
+  /**
+   * Store a search result for <code>key</code>, following the replacement
+   * rule of this table.
+   * 
+   * @param key
+   *          The hash of the position.
+   * @param score
+   *          The score found by the search.
+   * @param depth
+   *          The remaining depth the position was searched to, 0 to 255.
+   * @param bound
+   *          One of <code>EXACT</code>, <code>LOWER</code> or
+   *          <code>UPPER</code>.
+   * @param move
+   *          The best column found, or -1 if there is none.
+   */
+  public void store(long key, int score, int depth, int bound, int move) {
+    int index = (int) key & indexMask;
+    long old = entries[index];
+    int currentGeneration = generation;
+    if (old != MISS) {
+      boolean samePosition = (keys[index] ^ old) == key;
+      if (!samePosition && generationOf(old) == (currentGeneration & 0xFF)
+          && depth(old) > depth) {
+        return;
+      }
+      if (!samePosition) {
+        overwrites.increment();
+      }
+    }
+    long entry = VALID
+        | ((long) (currentGeneration & 0xFF) << GENERATION_SHIFT)
+        | ((long) (move < 0 ? NO_MOVE : move) << MOVE_SHIFT)
+        | ((long) bound << BOUND_SHIFT)
+        | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+        | (score & ((1L << SCORE_BITS) - 1));
+    entries[index] = entry;
+    keys[index] = key ^ entry;
+  }
+
+  /**
+   * Start a new search. Entries of earlier searches stay readable but may be
+   * replaced by any new result.
+   */
+  public void newSearch() {
+    generation++;
+  }
+
+  /**
+   * Remove every entry and reset the counters.
+   */
+  public void clear() {
+    Arrays.fill(entries, MISS);
+    Arrays.fill(keys, 0L);
+    hits.reset();
+    misses.reset();
+    overwrites.reset();
+  }
+
+  /**
+   * Get the number of entries this table can hold.
+   * 
+   * @return The capacity of the table.
+   */
+  public int getCapacity() {
+    return entries.length;
+  }
+
+  /**
+   * Get the number of probes that found their position.
+   * 
+   * @return The hit count.
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Get the number of probes that did not find their position.
+   * 
+   * @return The miss count.
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Get the number of stores that replaced the entry of another position.
+   * 
+   * @return The overwrite count.
+   */
+  public long getOverwrites() {
+    return overwrites.sum();
+  }
+
+  /**
+   * Get the score of a packed entry.
+   * 
+   * @param entry
+   *          An entry returned by <code>probe()</code>.
+   * @return The stored score.
+   */
+  public static int score(long entry) {
+    return (int) entry;
+  }
+
+  /**
+   * Get the depth of a packed entry.
+   * 
+   * @param entry
+   *          An entry returned by <code>probe()</code>.
+   * @return The remaining depth the position was searched to.
+   */
+  public static int depth(long entry) {
+    return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+  }
+
+  /**
+   * Get the bound type of a packed entry.
+   * 
+   * @param entry
+   *          An entry returned by <code>probe()</code>.
+   * @return One of <code>EXACT</code>, <code>LOWER</code> or
+   *         <code>UPPER</code>.
+   */
+  public static int bound(long entry) {
+    return (int) (entry >>> BOUND_SHIFT) & 0x3;
+  }
+
+  /**
+   * Get the best move of a packed entry.
+   * 
+   * @param entry
+   *          An entry returned by <code>probe()</code>.
+   * @return The best column, or -1 if none was stored or the entry is
+   *         <code>MISS</code>.
+   */
+  public static int move(long entry) {
+    if (entry == MISS) {
+      return -1;
+    }
+    int move = (int) (entry >>> MOVE_SHIFT) & 0xF;
+    return move == NO_MOVE ? -1 : move;
+  }
+
+  private static int generationOf(long entry) {
+    return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+  }
+}
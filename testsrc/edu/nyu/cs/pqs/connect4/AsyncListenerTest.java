@@ -0,0 +1,259 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for AsyncListener class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class AsyncListenerTest {
+
+  private Player player;
+  private List<Runnable> tasks;
+  private RecordingListener listener;
+  private AsyncListener async;
+
+  /**
+   * Wrap a recording listener with a queue of 3 events, delivered only when
+   * the test runs the tasks of the executor.
+   */
+  @Before
+  public void setup() {
+    player = new HumanPlayer.Builder(PlayerType.PLAYER1).build();
+    tasks = new ArrayList<Runnable>();
+    listener = new RecordingListener();
+    async = new AsyncListener(listener, 3, new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        tasks.add(command);
+      }
+    });
+  }
+
+  /**
+   * Run the delivery tasks handed to the executor so far.
+   */
+  private void runTasks() {
+    List<Runnable> pending = new ArrayList<Runnable>(tasks);
+    tasks.clear();
+    for (Runnable task : pending) {
+      task.run();
+    }
+  }
+
+  /**
+   * Test if events wait in the queue and are delivered in order by a single
+   * task.
+   */
+  @Test
+  public void testDelivery() {
+    async.mouseClickEachColume(player, new Coordinate(5, 3));
+    async.switchTurnTo(player);
+    assertTrue(listener.events.isEmpty());
+    assertEquals(2, async.getQueued());
+    assertEquals(1, tasks.size());
+    runTasks();
+    assertEquals("move 3", listener.events.get(0));
+    assertEquals("turn", listener.events.get(1));
+    assertEquals(2, async.getDelivered());
+    assertEquals(0, async.getQueued());
+    assertTrue(async.getMaxLagNanos() > 0);
+  }
+
+  /**
+   * Test if a mouse entering and leaving a column before delivery cancel
+   * each other.
+   */
+  @Test
+  public void testHoverCoalescing() {
+    async.mouseInEachColume(player, 2);
+    async.mouseOutEachColume(player, 2);
+    async.mouseInEachColume(player, 4);
+    runTasks();
+    assertEquals(1, listener.events.size());
+    assertEquals("in 4", listener.events.get(0));
+    assertEquals(2, async.getCoalesced());
+  }
+
+  /**
+   * Test if a full queue drops a queued hover event to make room, then drops
+   * new hover events but still takes any other event.
+   */
+  @Test
+  public void testFullQueue() {
+    async.mouseInEachColume(player, 1);
+    async.mouseClickEachColume(player, new Coordinate(5, 1));
+    async.switchTurnTo(player);
+    async.gameTie();
+    assertEquals(1, async.getDropped());
+    async.mouseInEachColume(player, 2);
+    assertEquals(2, async.getDropped());
+    async.closeWindow();
+    assertEquals(2, async.getDropped());
+    runTasks();
+    assertEquals(4, listener.events.size());
+    assertEquals("move 1", listener.events.get(0));
+    assertEquals("tie", listener.events.get(2));
+    assertEquals("close", listener.events.get(3));
+  }
+
+  /**
+   * Test if a queue filled with moves, turns and results grows past its
+   * capacity rather than drop any of them.
+   */
+  @Test
+  public void testFullQueue_noHoverEvents() {
+    for (int i = 0; i < 10; i++) {
+      async.mouseClickEachColume(player, new Coordinate(5, i % 7));
+      async.switchTurnTo(player);
+    }
+    async.gameOverWithWinner(player);
+    assertEquals(0, async.getDropped());
+    assertEquals(21, async.getQueued());
+    assertEquals(21, async.getMaxQueued());
+    runTasks();
+    assertEquals(21, listener.events.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals("move " + i % 7, listener.events.get(2 * i));
+      assertEquals("turn", listener.events.get(2 * i + 1));
+    }
+    assertEquals("win", listener.events.get(20));
+  }
+
+  /**
+   * Test if an exception of the listener is counted and does not stop the
+   * delivery of later events.
+   */
+  @Test
+  public void testFailingListener() {
+    async.columeFull(player);
+    async.switchTurnTo(player);
+    runTasks();
+    assertEquals(1, async.getFailures());
+    assertEquals(2, async.getDelivered());
+    assertEquals("turn", listener.events.get(0));
+  }
+
+  /**
+   * Test if an error of the listener is counted and thrown on, and the
+   * events queued behind it are still delivered by a new task.
+   */
+  @Test
+  public void testListenerError() {
+    async.gameOverWithWinner(null);
+    async.switchTurnTo(player);
+    try {
+      runTasks();
+      fail("error not thrown on");
+    } catch (AssertionError e) {
+      assertEquals("no winner", e.getMessage());
+    }
+    assertEquals(1, async.getFailures());
+    assertEquals(1, tasks.size());
+    runTasks();
+    assertEquals("turn", listener.events.get(0));
+    assertEquals(0, async.getQueued());
+    async.gameTie();
+    assertEquals(1, tasks.size());
+  }
+
+  /**
+   * Test if a delivery refused by the executor is counted and the events are
+   * delivered with the next one.
+   */
+  @Test
+  public void testRejectedDelivery() {
+    final boolean[] reject = { true };
+    async = new AsyncListener(listener, 3, new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        if (reject[0]) {
+          throw new RejectedExecutionException();
+        }
+        tasks.add(command);
+      }
+    });
+    async.switchTurnTo(player);
+    assertEquals(1, async.getRejections());
+    assertEquals(1, async.getQueued());
+    reject[0] = false;
+    async.gameTie();
+    runTasks();
+    assertEquals(2, listener.events.size());
+    assertEquals("turn", listener.events.get(0));
+    assertEquals("tie", listener.events.get(1));
+  }
+
+  /**
+   * RecordingListener class records the events it gets, fails on a full
+   * column and throws an error on a win without a winner.
+   */
+  private static class RecordingListener implements ConnectFourListener {
+    private final List<String> events = new ArrayList<String>();
+
+    @Override
+    public void gameStart() {
+      events.add("start");
+    }
+
+    @Override
+    public void mouseInEachColume(Player whichPlayer, int col) {
+      events.add("in " + col);
+    }
+
+    @Override
+    public void mouseOutEachColume(Player whichPlayer, int col) {
+      events.add("out " + col);
+    }
+
+    @Override
+    public void mouseClickEachColume(Player whichPlayer, Coordinate pos) {
+      events.add("move " + pos.getY());
+    }
+
+    @Override
+    public void takeBackMove(Player whichPlayer, Coordinate pos) {
+      events.add("back " + pos.getY());
+    }
+
+    @Override
+    public void switchTurnTo(Player whichPlayer) {
+      events.add("turn");
+    }
+
+    @Override
+    public void gameOverWithWinner(Player whichPlayer) {
+      if (whichPlayer == null) {
+        throw new AssertionError("no winner");
+      }
+      events.add("win");
+    }
+
+    @Override
+    public void gameTie() {
+      events.add("tie");
+    }
+
+    @Override
+    public void columeFull(Player whichPlayer) {
+      throw new IllegalStateException("full");
+    }
+
+    @Override
+    public void closeWindow() {
+      events.add("close");
+    }
+  }
+}
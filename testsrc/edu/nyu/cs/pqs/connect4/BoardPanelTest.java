@@ -0,0 +1,113 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for BoardPanel class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class BoardPanelTest {
+
+  private BoardPanel boardPanel;
+
+  /**
+   * Create an empty board panel for each test.
+   */
+  @Before
+  public void setup() throws IOException {
+    boardPanel = new BoardPanel();
+  }
+
+  /**
+   * Test if the panel is as large as the header row and the cells of the
+   * board.
+   */
+  @Test
+  public void testPreferredSize() {
+    Dimension size = boardPanel.getPreferredSize();
+    assertEquals(GameBoard.COLNUM * BoardPanel.CELL_SIZE, size.width);
+    assertEquals(BoardPanel.HEADER_HEIGHT
+        + GameBoard.ROWNUM * BoardPanel.CELL_SIZE, size.height);
+  }
+
+  /**
+   * Test if the column under a position is found, and -1 is returned outside
+   * the board.
+   */
+  @Test
+  public void testColumnAt() {
+    assertEquals(0, boardPanel.columnAt(0));
+    assertEquals(0, boardPanel.columnAt(BoardPanel.CELL_SIZE - 1));
+    assertEquals(1, boardPanel.columnAt(BoardPanel.CELL_SIZE));
+    assertEquals(GameBoard.COLNUM - 1,
+        boardPanel.columnAt(GameBoard.COLNUM * BoardPanel.CELL_SIZE - 1));
+    assertEquals(-1, boardPanel.columnAt(-1));
+    assertEquals(-1,
+        boardPanel.columnAt(GameBoard.COLNUM * BoardPanel.CELL_SIZE));
+  }
+
+  /**
+   * Test if the cells and header slots do not overlap and the bottom cell
+   * ends at the bottom of the panel.
+   */
+  @Test
+  public void testBounds() {
+    Rectangle header = boardPanel.getHeaderBounds(3);
+    Rectangle top = boardPanel.getCellBounds(0, 3);
+    Rectangle bottom = boardPanel.getCellBounds(GameBoard.ROWNUM - 1, 3);
+    assertFalse(header.intersects(top));
+    assertEquals(header.x, top.x);
+    assertEquals(boardPanel.getPreferredSize().height,
+        bottom.y + bottom.height);
+  }
+
+  /**
+   * Test if filling a cell is remembered and changes only the pixels of that
+   * cell.
+   */
+  @Test
+  public void testSetCell() throws IOException {
+    BufferedImage before = paint();
+    boardPanel.setCell(5, 2, ImageCache.getIcon(ImageCache.RED_CELL));
+    assertTrue(boardPanel.isFilled(5, 2));
+    assertFalse(boardPanel.isFilled(4, 2));
+    BufferedImage after = paint();
+    Rectangle cell = boardPanel.getCellBounds(5, 2);
+    boolean changed = false;
+    for (int x = 0; x < before.getWidth(); x++) {
+      for (int y = 0; y < before.getHeight(); y++) {
+        if (before.getRGB(x, y) != after.getRGB(x, y)) {
+          assertTrue(cell.contains(x, y));
+          changed = true;
+        }
+      }
+    }
+    assertTrue(changed);
+    boardPanel.setCell(5, 2, null);
+    assertFalse(boardPanel.isFilled(5, 2));
+  }
+
+  private BufferedImage paint() {
+    Dimension size = boardPanel.getPreferredSize();
+    boardPanel.setSize(size);
+    BufferedImage image = new BufferedImage(size.width, size.height,
+        BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    boardPanel.paint(g);
+    g.dispose();
+    return image;
+  }
+}
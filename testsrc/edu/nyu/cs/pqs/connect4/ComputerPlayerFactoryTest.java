@@ -48,4 +48,85 @@ public class ComputerPlayerFactoryTest {
     assertEquals(player.getName(), "Computer");
     assertNotEquals(player.getName(), "AnotherComputer");
   }
+
+  /**
+   * Test if the computerFactory produces a ComputerPlayer that makes its moves
+   * on the given game board.
+   */
+  @Test
+  public void testCreatePlayer_withGameBoard() {
+    GameBoard gameBoard = new GameBoard();
+    Player player = computerFactory.createPlayer("Computer",
+        PlayerType.COMPUTER, gameBoard);
+    assertSame(gameBoard, player.getGameBoard());
+  }
+
+  /**
+   * Test if the computerFactory refuses to hand its ComputerPlayer out for
+   * another game board.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testCreatePlayer_otherGameBoard() {
+    computerFactory.createPlayer("Computer", PlayerType.COMPUTER,
+        new GameBoard());
+    computerFactory.createPlayer("Computer", PlayerType.COMPUTER,
+        new GameBoard());
+  }
+
+  /**
+   * Test if the difficulty given to the factory decides the search depth of
+   * the produced ComputerPlayer.
+   */
+  @Test
+  public void testCreatePlayer_difficulty() {
+    ComputerPlayerFactory hardFactory = new ComputerPlayerFactory(
+        new ComputerPlayer.Builder(PlayerType.COMPUTER)
+            .difficulty(Difficulty.HARD));
+    ComputerPlayer player = (ComputerPlayer) hardFactory.createPlayer(
+        "Computer", PlayerType.COMPUTER);
+    assertEquals(Difficulty.HARD.getDepth(), player.getDepth());
+    ComputerPlayer defaultPlayer = (ComputerPlayer) computerFactory
+        .createPlayer("Computer", PlayerType.COMPUTER);
+    assertEquals(Difficulty.MEDIUM.getDepth(), defaultPlayer.getDepth());
+  }
+
+  /**
+   * Test if the thread count given to the factory reaches the produced
+   * ComputerPlayer.
+   */
+  @Test
+  public void testCreatePlayer_threads() {
+    ComputerPlayerFactory parallelFactory = new ComputerPlayerFactory(
+        new ComputerPlayer.Builder(PlayerType.COMPUTER)
+            .difficulty(Difficulty.HARD).threads(4));
+    ComputerPlayer player = (ComputerPlayer) parallelFactory.createPlayer(
+        "Computer", PlayerType.COMPUTER);
+    assertEquals(4, player.getThreads());
+  }
+
+  /**
+   * Test if the name and type given to createPlayer() override the ones of
+   * the builder, and its other settings reach the produced ComputerPlayer.
+   */
+  @Test
+  public void testCreatePlayer_builder() {
+    ComputerPlayerFactory factory = new ComputerPlayerFactory(
+        new ComputerPlayer.Builder(PlayerType.PLAYER1).name("Builder")
+            .depth(3).timeBudget(50));
+    ComputerPlayer player = (ComputerPlayer) factory.createPlayer("Computer",
+        PlayerType.COMPUTER);
+    assertEquals("Computer", player.getName());
+    assertEquals(PlayerType.COMPUTER, player.getType());
+    assertEquals(3, player.getDepth());
+    assertEquals(50, player.getTimeBudgetMillis());
+  }
+
+  /**
+   * Test if a negative search depth is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreatePlayer_negativeDepth() {
+    new ComputerPlayerFactory(new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .depth(-1)).createPlayer("Computer", PlayerType.COMPUTER);
+  }
 }
@@ -18,13 +18,13 @@ public class ComputerPlayerTest {
   private ComputerPlayer computer2;
 
   /**
-   * Get the singleton instance of the GameBoard and create two ComputerPlayer
-   * objects for each test.
+   * Create a new GameBoard and two ComputerPlayer objects for each test.
    */
   @Before
   public void setup() {
-    gameBoard = GameBoard.getInstance();
-    computer1 = new ComputerPlayer("Computer1", PlayerType.COMPUTER);
+    gameBoard = new GameBoard();
+    computer1 = new ComputerPlayer("Computer1", PlayerType.COMPUTER,
+        gameBoard);
     computer2 = new ComputerPlayer("Computer2", PlayerType.COMPUTER);
   }
 
@@ -43,7 +43,7 @@ public class ComputerPlayerTest {
    */
   private void setBoardToMakeComputerWin() {
     ComputerPlayer computer = new ComputerPlayer("Computer1",
-        PlayerType.COMPUTER);
+        PlayerType.COMPUTER, gameBoard);
     for (int i = 0; i < 3; i++) {
       gameBoard.setBoard(0, computer);
     }
@@ -106,4 +106,137 @@ public class ComputerPlayerTest {
     assertEquals(2, board[2][0]);
     assertTrue(gameBoard.isWin(pos, computer1));
   }
+
+  /**
+   * Test if the ComputerPlayer blocks the winning move of its opponent and
+   * reports the search it made.
+   */
+  @Test
+  public void testMakeMove_blockOpponentWin() {
+    HumanPlayer human = new HumanPlayer.Builder(PlayerType.PLAYER1)
+        .gameBoard(gameBoard).build();
+    for (int j = 0; j < 3; j++) {
+      gameBoard.setBoard(j, human);
+    }
+    gameBoard.setBoard(6, computer1);
+    Coordinate pos = computer1.makeMove(-1);
+    assertEquals(5, pos.getX());
+    assertEquals(3, pos.getY());
+    SearchResult result = computer1.getLastSearchResult();
+    assertEquals(3, result.getColumn());
+    assertTrue(result.getDepth() >= 1);
+    assertTrue(result.getDepth() <= computer1.getDepth());
+    assertTrue(result.getNodes() > 0);
+  }
+
+  /**
+   * Test if the EASY ComputerPlayer still drops a piece without searching.
+   */
+  @Test
+  public void testMakeMove_easy() {
+    ComputerPlayer easy = new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).difficulty(Difficulty.EASY).build();
+    Coordinate pos = easy.makeMove(-1);
+    assertEquals(5, pos.getX());
+    assertNull(easy.getLastSearchResult());
+  }
+
+  /**
+   * Test if a ComputerPlayer with a time budget answers shortly after its
+   * deadline even though its depth cannot be reached in time.
+   */
+  @Test
+  public void testMakeMove_timeBudget() {
+    ComputerPlayer timed = new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).depth(GameBoard.ROWNUM * GameBoard.COLNUM)
+        .timeBudget(100).build();
+    long start = System.currentTimeMillis();
+    Coordinate pos = timed.makeMove(-1);
+    long elapsed = System.currentTimeMillis() - start;
+    assertTrue(elapsed < 1000);
+    assertEquals(5, pos.getX());
+    SearchResult result = timed.getLastSearchResult();
+    assertTrue(result.getDepth() >= 1);
+    assertTrue(result.getElapsedNanos() >= 100 * 1000000L);
+  }
+
+  /**
+   * Test if a pondering ComputerPlayer predicts a reply and, when the
+   * opponent plays it, answers with the result of the background search.
+   */
+  @Test
+  public void testMakeMove_ponderHit() throws InterruptedException {
+    ComputerPlayer ponderer = new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).depth(6).ponder(true).build();
+    HumanPlayer human = new HumanPlayer.Builder(PlayerType.PLAYER1)
+        .gameBoard(gameBoard).build();
+    human.makeMove(3);
+    ponderer.makeMove(-1);
+    int reply = ponderer.getPonderMove();
+    assertTrue(reply >= 0 && reply < GameBoard.COLNUM);
+    Thread.sleep(200);
+
+    human.makeMove(reply);
+    ponderer.makeMove(-1);
+    assertEquals(1, ponderer.getPonderSearches());
+    assertEquals(1, ponderer.getPonderHits());
+    assertEquals(1.0, ponderer.getPonderHitRate(), 0.0);
+    assertTrue(ponderer.getLastSearchResult().getElapsedNanos() > 0);
+    ponderer.stopPondering();
+    assertEquals(-1, ponderer.getPonderMove());
+  }
+
+  /**
+   * Test if a reply other than the predicted one counts as a ponder miss and
+   * is still answered with a full search.
+   */
+  @Test
+  public void testMakeMove_ponderMiss() {
+    ComputerPlayer ponderer = new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).depth(6).ponder(true).build();
+    HumanPlayer human = new HumanPlayer.Builder(PlayerType.PLAYER1)
+        .gameBoard(gameBoard).build();
+    human.makeMove(3);
+    ponderer.makeMove(-1);
+    int reply = ponderer.getPonderMove();
+    human.makeMove(reply == 0 ? 6 : 0);
+    ponderer.makeMove(-1);
+    assertEquals(1, ponderer.getPonderSearches());
+    assertEquals(0, ponderer.getPonderHits());
+    assertEquals(6, ponderer.getLastSearchResult().getDepth());
+    ponderer.stopPondering();
+  }
+
+  /**
+   * Test if stopping a pondering ComputerPlayer right after its move returns
+   * promptly and leaves the game board alone.
+   */
+  @Test
+  public void testStopPondering() {
+    ComputerPlayer ponderer = new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).depth(4).ponder(true).build();
+    ponderer.makeMove(-1);
+    long hash = gameBoard.getHash();
+    long start = System.currentTimeMillis();
+    ponderer.stopPondering();
+    assertTrue(System.currentTimeMillis() - start < 1000);
+    assertEquals(hash, gameBoard.getHash());
+    assertEquals(0.0, ponderer.getPonderHitRate(), 0.0);
+  }
+
+  /**
+   * Test if a searched move is reported to the SearchMonitor with its time to
+   * decision.
+   */
+  @Test
+  public void testMakeMove_reportsToMonitor() {
+    SearchMonitor monitor = SearchMonitor.getInstance();
+    long moves = monitor.getMoves();
+    Coordinate pos = computer1.makeMove(-1);
+    assertTrue(pos.getY() >= 0);
+    assertTrue(monitor.getMoves() > moves);
+    assertTrue(computer1.getLastDecisionNanos() > 0);
+    assertTrue(monitor.getTotalNodes() > 0);
+    assertTrue(monitor.getMaxDecisionMillis() > 0);
+  }
 }
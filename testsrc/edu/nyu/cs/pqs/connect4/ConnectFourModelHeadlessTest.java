@@ -0,0 +1,395 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for the game logic of ConnectFourModel class:
+ * computer moves off the calling thread, asynchronous listeners, resets and
+ * the move history. Unlike ConnectFourModelTest it opens no window, so it
+ * also runs headless.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class ConnectFourModelHeadlessTest {
+
+  private Player player1;
+  private Player player2;
+  private ConnectFourModel model;
+
+  /**
+   * Set up a two player mode for model without any view.
+   */
+  @Before
+  public void setup() {
+    GameBoard gameBoard = new GameBoard();
+    player1 = new HumanPlayer.Builder(PlayerType.PLAYER1).name("Player1")
+        .gameBoard(gameBoard).build();
+    player2 = new HumanPlayer.Builder(PlayerType.PLAYER2).name("Player2")
+        .gameBoard(gameBoard).build();
+    model = new ConnectFourModel(GameMode.TWOPLAYER, gameBoard, player1,
+        player2);
+  }
+
+  /**
+   * Test if a listener added behind an AsyncListener can be removed by itself
+   * and gets its events from its own thread.
+   */
+  @Test
+  public void testAddAsyncListener() throws InterruptedException {
+    RecordingListener listener = new RecordingListener();
+    AsyncListener async = model.addAsyncListener(listener);
+    assertEquals(1, model.getListeners().size());
+    model.mouseClicked(player1, 3);
+    for (int i = 0; i < 500 && async.getDelivered() < 2; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals("move PLAYER1", listener.events.get(0));
+    model.removeListener(listener);
+    assertEquals(0, model.getListeners().size());
+  }
+
+  /**
+   * Test if a computer move is computed off the calling thread, clicks are
+   * ignored meanwhile, and its events are fired through the event executor.
+   */
+  @Test
+  public void testMouseClicked_computerMoveAsync() throws Exception {
+    GameBoard gameBoard = new GameBoard();
+    HumanPlayer human = new HumanPlayer.Builder(PlayerType.PLAYER1)
+        .gameBoard(gameBoard).build();
+    ComputerPlayer computer = new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).depth(4).build();
+    ExecutorService moves = Executors.newSingleThreadExecutor();
+    BlockingQueue<Runnable> events = new LinkedBlockingQueue<Runnable>();
+    ConnectFourModel single = new ConnectFourModel(GameMode.SINGLEPLAYER,
+        gameBoard, human, computer, moves, queueExecutor(events));
+    RecordingListener listener = new RecordingListener();
+    single.addListener(listener);
+
+    single.mouseClicked(human, 3);
+    assertTrue(single.isComputerThinking());
+    single.mouseClicked(human, 3);
+    events.poll(5, TimeUnit.SECONDS).run();
+    assertFalse(single.isComputerThinking());
+    assertEquals(2, gameBoard.getMoveCount());
+    assertEquals("move PLAYER1", listener.events.get(0));
+    assertEquals("turn COMPUTER", listener.events.get(1));
+    assertEquals("move COMPUTER", listener.events.get(2));
+    assertEquals("turn PLAYER1", listener.events.get(3));
+    moves.shutdown();
+  }
+
+  /**
+   * Test if a computer move that arrives after the game was reset is dropped
+   * and the board is reset after the move.
+   */
+  @Test
+  public void testResetGame_dropsStaleMove() throws Exception {
+    GameBoard gameBoard = new GameBoard();
+    HumanPlayer human = new HumanPlayer.Builder(PlayerType.PLAYER1)
+        .gameBoard(gameBoard).build();
+    ComputerPlayer computer = new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).depth(10).build();
+    ExecutorService moves = Executors.newSingleThreadExecutor();
+    BlockingQueue<Runnable> events = new LinkedBlockingQueue<Runnable>();
+    ConnectFourModel single = new ConnectFourModel(GameMode.SINGLEPLAYER,
+        gameBoard, human, computer, moves, queueExecutor(events));
+    RecordingListener listener = new RecordingListener();
+    single.addListener(listener);
+
+    single.mouseClicked(human, 3);
+    single.resetGame();
+    assertFalse(single.isComputerThinking());
+    Runnable done = events.poll(5, TimeUnit.SECONDS);
+    if (done != null) {
+      done.run();
+    }
+    moves.shutdown();
+    assertTrue(moves.awaitTermination(5, TimeUnit.SECONDS));
+    assertFalse(listener.events.contains("move COMPUTER"));
+    assertEquals(0, gameBoard.getMoveCount());
+  }
+
+  /**
+   * Test if a click made after resetGame() but before the board reset has run
+   * on the move executor is ignored, and clicks are taken again afterwards.
+   */
+  @Test
+  public void testResetGame_ignoresClicksUntilReset() {
+    GameBoard gameBoard = new GameBoard();
+    HumanPlayer first = new HumanPlayer.Builder(PlayerType.PLAYER1)
+        .gameBoard(gameBoard).build();
+    HumanPlayer second = new HumanPlayer.Builder(PlayerType.PLAYER2)
+        .gameBoard(gameBoard).build();
+    BlockingQueue<Runnable> moves = new LinkedBlockingQueue<Runnable>();
+    ConnectFourModel queued = new ConnectFourModel(GameMode.TWOPLAYER,
+        gameBoard, first, second, queueExecutor(moves), directExecutor());
+    RecordingListener listener = new RecordingListener();
+    queued.addListener(listener);
+    queued.mouseClicked(first, 3);
+    queued.resetGame();
+
+    queued.mouseClicked(first, 4);
+    assertFalse(queued.jumpToPly(0));
+    assertEquals(2, listener.events.size());
+    Runnable task;
+    while ((task = moves.poll()) != null) {
+      task.run();
+    }
+    assertEquals(0, gameBoard.getMoveCount());
+
+    queued.mouseClicked(first, 4);
+    assertEquals(1, gameBoard.getMoveCount());
+    assertEquals(4, queued.getHistory().getMove(0));
+  }
+
+  /**
+   * Test if a computer move that fails is reported, the board is rebuilt
+   * without what the failed search left on it and a fallback move is played,
+   * so the human is to move again.
+   */
+  @Test
+  public void testComputerMoveFails() {
+    final GameBoard gameBoard = new GameBoard();
+    HumanPlayer human = new HumanPlayer.Builder(PlayerType.PLAYER1)
+        .gameBoard(gameBoard).build();
+    Player failing = new Player() {
+      @Override
+      public String getName() {
+        return "Broken";
+      }
+
+      @Override
+      public PlayerType getType() {
+        return PlayerType.COMPUTER;
+      }
+
+      @Override
+      public GameBoard getGameBoard() {
+        return gameBoard;
+      }
+
+      @Override
+      public Coordinate makeMove(int col) {
+        gameBoard.setBoard(0, this);
+        throw new IllegalStateException("search failed");
+      }
+    };
+    ConnectFourModel single = new ConnectFourModel(GameMode.SINGLEPLAYER,
+        gameBoard, human, failing, directExecutor(), directExecutor());
+    RecordingListener listener = new RecordingListener();
+    single.addListener(listener);
+    final List<Throwable> reported = new ArrayList<Throwable>();
+    Thread thread = Thread.currentThread();
+    Thread.UncaughtExceptionHandler handler = thread
+        .getUncaughtExceptionHandler();
+    thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+      @Override
+      public void uncaughtException(Thread t, Throwable e) {
+        reported.add(e);
+      }
+    });
+    try {
+      single.mouseClicked(human, 3);
+    } finally {
+      thread.setUncaughtExceptionHandler(handler);
+    }
+
+    assertEquals(1, single.getFailureCount());
+    assertEquals("search failed", reported.get(0).getMessage());
+    assertFalse(single.isComputerThinking());
+    assertEquals(2, gameBoard.getMoveCount());
+    assertEquals(2, single.getHistory().getPly());
+    assertEquals(3, single.getHistory().getMove(1));
+    assertEquals(GameBoard.ROWNUM, gameBoard.getRowTracker()[0]);
+    assertEquals("move COMPUTER", listener.events.get(2));
+    assertEquals("turn PLAYER1", listener.events.get(3));
+  }
+
+  /**
+   * Test if undo takes back the last move with a takeback event, redo plays
+   * it again and a new move drops the moves taken back.
+   */
+  @Test
+  public void testUndoRedo() {
+    RecordingListener listener = new RecordingListener();
+    model.addListener(listener);
+    GameBoard gameBoard = model.getGameBoard();
+    assertFalse(model.undo());
+    model.mouseClicked(player1, 3);
+    model.mouseClicked(player2, 4);
+    model.mouseClicked(player1, 3);
+    listener.events.clear();
+
+    assertTrue(model.undo());
+    assertEquals(2, gameBoard.getMoveCount());
+    assertEquals(2, model.getHistory().getPly());
+    assertEquals(3, model.getHistory().getLength());
+    assertEquals("back PLAYER1 4,3", listener.events.get(0));
+    assertEquals("turn PLAYER1", listener.events.get(1));
+
+    assertTrue(model.redo());
+    assertEquals(3, gameBoard.getMoveCount());
+    assertEquals("move PLAYER1", listener.events.get(2));
+    assertEquals("turn PLAYER2", listener.events.get(3));
+    assertFalse(model.redo());
+
+    model.undo();
+    model.mouseClicked(player1, 0);
+    assertEquals(3, model.getHistory().getLength());
+    assertEquals(0, model.getHistory().getMove(2));
+    assertFalse(model.getHistory().canRedo());
+  }
+
+  /**
+   * Test if jumping back to the start empties the board and jumping to the
+   * end of a won game replays it and announces the winner again.
+   */
+  @Test
+  public void testJumpToPly() {
+    RecordingListener listener = new RecordingListener();
+    model.addListener(listener);
+    for (int i = 0; i < 3; i++) {
+      model.mouseClicked(player1, 0);
+      model.mouseClicked(player2, 1);
+    }
+    model.mouseClicked(player1, 0);
+    assertTrue(listener.events.contains("win PLAYER1"));
+    listener.events.clear();
+
+    assertTrue(model.jumpToPly(0));
+    assertEquals(0, model.getGameBoard().getMoveCount());
+    assertEquals(8, listener.events.size());
+    assertEquals("turn PLAYER1", listener.events.get(7));
+    assertFalse(model.jumpToPly(0));
+    assertFalse(model.jumpToPly(8));
+
+    listener.events.clear();
+    assertTrue(model.jumpToPly(7));
+    assertEquals(7, model.getGameBoard().getMoveCount());
+    assertEquals("win PLAYER1", listener.events.get(7));
+  }
+
+  /**
+   * Test if undo in a SINGLEPLAYER game takes back the computer's reply with
+   * the human move, and redo replays both.
+   */
+  @Test
+  public void testUndo_singlePlayer() {
+    GameBoard gameBoard = new GameBoard();
+    HumanPlayer human = new HumanPlayer.Builder(PlayerType.PLAYER1)
+        .gameBoard(gameBoard).build();
+    ComputerPlayer computer = new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).depth(2).build();
+    ConnectFourModel single = new ConnectFourModel(GameMode.SINGLEPLAYER,
+        gameBoard, human, computer, directExecutor(), directExecutor());
+    RecordingListener listener = new RecordingListener();
+    single.addListener(listener);
+    single.mouseClicked(human, 3);
+    assertEquals(2, gameBoard.getMoveCount());
+    listener.events.clear();
+
+    assertTrue(single.undo());
+    assertEquals(0, gameBoard.getMoveCount());
+    assertTrue(listener.events.get(0).startsWith("back COMPUTER"));
+    assertEquals("back PLAYER1 5,3", listener.events.get(1));
+    assertEquals("turn PLAYER1", listener.events.get(2));
+
+    assertTrue(single.redo());
+    assertEquals(2, gameBoard.getMoveCount());
+    assertEquals(2, single.getHistory().getPly());
+  }
+
+  /**
+   * Create an executor that queues its tasks for the test to run.
+   */
+  private Executor queueExecutor(final BlockingQueue<Runnable> queue) {
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        queue.add(command);
+      }
+    };
+  }
+
+  /**
+   * Create an executor that runs its tasks right away in the calling thread.
+   */
+  private Executor directExecutor() {
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    };
+  }
+
+  /**
+   * A listener that records the moves and turn switches it is told about.
+   */
+  private static class RecordingListener implements ConnectFourListener {
+    private final List<String> events = new ArrayList<String>();
+
+    @Override
+    public void gameStart() {
+    }
+
+    @Override
+    public void mouseInEachColume(Player whichPlayer, int col) {
+    }
+
+    @Override
+    public void mouseOutEachColume(Player whichPlayer, int col) {
+    }
+
+    @Override
+    public void mouseClickEachColume(Player whichPlayer, Coordinate pos) {
+      events.add("move " + whichPlayer.getType());
+    }
+
+    @Override
+    public void takeBackMove(Player whichPlayer, Coordinate pos) {
+      events.add("back " + whichPlayer.getType() + " " + pos.getX() + ","
+          + pos.getY());
+    }
+
+    @Override
+    public void switchTurnTo(Player whichPlayer) {
+      events.add("turn " + whichPlayer.getType());
+    }
+
+    @Override
+    public void gameOverWithWinner(Player whichPlayer) {
+      events.add("win " + whichPlayer.getType());
+    }
+
+    @Override
+    public void gameTie() {
+      events.add("tie");
+    }
+
+    @Override
+    public void columeFull(Player whichPlayer) {
+      events.add("full " + whichPlayer.getType());
+    }
+
+    @Override
+    public void closeWindow() {
+    }
+  }
+}
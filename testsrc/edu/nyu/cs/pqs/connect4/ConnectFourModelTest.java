@@ -24,11 +24,13 @@ public class ConnectFourModelTest {
    */
   @Before
   public void setup() {
+    GameBoard gameBoard = new GameBoard();
     player1 = new HumanPlayer.Builder(PlayerType.PLAYER1).name("Player1")
-        .build();
+        .gameBoard(gameBoard).build();
     player2 = new HumanPlayer.Builder(PlayerType.PLAYER2).name("Player2")
-        .build();
-    model = new ConnectFourModel(GameMode.TWOPLAYER, player1, player2);
+        .gameBoard(gameBoard).build();
+    model = new ConnectFourModel(GameMode.TWOPLAYER, gameBoard, player1,
+        player2);
     view1 = new ConnectFourView(model, player1);
     view2 = new ConnectFourView(model, player2);
   }
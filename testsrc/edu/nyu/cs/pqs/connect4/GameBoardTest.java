@@ -2,8 +2,11 @@ package edu.nyu.cs.pqs.connect4;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -15,7 +18,7 @@ import org.junit.Test;
  */
 public class GameBoardTest {
 
-  private GameBoard gameBoard = GameBoard.getInstance();
+  private GameBoard gameBoard = new GameBoard();
   private ComputerPlayer computer;
   private HumanPlayer human;
 
@@ -26,8 +29,9 @@ public class GameBoardTest {
   @Before
   public void setup() {
     gameBoard.resetBoard();
-    computer = new ComputerPlayer("Computer", PlayerType.COMPUTER);
-    human = new HumanPlayer.Builder(PlayerType.PLAYER1).name("Player1").build();
+    computer = new ComputerPlayer("Computer", PlayerType.COMPUTER, gameBoard);
+    human = new HumanPlayer.Builder(PlayerType.PLAYER1).name("Player1")
+        .gameBoard(gameBoard).build();
   }
 
   /**
@@ -71,6 +75,44 @@ public class GameBoardTest {
     assertEquals(6, gameBoard.getRowTracker()[0]);
   }
 
+  /**
+   * Test if moves on one board leave another board untouched.
+   */
+  @Test
+  public void testInstancesAreIndependent() {
+    GameBoard anotherBoard = new GameBoard();
+    gameBoard.setBoard(0, computer);
+    assertEquals(2, gameBoard.getBoard()[5][0]);
+    assertEquals(0, anotherBoard.getBoard()[5][0]);
+    assertEquals(6, anotherBoard.getRowTracker()[0]);
+  }
+
+  /**
+   * Test if the hash only depends on the pieces on the board, not on the order
+   * they were played in, and goes back to its old value after unsetBoard().
+   */
+  @Test
+  public void testHash_incremental() {
+    long empty = gameBoard.getHash();
+    gameBoard.setBoard(0, human);
+    gameBoard.setBoard(3, computer);
+    gameBoard.setBoard(1, human);
+    long afterThree = gameBoard.getHash();
+    assertNotEquals(empty, afterThree);
+
+    GameBoard anotherBoard = new GameBoard();
+    anotherBoard.setBoard(1, human);
+    anotherBoard.setBoard(3, computer);
+    anotherBoard.setBoard(0, human);
+    assertEquals(afterThree, anotherBoard.getHash());
+
+    gameBoard.setBoard(1, computer);
+    gameBoard.unsetBoard(1);
+    assertEquals(afterThree, gameBoard.getHash());
+    gameBoard.resetBoard();
+    assertEquals(empty, gameBoard.getHash());
+  }
+
   /**
    * Test if 4 same pieces in a row would result a win.
    */
@@ -148,4 +190,198 @@ public class GameBoardTest {
     }
     assertTrue(gameBoard.isTie());
   }
+
+  /**
+   * Test the anti-diagonal that ends in the right-most column, which the
+   * cell-walking implementation used to miss.
+   */
+  @Test
+  public void testIsWin_DiagnoseLastColumn() {
+    gameBoard.setBoard(6, computer);
+
+    gameBoard.setBoard(5, human);
+    gameBoard.setBoard(5, computer);
+
+    gameBoard.setBoard(4, human);
+    gameBoard.setBoard(4, human);
+    gameBoard.setBoard(4, computer);
+
+    gameBoard.setBoard(3, human);
+    gameBoard.setBoard(3, human);
+    gameBoard.setBoard(3, human);
+    gameBoard.setBoard(3, computer);
+
+    assertTrue(gameBoard.isWin(new Coordinate(5, 6), computer));
+    assertTrue(gameBoard.isWin(new Coordinate(2, 3), computer));
+  }
+
+  /**
+   * Cross-check isWin() against a plain cell-by-cell scan over every cell of
+   * many random games.
+   */
+  @Test
+  public void testIsWin_matchesCellScan() {
+    Random rand = new Random(4);
+    for (int game = 0; game < 500; game++) {
+      gameBoard.resetBoard();
+      for (int ply = 0; ply < GameBoard.ROWNUM * GameBoard.COLNUM; ply++) {
+        Player player = ply % 2 == 0 ? human : computer;
+        if (gameBoard.setBoard(rand.nextInt(GameBoard.COLNUM), player) == -1) {
+          continue;
+        }
+        int[][] board = gameBoard.getBoard();
+        for (int i = 0; i < GameBoard.ROWNUM; i++) {
+          for (int j = 0; j < GameBoard.COLNUM; j++) {
+            Coordinate pos = new Coordinate(i, j);
+            assertEquals(scanWin(board, pos, 1), gameBoard.isWin(pos, human));
+            assertEquals(scanWin(board, pos, 2),
+                gameBoard.isWin(pos, computer));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Test if a position and its mirror image share their canonical key but not
+   * their hash, and if columns are translated between the two forms.
+   */
+  @Test
+  public void testCanonicalKey_mirror() {
+    GameBoard mirrored = new GameBoard();
+    int[] moves = { 0, 1, 1, 5, 2, 2, 6 };
+    for (int i = 0; i < moves.length; i++) {
+      gameBoard.play(moves[i], i & 1);
+      mirrored.play(GameBoard.mirrorColumn(moves[i]), i & 1);
+      assertEquals(gameBoard.getCanonicalKey(i & 1),
+          mirrored.getCanonicalKey(i & 1));
+    }
+    assertNotEquals(gameBoard.getHash(), mirrored.getHash());
+    assertNotEquals(gameBoard.getCanonicalKey(0),
+        gameBoard.getCanonicalKey(1));
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      assertEquals(gameBoard.canonicalColumn(j),
+          mirrored.canonicalColumn(GameBoard.mirrorColumn(j)));
+    }
+    assertEquals(-1, gameBoard.canonicalColumn(-1));
+
+    long key = gameBoard.getCanonicalKey(0);
+    gameBoard.play(3, 1);
+    gameBoard.undo(3);
+    assertEquals(key, gameBoard.getCanonicalKey(0));
+  }
+
+  /**
+   * Test if a symmetric position keeps its columns as they are.
+   */
+  @Test
+  public void testCanonicalColumn_symmetric() {
+    gameBoard.play(3, 0);
+    gameBoard.play(3, 1);
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      assertEquals(j, gameBoard.canonicalColumn(j));
+    }
+  }
+
+  /**
+   * Test if the evaluation of an empty board is even and a center piece is
+   * worth more than a corner piece.
+   */
+  @Test
+  public void testEvaluate_center() {
+    assertEquals(0, gameBoard.evaluate(human));
+    gameBoard.setBoard(3, human);
+    int center = gameBoard.evaluate(human);
+    assertEquals(-center, gameBoard.evaluate(computer));
+    gameBoard.resetBoard();
+    gameBoard.setBoard(0, human);
+    assertTrue(center > gameBoard.evaluate(human));
+  }
+
+  /**
+   * Cross-check the incremental evaluate() against a full scan of every
+   * window over many random games, including take-backs.
+   */
+  @Test
+  public void testEvaluate_matchesWindowScan() {
+    Random rand = new Random(10);
+    for (int game = 0; game < 300; game++) {
+      gameBoard.resetBoard();
+      for (int ply = 0; ply < GameBoard.ROWNUM * GameBoard.COLNUM; ply++) {
+        Player player = ply % 2 == 0 ? human : computer;
+        int j = rand.nextInt(GameBoard.COLNUM);
+        if (gameBoard.setBoard(j, player) == -1) {
+          continue;
+        }
+        if (rand.nextInt(4) == 0) {
+          gameBoard.unsetBoard(j);
+        }
+        int[][] board = gameBoard.getBoard();
+        int expected = scanThreats(board, 1) - scanThreats(board, 2);
+        assertEquals(expected, gameBoard.evaluate(human));
+        assertEquals(-expected, gameBoard.evaluate(computer));
+      }
+    }
+  }
+
+  /**
+   * Add up the threat values of every window that holds pieces of value
+   * <code>val</code> only.
+   */
+  private int scanThreats(int[][] board, int val) {
+    int[] weights = { 0, 1, 4, 16, 64 };
+    int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+    int total = 0;
+    for (int[] d : directions) {
+      for (int i = 0; i < GameBoard.ROWNUM; i++) {
+        for (int j = 0; j < GameBoard.COLNUM; j++) {
+          int x = i + 3 * d[0];
+          int y = j + 3 * d[1];
+          if (x >= GameBoard.ROWNUM || y < 0 || y >= GameBoard.COLNUM) {
+            continue;
+          }
+          int own = 0;
+          boolean open = true;
+          for (int k = 0; k < 4; k++) {
+            int cell = board[i + k * d[0]][j + k * d[1]];
+            if (cell == val) {
+              own++;
+            }
+            else if (cell != 0) {
+              open = false;
+            }
+          }
+          if (open) {
+            total += weights[own];
+          }
+        }
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Count the pieces of value <code>val</code> on both sides of
+   * <code>pos</code> in every direction, counting <code>pos</code> itself.
+   */
+  private boolean scanWin(int[][] board, Coordinate pos, int val) {
+    int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+    for (int[] d : directions) {
+      int count = 1;
+      for (int sign = -1; sign <= 1; sign += 2) {
+        int x = pos.getX() + sign * d[0];
+        int y = pos.getY() + sign * d[1];
+        while (x >= 0 && x < GameBoard.ROWNUM && y >= 0 && y < GameBoard.COLNUM
+            && board[x][y] == val) {
+          count++;
+          x += sign * d[0];
+          y += sign * d[1];
+        }
+      }
+      if (count >= 4) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
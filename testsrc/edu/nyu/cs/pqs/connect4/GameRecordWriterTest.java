@@ -0,0 +1,203 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for GameRecordWriter and GameRecordReader
+ * classes.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class GameRecordWriterTest {
+
+  private File file;
+
+  /**
+   * Create an empty temporary archive file for each test.
+   */
+  @Before
+  public void setup() throws IOException {
+    file = File.createTempFile("connect4", ".games");
+    file.deleteOnExit();
+  }
+
+  /**
+   * Test if games of every length and result are read back as written, in
+   * order.
+   */
+  @Test
+  public void testWriteRead() throws IOException {
+    GameRecord[] records = new GameRecord[GameRecord.MAX_PLIES + 1];
+    for (int plies = 0; plies <= GameRecord.MAX_PLIES; plies++) {
+      byte[] moves = new byte[plies];
+      for (int i = 0; i < plies; i++) {
+        moves[i] = (byte) ((i * 5 + plies) % GameBoard.COLNUM);
+      }
+      records[plies] = new GameRecord(plies, 1000 * plies,
+          GameRecord.Result.of(plies % 4), moves);
+    }
+    GameRecordWriter writer = new GameRecordWriter(file);
+    for (GameRecord record : records) {
+      writer.write(record);
+    }
+    assertEquals(records.length, writer.getCount());
+    writer.close();
+
+    GameRecordReader reader = new GameRecordReader(file);
+    for (GameRecord record : records) {
+      assertTrue(reader.next());
+      assertEquals(record, reader.toRecord());
+      assertEquals(record.getPlies(), reader.getPlies());
+    }
+    assertFalse(reader.next());
+    reader.close();
+  }
+
+  /**
+   * Test if a short game takes a few bytes: the counts byte, one byte per
+   * small player number and 3 bits per move.
+   */
+  @Test
+  public void testRecordSize() throws IOException {
+    GameRecordWriter writer = new GameRecordWriter(file);
+    writer.write(new GameRecord(0, 1, GameRecord.Result.PLAYER1_WIN,
+        new byte[] { 3, 3, 2, 4, 1, 5, 0 }));
+    writer.close();
+    assertEquals(GameRecordWriter.HEADER_SIZE + 1 + 2 + 3, file.length());
+  }
+
+  /**
+   * Test if a writer opened on an existing archive appends to it.
+   */
+  @Test
+  public void testAppend() throws IOException {
+    GameRecord first = new GameRecord(0, 1, GameRecord.Result.DRAW,
+        new byte[] { 6 });
+    GameRecord second = new GameRecord(1, 0, GameRecord.Result.UNFINISHED,
+        new byte[] { 0, 1 });
+    GameRecordWriter writer = new GameRecordWriter(file);
+    writer.write(first);
+    writer.close();
+    writer = new GameRecordWriter(file);
+    writer.write(second);
+    writer.close();
+
+    GameRecordReader reader = new GameRecordReader(file);
+    assertTrue(reader.next());
+    assertEquals(first, reader.toRecord());
+    assertTrue(reader.next());
+    assertEquals(second, reader.toRecord());
+    assertFalse(reader.next());
+    reader.close();
+  }
+
+  /**
+   * Test if more games than fit in one buffer are all read back.
+   */
+  @Test
+  public void testManyGames() throws IOException {
+    byte[] moves = { 3, 3, 3, 3, 2, 4, 2, 4, 1, 5, 0, 6, 0, 6, 1, 5, 2 };
+    GameRecordWriter writer = new GameRecordWriter(file);
+    for (int i = 0; i < 100000; i++) {
+      writer.write(i % 200, i % 3, GameRecord.Result.PLAYER2_WIN, moves,
+          i % moves.length);
+    }
+    writer.close();
+    GameRecordReader reader = new GameRecordReader(file);
+    int games = 0;
+    while (reader.next()) {
+      assertEquals(games % 200, reader.getPlayer1());
+      assertEquals(games % moves.length, reader.getPlies());
+      games++;
+    }
+    reader.close();
+    assertEquals(100000, games);
+  }
+
+  /**
+   * Test if a file that is not an archive is refused.
+   */
+  @Test(expected = IOException.class)
+  public void testRead_notAnArchive() throws IOException {
+    FileOutputStream out = new FileOutputStream(file);
+    out.write("not an archive".getBytes("US-ASCII"));
+    out.close();
+    new GameRecordReader(file);
+  }
+
+  /**
+   * Test if an archive cut in the middle of a game is reported.
+   */
+  @Test(expected = IOException.class)
+  public void testRead_truncated() throws IOException {
+    GameRecordWriter writer = new GameRecordWriter(file);
+    writer.write(new GameRecord(0, 1, GameRecord.Result.DRAW,
+        new byte[GameRecord.MAX_PLIES]));
+    writer.close();
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    raf.setLength(file.length() - 1);
+    raf.close();
+    GameRecordReader reader = new GameRecordReader(file);
+    try {
+      reader.next();
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Test if a move outside the board cannot be recorded.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecord_badColumn() {
+    new GameRecord(0, 1, GameRecord.Result.DRAW,
+        new byte[] { (byte) GameBoard.COLNUM });
+  }
+
+  /**
+   * Test if the games of a simulation are recorded and replay to the same
+   * result.
+   */
+  @Test
+  public void testSimulatorRecords() throws IOException {
+    GameRecordWriter writer = new GameRecordWriter(file);
+    SimulationResult result = new GameSimulator(
+        GameSimulator.entrant("depth:2"), GameSimulator.entrant("easy"), 1, 2,
+        writer).run(10);
+    writer.close();
+    GameRecordReader reader = new GameRecordReader(file);
+    GameBoard gameBoard = new GameBoard();
+    long plies = 0;
+    int games = 0;
+    while (reader.next()) {
+      gameBoard.resetBoard();
+      boolean won = false;
+      for (int ply = 0; ply < reader.getPlies(); ply++) {
+        int col = reader.getMove(ply);
+        assertFalse(won);
+        won = gameBoard.isWinningMove(col, ply % 2);
+        gameBoard.play(col, ply % 2);
+      }
+      GameRecord.Result expected = !won ? GameRecord.Result.DRAW
+          : reader.getPlies() % 2 == 1 ? GameRecord.Result.PLAYER1_WIN
+              : GameRecord.Result.PLAYER2_WIN;
+      assertEquals(expected, reader.getResult());
+      plies += reader.getPlies();
+      games++;
+    }
+    reader.close();
+    assertEquals(10, games);
+    assertEquals(result.getPlies(), plies);
+  }
+}
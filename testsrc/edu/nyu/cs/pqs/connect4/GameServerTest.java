@@ -0,0 +1,242 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for GameServer class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class GameServerTest {
+
+  private GameServer server;
+
+  /**
+   * Start a server on a free port for each test.
+   */
+  @Before
+  public void setup() throws IOException {
+    server = new GameServer.Builder().port(0).searchThreads(2).build();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.close();
+  }
+
+  /**
+   * Client class is a blocking connection to the server under test.
+   */
+  private class Client {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final OutputStream out;
+
+    private Client() throws IOException {
+      socket = new Socket("127.0.0.1", server.getPort());
+      socket.setSoTimeout(10000);
+      in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+          StandardCharsets.US_ASCII));
+      out = socket.getOutputStream();
+      assertEquals("HELLO connect4 1", in.readLine());
+    }
+
+    private void send(String line) throws IOException {
+      out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+    }
+
+    private String readLine() throws IOException {
+      return in.readLine();
+    }
+
+    private void close() throws IOException {
+      socket.close();
+    }
+  }
+
+  /**
+   * Test if a game between two humans on one connection is reported move by
+   * move until the win.
+   */
+  @Test
+  public void testHumanGame() throws IOException {
+    Client client = new Client();
+    client.send("NEW human");
+    assertEquals("START", client.readLine());
+    assertEquals("TURN 1", client.readLine());
+    for (int i = 0; i < 6; i++) {
+      int player = i % 2 + 1;
+      client.send("MOVE " + (i % 2));
+      assertEquals("MOVE " + player + " " + (i % 2) + " " + (5 - i / 2),
+          client.readLine());
+      assertEquals("TURN " + (3 - player), client.readLine());
+    }
+    client.send("MOVE 0");
+    assertEquals("MOVE 1 0 2", client.readLine());
+    assertEquals("WIN 1", client.readLine());
+    client.send("MOVE 1");
+    assertEquals("ERR game over", client.readLine());
+    client.send("UNDO");
+    assertEquals("BACK 1 0 2", client.readLine());
+    assertEquals("TURN 1", client.readLine());
+    client.close();
+  }
+
+  /**
+   * Test if the computer answers a move on its own and the client cannot
+   * move for it.
+   */
+  @Test
+  public void testComputerGame() throws IOException {
+    Client client = new Client();
+    client.send("NEW depth:2");
+    assertEquals("START", client.readLine());
+    assertEquals("TURN 1", client.readLine());
+    client.send("MOVE 3");
+    assertEquals("MOVE 1 3 5", client.readLine());
+    assertEquals("TURN 2", client.readLine());
+    assertTrue(client.readLine().startsWith("MOVE 2 "));
+    assertEquals("TURN 1", client.readLine());
+    client.send("UNDO");
+    assertTrue(client.readLine().startsWith("BACK 2 "));
+    assertEquals("BACK 1 3 5", client.readLine());
+    assertEquals("TURN 1", client.readLine());
+    client.close();
+  }
+
+  /**
+   * Test if bad commands are answered with an error and the session goes on.
+   */
+  @Test
+  public void testErrors() throws IOException {
+    Client client = new Client();
+    client.send("MOVE 3");
+    assertEquals("ERR no game", client.readLine());
+    client.send("NEW nobody");
+    assertEquals("ERR unknown opponent", client.readLine());
+    client.send("NEW human");
+    assertEquals("START", client.readLine());
+    assertEquals("TURN 1", client.readLine());
+    client.send("MOVE 7");
+    assertEquals("ERR bad column", client.readLine());
+    client.send("MOVE x");
+    assertEquals("ERR bad column", client.readLine());
+    client.send("REDO");
+    assertEquals("ERR cannot redo", client.readLine());
+    client.send("JUMP");
+    assertEquals("ERR unknown command", client.readLine());
+    client.send("PING");
+    assertEquals("PONG", client.readLine());
+    client.send("QUIT");
+    assertEquals("BYE", client.readLine());
+    assertNull(client.readLine());
+    client.close();
+  }
+
+  /**
+   * Test if a depth out of range is refused and a full-depth search is cut
+   * short by the server's time budget.
+   */
+  @Test
+  public void testDepthIsBounded() throws IOException {
+    server.close();
+    server = new GameServer.Builder().port(0).searchThreads(1)
+        .searchBudget(200).build();
+    server.start();
+    Client client = new Client();
+    client.send("NEW depth:99");
+    assertEquals("ERR unknown opponent", client.readLine());
+    client.send("NEW depth:42");
+    assertEquals("START", client.readLine());
+    assertEquals("TURN 1", client.readLine());
+    long start = System.nanoTime();
+    client.send("MOVE 3");
+    assertEquals("MOVE 1 3 5", client.readLine());
+    assertEquals("TURN 2", client.readLine());
+    assertTrue(client.readLine().startsWith("MOVE 2 "));
+    assertTrue(System.nanoTime() - start < 5000000000L);
+    client.close();
+  }
+
+  /**
+   * Test if a client that never reads is dropped once its unread output
+   * passes the limit, and what it was sent is whole lines only.
+   */
+  @Test
+  public void testSlowClientDropped() throws Exception {
+    Client client = new Client();
+    byte[] pings = new byte[5 * 4096];
+    for (int i = 0; i < pings.length; i += 5) {
+      System.arraycopy("PING\n".getBytes(StandardCharsets.US_ASCII), 0, pings,
+          i, 5);
+    }
+    try {
+      for (int i = 0; i < 2000; i++) {
+        client.out.write(pings);
+      }
+    } catch (IOException e) {
+      // the server closed the connection
+    }
+    for (int i = 0; i < 100 && server.getSessionCount() > 0; i++) {
+      Thread.sleep(50);
+    }
+    assertEquals(0, server.getSessionCount());
+    try {
+      String line;
+      while ((line = client.readLine()) != null) {
+        assertEquals("PONG", line);
+      }
+    } catch (IOException e) {
+      // a reset connection ends the stream too
+    }
+    client.close();
+  }
+
+  /**
+   * Test if many sessions play at the same time, each seeing only the events
+   * of its own game.
+   */
+  @Test
+  public void testManySessions() throws Exception {
+    Client[] clients = new Client[200];
+    for (int i = 0; i < clients.length; i++) {
+      clients[i] = new Client();
+      clients[i].send("NEW easy");
+    }
+    assertEquals(clients.length, server.getSessionCount());
+    for (int i = 0; i < clients.length; i++) {
+      assertEquals("START", clients[i].readLine());
+      assertEquals("TURN 1", clients[i].readLine());
+      clients[i].send("MOVE " + i % GameBoard.COLNUM);
+    }
+    for (int i = 0; i < clients.length; i++) {
+      assertEquals("MOVE 1 " + i % GameBoard.COLNUM + " 5",
+          clients[i].readLine());
+      assertEquals("TURN 2", clients[i].readLine());
+      assertTrue(clients[i].readLine().startsWith("MOVE 2 "));
+      assertEquals("TURN 1", clients[i].readLine());
+      clients[i].close();
+    }
+    for (int i = 0; i < 100 && server.getSessionCount() > 0; i++) {
+      Thread.sleep(50);
+    }
+    assertEquals(0, server.getSessionCount());
+    assertTrue(server.getCommandCount() >= 2 * clients.length);
+  }
+}
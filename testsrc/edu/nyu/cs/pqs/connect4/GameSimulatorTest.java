@@ -0,0 +1,76 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class creates unit test for GameSimulator class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class GameSimulatorTest {
+
+  /**
+   * Test if every game of a simulation is counted once and has a plausible
+   * length.
+   */
+  @Test
+  public void testRun() {
+    GameSimulator simulator = new GameSimulator(
+        GameSimulator.entrant("depth:2"), GameSimulator.entrant("easy"), 2, 2);
+    SimulationResult result = simulator.run(21);
+    assertEquals(21, result.getGames());
+    assertEquals(21, result.getWinsA() + result.getWinsB()
+        + result.getDraws());
+    assertTrue(result.getMeanLength() >= 7);
+    assertTrue(result.getMeanLength() <= GameBoard.ROWNUM * GameBoard.COLNUM);
+    assertTrue(result.getElapsedNanos() > 0);
+  }
+
+  /**
+   * Test if a searching player beats the random player most of the time,
+   * whichever colour it plays.
+   */
+  @Test
+  public void testRun_strongerEntrantWins() {
+    GameSimulator simulator = new GameSimulator(
+        GameSimulator.entrant("depth:4"), GameSimulator.entrant("easy"), 1, 0);
+    SimulationResult result = simulator.run(20);
+    assertTrue(result.getWinRateA() > 0.8);
+  }
+
+  /**
+   * Test if Monte Carlo entrants can take part in a simulation.
+   */
+  @Test
+  public void testRun_mcts() {
+    GameSimulator simulator = new GameSimulator(
+        GameSimulator.entrant("mcts:200"), GameSimulator.entrant("depth:1"),
+        1, 2);
+    assertEquals(4, simulator.run(4).getGames());
+  }
+
+  /**
+   * Test if an unknown entrant description is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testEntrant_unknown() {
+    GameSimulator.entrant("grandmaster");
+  }
+
+  /**
+   * Test if two results add up their counts and keep the longer time.
+   */
+  @Test
+  public void testCombine() {
+    SimulationResult result = new SimulationResult(3, 1, 0, 80, 100)
+        .combine(new SimulationResult(1, 2, 1, 120, 300));
+    assertEquals(8, result.getGames());
+    assertEquals(0.5, result.getWinRateA(), 1e-9);
+    assertEquals(25.0, result.getMeanLength(), 1e-9);
+    assertEquals(300, result.getElapsedNanos());
+  }
+}
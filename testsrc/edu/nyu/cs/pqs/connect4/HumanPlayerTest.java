@@ -72,12 +72,12 @@ public class HumanPlayerTest {
    */
   @Test
   public void testMakeMove_success() {
-    int[][] board = GameBoard.getInstance().getBoard();
+    int[][] board = player1.getGameBoard().getBoard();
     assertEquals(0, board[5][0]);
     Coordinate pos = player1.makeMove(0);
     assertEquals(5, pos.getX());
     assertEquals(0, pos.getY());
-    board = GameBoard.getInstance().getBoard();
+    board = player1.getGameBoard().getBoard();
     assertEquals(1, board[5][0]);
   }
 
@@ -0,0 +1,51 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import javax.swing.ImageIcon;
+
+import org.junit.Test;
+
+/**
+ * This class creates unit test for ImageCache class. The images are read from
+ * the image directory of the project, the working directory of the tests.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class ImageCacheTest {
+
+  /**
+   * Test if every image of the game can be read.
+   */
+  @Test
+  public void testPreload() throws IOException {
+    ImageCache.preload();
+    ImageIcon cell = ImageCache.getIcon(ImageCache.CELL);
+    assertTrue(cell.getIconWidth() > 0);
+    assertTrue(cell.getIconHeight() > 0);
+  }
+
+  /**
+   * Test if the same icon is returned every time an image is asked for.
+   */
+  @Test
+  public void testGetIcon_shared() throws IOException {
+    ImageIcon first = ImageCache.getIcon(ImageCache.RED_PIECE);
+    ImageIcon second = ImageCache.getIcon(ImageCache.RED_PIECE);
+    assertSame(first, second);
+    assertNotSame(first, ImageCache.getIcon(ImageCache.YELLOW_PIECE));
+  }
+
+  /**
+   * Test if asking for an image that does not exist throws IOException.
+   */
+  @Test(expected = IOException.class)
+  public void testGetIcon_missing() throws IOException {
+    ImageCache.getIcon("missing.png");
+  }
+}
@@ -0,0 +1,61 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for MctsPlayerFactory class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class MctsPlayerFactoryTest {
+
+  private MctsPlayerFactory mctsFactory;
+
+  /**
+   * Create a new singleton factory of MctsPlayerFactory for each test.
+   */
+  @Before
+  public void setup() {
+    mctsFactory = new MctsPlayerFactory(1000, 0);
+  }
+
+  /**
+   * Test if the mctsFactory produces one MctsPlayer on the given game board
+   * with the budget of the factory.
+   */
+  @Test
+  public void testCreatePlayer() {
+    GameBoard gameBoard = new GameBoard();
+    Player player = mctsFactory.createPlayer("Computer", PlayerType.COMPUTER,
+        gameBoard);
+    assertTrue(player instanceof MctsPlayer);
+    assertSame(gameBoard, player.getGameBoard());
+    assertEquals(1000, ((MctsPlayer) player).getPlayouts());
+    assertSame(player, mctsFactory.createPlayer("AnotherComputer",
+        PlayerType.COMPUTER));
+  }
+
+  /**
+   * Test if the mctsFactory refuses to hand its MctsPlayer out for another
+   * game board.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testCreatePlayer_otherGameBoard() {
+    mctsFactory.createPlayer("Computer", PlayerType.COMPUTER, new GameBoard());
+    mctsFactory.createPlayer("Computer", PlayerType.COMPUTER, new GameBoard());
+  }
+
+  /**
+   * Test if a factory without any budget is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_noBudget() {
+    new MctsPlayerFactory(0, 0);
+  }
+}
@@ -0,0 +1,138 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for MctsPlayer class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class MctsPlayerTest {
+
+  private GameBoard gameBoard;
+  private HumanPlayer human;
+  private MctsPlayer mcts;
+
+  /**
+   * Create a new GameBoard, a HumanPlayer and an MctsPlayer with a fixed seed
+   * for each test.
+   */
+  @Before
+  public void setup() {
+    gameBoard = new GameBoard();
+    human = new HumanPlayer.Builder(PlayerType.PLAYER1).gameBoard(gameBoard)
+        .build();
+    mcts = new MctsPlayer.Builder(PlayerType.COMPUTER).gameBoard(gameBoard)
+        .playouts(5000).seed(42).build();
+  }
+
+  /**
+   * Test if the MctsPlayer places nothing on a board where the game is
+   * already won.
+   */
+  @Test
+  public void testMakeMove_gameOver() {
+    for (int i = 0; i < 4; i++) {
+      gameBoard.setBoard(0, human);
+    }
+    Coordinate pos = mcts.makeMove(-1);
+    assertEquals(-1, pos.getX());
+    assertEquals(4, gameBoard.getMoveCount());
+  }
+
+  /**
+   * Test if the MctsPlayer takes a winning move.
+   */
+  @Test
+  public void testMakeMove_takeWin() {
+    for (int i = 0; i < 3; i++) {
+      gameBoard.setBoard(1, mcts);
+      gameBoard.setBoard(5, human);
+    }
+    Coordinate pos = mcts.makeMove(-1);
+    assertEquals(1, pos.getY());
+    assertTrue(gameBoard.isWin(pos, mcts));
+  }
+
+  /**
+   * Test if the MctsPlayer blocks the winning move of its opponent and reports
+   * the playouts it ran.
+   */
+  @Test
+  public void testMakeMove_blockOpponentWin() {
+    for (int j = 0; j < 3; j++) {
+      gameBoard.setBoard(j, human);
+    }
+    gameBoard.setBoard(6, mcts);
+    Coordinate pos = mcts.makeMove(-1);
+    assertEquals(3, pos.getY());
+    assertEquals(5000, mcts.getLastPlayouts());
+    assertTrue(mcts.getLastPlayoutsPerSecond() > 0);
+  }
+
+  /**
+   * Test if the tree of one move is reused for the next one after the
+   * opponent has answered.
+   */
+  @Test
+  public void testMakeMove_reuseTree() {
+    gameBoard.setBoard(3, human);
+    mcts.makeMove(-1);
+    assertEquals(0, mcts.getLastReusedVisits());
+    gameBoard.setBoard(3, human);
+    mcts.makeMove(-1);
+    assertTrue(mcts.getLastReusedVisits() > 0);
+  }
+
+  /**
+   * Test if the tree is started over when the board no longer follows it.
+   */
+  @Test
+  public void testMakeMove_newGame() {
+    mcts.makeMove(-1);
+    gameBoard.resetBoard();
+    gameBoard.setBoard(0, human);
+    gameBoard.setBoard(0, human);
+    mcts.makeMove(-1);
+    assertEquals(0, mcts.getLastReusedVisits());
+  }
+
+  /**
+   * Test if an MctsPlayer limited by time answers shortly after its deadline.
+   */
+  @Test
+  public void testMakeMove_timeBudget() {
+    MctsPlayer timed = new MctsPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).playouts(0).timeBudget(100).build();
+    long start = System.currentTimeMillis();
+    Coordinate pos = timed.makeMove(-1);
+    long elapsed = System.currentTimeMillis() - start;
+    assertTrue(elapsed < 1000);
+    assertEquals(5, pos.getX());
+    assertTrue(timed.getLastElapsedNanos() >= 100 * 1000000L);
+  }
+
+  /**
+   * Test if a full game between two MctsPlayers with small trees ends with a
+   * win or a tie, reusing and compacting the trees along the way.
+   */
+  @Test
+  public void testMakeMove_fullGame() {
+    MctsPlayer first = new MctsPlayer.Builder(PlayerType.PLAYER1)
+        .gameBoard(gameBoard).playouts(300).treeSize(200).seed(1).build();
+    MctsPlayer second = new MctsPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).playouts(300).treeSize(200).seed(2).build();
+    MctsPlayer current = first;
+    Coordinate pos = current.makeMove(-1);
+    while (!gameBoard.isWin(pos, current) && !gameBoard.isTie()) {
+      current = current == first ? second : first;
+      pos = current.makeMove(-1);
+    }
+    assertTrue(gameBoard.getMoveCount() >= 7);
+  }
+}
@@ -0,0 +1,116 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for OpeningBook class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class OpeningBookTest {
+
+  private GameBoard gameBoard;
+  private HumanPlayer human;
+  private File file;
+
+  /**
+   * Write a book with two positions to a temporary file for each test: the
+   * empty board and the board after PLAYER1 played the center column.
+   */
+  @Before
+  public void setup() throws IOException {
+    gameBoard = new GameBoard();
+    human = new HumanPlayer.Builder(PlayerType.PLAYER1).gameBoard(gameBoard)
+        .build();
+    Map<Long, int[]> entries = new HashMap<Long, int[]>();
+    entries.put(gameBoard.getCanonicalKey(0), new int[] { 1, 3, 20 });
+    gameBoard.setBoard(3, human);
+    entries.put(gameBoard.getCanonicalKey(1), new int[] { -1, 6, 18 });
+    gameBoard.resetBoard();
+    file = File.createTempFile("connect4", ".book");
+    file.deleteOnExit();
+    OpeningBook.write(file, entries);
+  }
+
+  /**
+   * Test if the stored positions are found with their move, score and depth,
+   * and other positions are not.
+   */
+  @Test
+  public void testFind() throws IOException {
+    OpeningBook book = OpeningBook.load(file);
+    assertEquals(2, book.size());
+    int index = book.find(gameBoard.getCanonicalKey(0));
+    assertEquals(3, book.getMove(index));
+    assertEquals(1, book.getScore(index));
+    assertEquals(20, book.getDepth(index));
+    assertEquals(-1, book.find(gameBoard.getCanonicalKey(1)));
+  }
+
+  /**
+   * Test if loading the same file twice gives the same shared instance.
+   */
+  @Test
+  public void testLoad_shared() throws IOException {
+    assertSame(OpeningBook.load(file), OpeningBook.load(file));
+  }
+
+  /**
+   * Test if a file that is not a book is rejected.
+   */
+  @Test(expected = IOException.class)
+  public void testLoad_notABook() throws IOException {
+    File other = File.createTempFile("connect4", ".txt");
+    other.deleteOnExit();
+    OpeningBook.load(other);
+  }
+
+  /**
+   * Test if a ComputerPlayer plays a book position from the book without
+   * searching.
+   */
+  @Test
+  public void testComputerPlayer_usesBook() throws IOException {
+    ComputerPlayer computer = new ComputerPlayer.Builder(PlayerType.COMPUTER)
+        .gameBoard(gameBoard).openingBook(OpeningBook.load(file)).build();
+    human.makeMove(3);
+    Coordinate pos = computer.makeMove(-1);
+    assertEquals(6, pos.getY());
+    assertEquals(0, computer.getLastSearchResult().getNodes());
+    assertEquals(18, computer.getLastSearchResult().getDepth());
+  }
+
+  /**
+   * Test if a position stored in the book is also found for its mirror image,
+   * with the column mirrored.
+   */
+  @Test
+  public void testFind_mirrorImage() throws IOException {
+    Map<Long, int[]> entries = new HashMap<Long, int[]>();
+    gameBoard.setBoard(1, human);
+    entries.put(gameBoard.getCanonicalKey(1),
+        new int[] { 0, gameBoard.canonicalColumn(2), 12 });
+    File mirrorFile = File.createTempFile("connect4", ".book");
+    mirrorFile.deleteOnExit();
+    OpeningBook.write(mirrorFile, entries);
+    OpeningBook book = OpeningBook.load(mirrorFile);
+
+    GameBoard mirrored = new GameBoard();
+    mirrored.play(GameBoard.mirrorColumn(1), 0);
+    int index = book.find(mirrored.getCanonicalKey(1));
+    assertEquals(GameBoard.mirrorColumn(2),
+        mirrored.canonicalColumn(book.getMove(index)));
+    index = book.find(gameBoard.getCanonicalKey(1));
+    assertEquals(2, gameBoard.canonicalColumn(book.getMove(index)));
+  }
+}
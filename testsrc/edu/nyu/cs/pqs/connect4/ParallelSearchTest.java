@@ -0,0 +1,65 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for ParallelSearch class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class ParallelSearchTest {
+
+  private GameBoard gameBoard;
+  private ParallelSearch search;
+
+  /**
+   * Create a new GameBoard and a four-thread ParallelSearch for each test.
+   */
+  @Before
+  public void setup() {
+    gameBoard = new GameBoard();
+    search = new ParallelSearch(4, new TranspositionTable(1 << 16));
+  }
+
+  /**
+   * Test if the parallel search finds the same forced win as one engine.
+   */
+  @Test
+  public void testSearchIterative_findsDoubleThreat() {
+    gameBoard.play(1, 0);
+    gameBoard.play(1, 1);
+    gameBoard.play(2, 0);
+    gameBoard.play(2, 1);
+    SearchResult result = search.searchIterative(gameBoard, 0, 20, 0);
+    assertEquals(3, result.getColumn());
+    assertEquals(SearchEngine.WIN_SCORE - 7, result.getScore());
+  }
+
+  /**
+   * Test if the parallel search keeps its time budget and counts the nodes of
+   * every thread.
+   */
+  @Test
+  public void testSearchIterative_timeBudget() {
+    SearchResult result = search.searchIterative(gameBoard, 0,
+        GameBoard.ROWNUM * GameBoard.COLNUM, 100);
+    assertTrue(result.getColumn() >= 0);
+    assertTrue(result.getColumn() < GameBoard.COLNUM);
+    assertTrue(result.getElapsedNanos() < 1000 * 1000000L);
+    assertTrue(result.getNodes() > 0);
+    assertEquals(4, search.getThreads());
+  }
+
+  /**
+   * Test if a thread count below 1 is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_noThread() {
+    new ParallelSearch(0, new TranspositionTable(16));
+  }
+}
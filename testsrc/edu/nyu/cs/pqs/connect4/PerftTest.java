@@ -0,0 +1,78 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for Perft class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class PerftTest {
+
+  private GameBoard gameBoard;
+  private Perft perft;
+
+  /**
+   * Create an empty game board and a perft counter on it for each test.
+   */
+  @Before
+  public void setup() {
+    gameBoard = new GameBoard();
+    perft = new Perft(gameBoard);
+  }
+
+  /**
+   * Test if the counts of the empty board match the known ones up to the
+   * first depth where a game can end.
+   */
+  @Test
+  public void testPerft_emptyBoard() {
+    for (int depth = 0; depth <= 8; depth++) {
+      assertEquals(Perft.EMPTY_BOARD_COUNTS[depth], perft.perft(depth));
+    }
+    assertEquals(0, gameBoard.getMoveCount());
+  }
+
+  /**
+   * Test if the counts of every first move add up to the count of the
+   * position and mirror each other.
+   */
+  @Test
+  public void testDivide() {
+    long[] counts = perft.divide(7);
+    long total = 0;
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      total += counts[j];
+      assertEquals(counts[GameBoard.mirrorColumn(j)], counts[j]);
+    }
+    assertEquals(Perft.EMPTY_BOARD_COUNTS[7], total);
+  }
+
+  /**
+   * Test if a full column is left out of divide and a won position has no
+   * move sequences.
+   */
+  @Test
+  public void testDivide_fullColumnAndWin() {
+    Player player1 = new HumanPlayer.Builder(PlayerType.PLAYER1).build();
+    Player player2 = new HumanPlayer.Builder(PlayerType.PLAYER2).build();
+    for (int i = 0; i < GameBoard.ROWNUM; i++) {
+      gameBoard.setBoard(0, i % 2 == 0 ? player1 : player2);
+    }
+    long[] counts = perft.divide(1);
+    assertEquals(-1, counts[0]);
+    assertEquals(1, counts[1]);
+    gameBoard.resetBoard();
+    for (int j = 0; j < 3; j++) {
+      gameBoard.setBoard(j, player1);
+      gameBoard.setBoard(j, player2);
+    }
+    counts = perft.divide(2);
+    assertEquals(0, counts[3]);
+    assertEquals(GameBoard.COLNUM, counts[4]);
+  }
+}
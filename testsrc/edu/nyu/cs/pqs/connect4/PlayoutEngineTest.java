@@ -0,0 +1,100 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for PlayoutEngine class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class PlayoutEngineTest {
+
+  private GameBoard gameBoard;
+  private PlayoutEngine engine;
+
+  /**
+   * Create a new GameBoard and a PlayoutEngine with a fixed seed for each
+   * test.
+   */
+  @Before
+  public void setup() {
+    gameBoard = new GameBoard();
+    engine = new PlayoutEngine(7);
+  }
+
+  /**
+   * Test if a playout leaves the starting position untouched and two engines
+   * with the same seed play the same games.
+   */
+  @Test
+  public void testPlayout_sameSeed() {
+    gameBoard.play(3, 0);
+    long hash = gameBoard.getHash();
+    PlayoutEngine twin = new PlayoutEngine(7);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(twin.playout(gameBoard, 1), engine.playout(gameBoard, 1));
+    }
+    assertEquals(hash, gameBoard.getHash());
+    assertEquals(100, engine.getPlayouts());
+  }
+
+  /**
+   * Test if a playout from a position with a winning move can end with that
+   * win and never with an impossible result.
+   */
+  @Test
+  public void testPlayout_finishedPositions() {
+    for (int i = 0; i < 3; i++) {
+      gameBoard.play(0, 0);
+      gameBoard.play(6, 1);
+    }
+    for (int i = 0; i < 1000; i++) {
+      int winner = engine.playout(gameBoard, 0);
+      assertTrue(winner >= -1 && winner <= 1);
+    }
+    GameBoard full = new GameBoard();
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      for (int i = 0; i < GameBoard.ROWNUM; i++) {
+        full.play(j, (i + j / 2) & 1);
+      }
+    }
+    assertEquals(-1, engine.playout(full, 0));
+    assertEquals(-1, engine.randomColumn(full));
+  }
+
+  /**
+   * Test if the score of a batch adds up the results of its playouts.
+   */
+  @Test
+  public void testRunBatch() {
+    int score = engine.runBatch(gameBoard, 0, 1000);
+    assertTrue(score >= 0 && score <= 2000);
+    assertTrue(score > 700);
+    assertEquals(1000, engine.getPlayouts());
+  }
+
+  /**
+   * Test if randomColumn() only returns playable columns and reaches all of
+   * them.
+   */
+  @Test
+  public void testRandomColumn() {
+    for (int i = 0; i < GameBoard.ROWNUM; i++) {
+      gameBoard.play(2, i & 1);
+    }
+    boolean[] seen = new boolean[GameBoard.COLNUM];
+    for (int i = 0; i < 1000; i++) {
+      int j = engine.randomColumn(gameBoard);
+      assertTrue(gameBoard.canPlay(j));
+      seen[j] = true;
+    }
+    for (int j = 0; j < GameBoard.COLNUM; j++) {
+      assertEquals(j != 2, seen[j]);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for PositionAnalyzer class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class PositionAnalyzerTest {
+
+  private PositionAnalyzer analyzer;
+
+  /**
+   * Create a shallow analyzer with a small reorder buffer for each test.
+   */
+  @Before
+  public void setup() {
+    analyzer = new PositionAnalyzer.Builder().threads(2).depth(4).window(3)
+        .build();
+  }
+
+  private String[] analyze(String input) throws IOException {
+    StringWriter out = new StringWriter();
+    analyzer.analyze(new StringReader(input), out, null);
+    return out.toString().split("\n", -1);
+  }
+
+  /**
+   * Test if every position gets a result line, a winning move is found and
+   * positions that cannot be scored get an error line.
+   */
+  @Test
+  public void testAnalyze() throws IOException {
+    String[] lines = analyze("\n121212\n8\n1111111\n1212121\n");
+    assertEquals(6, lines.length);
+    assertTrue(lines[0].matches("\t[1-7]\t-?\\d+\t\\d+"));
+    assertTrue(lines[1].startsWith("121212\t1\t"));
+    assertEquals("8\tERR bad column", lines[2]);
+    assertEquals("1111111\tERR column full", lines[3]);
+    assertEquals("1212121\tERR game over", lines[4]);
+    assertEquals("", lines[5]);
+    assertEquals(3, analyzer.getInvalidCount());
+    assertTrue(analyzer.getNodeCount() > 0);
+  }
+
+  /**
+   * Test if the results come out in input order when there are many more
+   * positions than fit in the reorder buffer.
+   */
+  @Test
+  public void testOrder() throws IOException {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      input.append(i % 7 + 1).append(i / 7 % 7 + 1).append('\n');
+    }
+    String[] lines = analyze(input.toString());
+    assertEquals(301, lines.length);
+    for (int i = 0; i < 300; i++) {
+      assertTrue(lines[i].startsWith("" + (i % 7 + 1) + (i / 7 % 7 + 1)
+          + "\t"));
+    }
+    assertEquals(0, analyzer.getInvalidCount());
+  }
+
+  /**
+   * Test if settings that cannot work are refused.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadWindow() {
+    new PositionAnalyzer.Builder().window(0).build();
+  }
+}
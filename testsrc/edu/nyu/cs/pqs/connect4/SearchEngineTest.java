@@ -0,0 +1,134 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for SearchEngine class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class SearchEngineTest {
+
+  private GameBoard gameBoard;
+  private SearchEngine engine;
+
+  /**
+   * Create a new GameBoard and SearchEngine for each test.
+   */
+  @Before
+  public void setup() {
+    gameBoard = new GameBoard();
+    engine = new SearchEngine();
+  }
+
+  /**
+   * Play the given columns on the game board, alternating sides and starting
+   * with PLAYER1.
+   */
+  private void playMoves(int... columns) {
+    for (int i = 0; i < columns.length; i++) {
+      gameBoard.play(columns[i], i % 2);
+    }
+  }
+
+  /**
+   * Test if the engine takes a win that is one move away.
+   */
+  @Test
+  public void testSearch_takesWin() {
+    playMoves(0, 6, 1, 6, 2, 6);
+    SearchResult result = engine.search(gameBoard, 0, 4);
+    assertEquals(3, result.getColumn());
+    assertEquals(SearchEngine.WIN_SCORE - 7, result.getScore());
+  }
+
+  /**
+   * Test if the engine blocks the only winning move of its opponent.
+   */
+  @Test
+  public void testSearch_blocksThreat() {
+    playMoves(0, 6, 1, 6, 2);
+    SearchResult result = engine.search(gameBoard, 1, 2);
+    assertEquals(3, result.getColumn());
+  }
+
+  /**
+   * Test if the engine sees a double threat that wins in three plies.
+   */
+  @Test
+  public void testSearch_findsDoubleThreat() {
+    playMoves(1, 1, 2, 2);
+    SearchResult result = engine.search(gameBoard, 0, 3);
+    assertEquals(3, result.getColumn());
+    assertEquals(SearchEngine.WIN_SCORE - 7, result.getScore());
+  }
+
+  /**
+   * Test if a search leaves the searched position untouched and reports the
+   * nodes it visited.
+   */
+  @Test
+  public void testSearch_keepsPosition() {
+    playMoves(3, 3, 2);
+    int[][] before = gameBoard.getBoard();
+    SearchResult result = engine.search(gameBoard, 1, 6);
+    int[][] after = gameBoard.getBoard();
+    for (int i = 0; i < GameBoard.ROWNUM; i++) {
+      assertArrayEquals(before[i], after[i]);
+    }
+    assertEquals(6, result.getDepth());
+    assertTrue(result.getNodes() > 1);
+    assertEquals(result.getNodes(), engine.getNodeCount());
+  }
+
+  /**
+   * Test if iterative deepening stops at its deadline and reports the last
+   * completed depth.
+   */
+  @Test
+  public void testSearchIterative_deadline() {
+    SearchResult result = engine.searchIterative(gameBoard, 0,
+        GameBoard.ROWNUM * GameBoard.COLNUM, 50);
+    assertEquals(3, result.getColumn());
+    assertTrue(result.getDepth() >= 4);
+    assertTrue(result.getDepth() < GameBoard.ROWNUM * GameBoard.COLNUM);
+    assertTrue(result.getElapsedNanos() < 500 * 1000000L);
+  }
+
+  /**
+   * Test if iterative deepening stops early once the game is decided.
+   */
+  @Test
+  public void testSearchIterative_decided() {
+    playMoves(1, 1, 2, 2);
+    SearchResult result = engine.searchIterative(gameBoard, 0, 20, 0);
+    assertEquals(3, result.getColumn());
+    assertEquals(SearchEngine.WIN_SCORE - 7, result.getScore());
+    assertTrue(result.getDepth() < 20);
+  }
+
+  /**
+   * Test if a search counts its table lookups and cutoffs, and if the rates
+   * built from them are consistent.
+   */
+  @Test
+  public void testSearch_counters() {
+    playMoves(3, 3, 2);
+    SearchResult result = engine.search(gameBoard, 1, 8);
+    assertTrue(result.getExpandedNodes() > 0);
+    assertTrue(result.getExpandedNodes() <= result.getNodes());
+    assertTrue(result.getCutoffs() > 0);
+    assertTrue(result.getCutoffs() <= result.getExpandedNodes());
+    assertTrue(result.getFirstMoveCutoffs() <= result.getCutoffs());
+    assertTrue(result.getTableHits() > 0);
+    assertTrue(result.getTableHits() <= result.getTableProbes());
+    assertTrue(result.getFirstMoveCutoffRate() > 0.5);
+    assertTrue(result.getTableHitRate() <= 1.0);
+  }
+}
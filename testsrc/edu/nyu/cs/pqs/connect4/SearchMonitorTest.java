@@ -0,0 +1,82 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for SearchMonitor class, read through the
+ * platform MBean server as a JMX console would.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class SearchMonitorTest {
+
+  private SearchMonitor monitor;
+  private MBeanServer server;
+  private ObjectName name;
+
+  /**
+   * Register the monitor and clear what other tests recorded in it.
+   */
+  @Before
+  public void setup() throws JMException {
+    monitor = SearchMonitor.getInstance();
+    server = ManagementFactory.getPlatformMBeanServer();
+    name = new ObjectName(SearchMonitor.OBJECT_NAME);
+    server.invoke(name, "reset", null, null);
+  }
+
+  private Object attribute(String attribute) throws JMException {
+    return server.getAttribute(name, attribute);
+  }
+
+  /**
+   * Test if the rates are worked out from the counters of all moves, not
+   * taken from the last one, when moves of two players are interleaved.
+   */
+  @Test
+  public void testRecord_aggregatesPlayers() throws JMException {
+    SearchResult first = new SearchResult(3, 0, 8, 1000, 1000000, 400, 100,
+        90, 300, 30);
+    SearchResult second = new SearchResult(2, 0, 4, 3000, 1000000, 600, 300,
+        150, 100, 70);
+    monitor.record("First", "search", first, 2000000);
+    monitor.record("Second", "search", second, 4000000);
+
+    assertEquals(2L, attribute("Moves"));
+    assertEquals("Second", attribute("LastPlayer"));
+    assertEquals(4, attribute("LastDepth"));
+    assertEquals(6.0, (Double) attribute("AverageDepth"), 1e-9);
+    assertEquals(4000L, attribute("TotalNodes"));
+    assertEquals(2000000L, attribute("NodesPerSecond"));
+    assertEquals(400L, attribute("TableProbes"));
+    assertEquals(0.25, (Double) attribute("TableHitRate"), 1e-9);
+    assertEquals(0.4, (Double) attribute("CutoffRate"), 1e-9);
+    assertEquals(0.6, (Double) attribute("FirstMoveCutoffRate"), 1e-9);
+    assertEquals(3.0, (Double) attribute("AverageDecisionMillis"), 1e-9);
+    assertEquals(4.0, (Double) attribute("MaxDecisionMillis"), 1e-9);
+  }
+
+  /**
+   * Test if the reset operation clears the totals and the rates.
+   */
+  @Test
+  public void testReset() throws JMException {
+    monitor.record("First", "search", new SearchResult(3, 0, 8, 1000,
+        1000000, 400, 100, 90, 300, 30), 2000000);
+    server.invoke(name, "reset", null, null);
+    assertEquals(0L, attribute("Moves"));
+    assertEquals(0L, attribute("TableProbes"));
+    assertEquals(0.0, (Double) attribute("TableHitRate"), 0.0);
+    assertEquals("", attribute("LastPlayer"));
+  }
+}
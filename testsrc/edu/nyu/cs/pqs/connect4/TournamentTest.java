@@ -0,0 +1,91 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class creates unit test for Tournament class and the Elo estimates of
+ * SimulationResult class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class TournamentTest {
+
+  /**
+   * Test if every pair of a round robin plays its games and the results seen
+   * from both entrants agree.
+   */
+  @Test
+  public void testRun_roundRobin() {
+    Tournament tournament = new Tournament.Builder().entrant("depth:4")
+        .entrant("depth:1").entrant("easy").gamesPerPair(6).concurrency(3)
+        .build();
+    tournament.run();
+    assertEquals(3, tournament.getEntrantCount());
+    for (int a = 0; a < 3; a++) {
+      assertEquals(12, tournament.getStanding(a).getGames());
+      for (int b = 0; b < 3; b++) {
+        if (a != b) {
+          assertEquals(6, tournament.getResult(a, b).getGames());
+          assertEquals(tournament.getResult(a, b).getWinsA(),
+              tournament.getResult(b, a).getWinsB());
+          assertEquals(Tournament.Verdict.UNDECIDED,
+              tournament.getVerdict(a, b));
+        }
+      }
+    }
+    assertTrue(tournament.getStanding(0).getEloDifference() > 0);
+    assertTrue(tournament.getStanding(2).getEloDifference() < 0);
+  }
+
+  /**
+   * Test if the sequential test stops a one-sided match early and accepts the
+   * stronger entrant.
+   */
+  @Test
+  public void testRun_sprt() {
+    Tournament tournament = new Tournament.Builder().entrant("depth:4")
+        .entrant("easy").gamesPerPair(200).concurrency(2)
+        .sprt(0, 50, 0.05, 0.05).build();
+    tournament.run();
+    assertEquals(Tournament.Verdict.ACCEPTED, tournament.getVerdict(0, 1));
+    assertEquals(Tournament.Verdict.REJECTED, tournament.getVerdict(1, 0));
+    assertTrue(tournament.getResult(0, 1).getGames() < 200);
+  }
+
+  /**
+   * Test if a tournament of one entrant is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testBuild_oneEntrant() {
+    new Tournament.Builder().entrant("easy").build();
+  }
+
+  /**
+   * Test if an even score gives no Elo difference and a 3 to 1 score about
+   * 191 points.
+   */
+  @Test
+  public void testEloDifference() {
+    assertEquals(0.0, new SimulationResult(5, 5, 10, 0, 0)
+        .getEloDifference(), 1e-9);
+    assertEquals(190.8, new SimulationResult(3, 1, 0, 0, 0)
+        .getEloDifference(), 0.1);
+    assertTrue(new SimulationResult(4, 0, 0, 0, 0).getEloMargin() > 0);
+  }
+
+  /**
+   * Test if the log-likelihood ratio favours the hypothesis closer to the
+   * observed score.
+   */
+  @Test
+  public void testLogLikelihoodRatio() {
+    SimulationResult even = new SimulationResult(40, 40, 20, 0, 0);
+    SimulationResult strong = new SimulationResult(70, 10, 20, 0, 0);
+    assertTrue(even.getLogLikelihoodRatio(0, 50) < 0);
+    assertTrue(strong.getLogLikelihoodRatio(0, 50) > 0);
+  }
+}
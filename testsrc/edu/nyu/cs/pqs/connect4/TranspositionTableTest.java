@@ -0,0 +1,118 @@
+package edu.nyu.cs.pqs.connect4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class creates unit test for TranspositionTable class.
+ * 
+ * @author Ke Chen
+ *
+ */
+public class TranspositionTableTest {
+
+  private TranspositionTable table;
+
+  /**
+   * Create a small table for each test.
+   */
+  @Before
+  public void setup() {
+    table = new TranspositionTable(16);
+  }
+
+  /**
+   * Test if the capacity is rounded up to a power of two.
+   */
+  @Test
+  public void testCapacity() {
+    assertEquals(16, table.getCapacity());
+    assertEquals(32, new TranspositionTable(17).getCapacity());
+  }
+
+  /**
+   * Test if a stored entry can be read back with every field intact.
+   */
+  @Test
+  public void testStoreAndProbe() {
+    table.store(0x1234L, -99990, 7, TranspositionTable.LOWER, 5);
+    long entry = table.probe(0x1234L);
+    assertNotEquals(TranspositionTable.MISS, entry);
+    assertEquals(-99990, TranspositionTable.score(entry));
+    assertEquals(7, TranspositionTable.depth(entry));
+    assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+    assertEquals(5, TranspositionTable.move(entry));
+    assertEquals(1, table.getHits());
+  }
+
+  /**
+   * Test if a probe for a position that is not stored is a miss, even when
+   * another position uses the same slot.
+   */
+  @Test
+  public void testProbe_miss() {
+    assertEquals(TranspositionTable.MISS, table.probe(0x10L));
+    table.store(0x10L, 0, 3, TranspositionTable.EXACT, -1);
+    assertEquals(TranspositionTable.MISS, table.probe(0x20L));
+    assertEquals(-1, TranspositionTable.move(table.probe(0x10L)));
+    assertEquals(2, table.getMisses());
+  }
+
+  /**
+   * Test if a shallower result does not replace a deeper one of the same
+   * search, but does replace it once a new search has started.
+   */
+  @Test
+  public void testStore_depthPreferred() {
+    table.store(0x01L, 10, 8, TranspositionTable.EXACT, 3);
+    table.store(0x11L, 20, 2, TranspositionTable.EXACT, 4);
+    assertEquals(8, TranspositionTable.depth(table.probe(0x01L)));
+    assertEquals(TranspositionTable.MISS, table.probe(0x11L));
+    assertEquals(0, table.getOverwrites());
+
+    table.newSearch();
+    table.store(0x11L, 20, 2, TranspositionTable.EXACT, 4);
+    assertEquals(TranspositionTable.MISS, table.probe(0x01L));
+    assertEquals(20, TranspositionTable.score(table.probe(0x11L)));
+    assertEquals(1, table.getOverwrites());
+  }
+
+  /**
+   * Test if several threads can store and probe at the same time without ever
+   * reading an entry of another position.
+   */
+  @Test
+  public void testConcurrentAccess() throws InterruptedException {
+    Thread[] threads = new Thread[4];
+    final boolean[] corrupted = new boolean[threads.length];
+    for (int t = 0; t < threads.length; t++) {
+      final int id = t;
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 100000; i++) {
+            long key = (i * 31L + id) * 0x9E3779B97F4A7C15L;
+            int score = (int) (key >>> 48);
+            table.store(key, score, i & 0x3F, TranspositionTable.EXACT, -1);
+            long entry = table.probe(key);
+            if (entry != TranspositionTable.MISS
+                && TranspositionTable.score(entry) != score) {
+              corrupted[id] = true;
+            }
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (boolean c : corrupted) {
+      assertFalse(c);
+    }
+  }
+}